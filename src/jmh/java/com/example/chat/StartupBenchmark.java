@@ -0,0 +1,53 @@
+package com.example.chat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Cold start: time from SpringApplication.run until the server accepts connections, in a fresh JVM for every
+ * sample, for the default and the prod profile. Only the first run of a JVM is measured, as later ones would
+ * find the classes loaded and the code compiled; closing the context is not timed. Devtools is on the benchmark
+ * classpath but not in the packaged jar, so it is switched off. For the AOT-processed context build with
+ * -Paot,benchmark and pass -jvmArgsAppend -Dspring.aot.enabled=true; AOT fixes the profile at build time, so
+ * compare only the prod runs then.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 5, jvmArgsAppend = {"-Dspring.devtools.restart.enabled=false", "-Dspring.devtools.add-properties=false"})
+public class StartupBenchmark {
+
+    @Param({"default", "prod"})
+    private String profile;
+
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public ConfigurableApplicationContext start() {
+        context = new SpringApplicationBuilder(ChatApplication.class)
+                .profiles(profile)
+                .run("--server.port=0", "--spring.devtools.livereload.enabled=false");
+        return context;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        context.close();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.chat.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.model.Message;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * Per-frame cost of the WebSocket codec against the previous tree-based path, which read the payload
+ * into a String, parsed a JsonNode and serialized through the ObjectMapper.
+ * Run with "-prof gc" to compare allocation per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatFrameCodecBenchmark {
+
+    private static final String ROOM = "general";
+
+    private ObjectMapper objectMapper;
+    private ChatFrameCodec codec;
+    private byte[] inbound;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        codec = new ChatFrameCodec(objectMapper, new FrameCompressor(new ChatProperties()));
+        inbound = "{\"sender\":\"alice\",\"content\":\"hello, reactive world\"}".getBytes(StandardCharsets.UTF_8);
+        message = Message.builder()
+                .id(42)
+                .sender("alice")
+                .content("hello, reactive world")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    @Benchmark
+    public MessageRequest decodeStreaming() throws IOException {
+        return codec.decodeRequest(frame(), WireFormat.JSON, ROOM);
+    }
+
+    @Benchmark
+    public MessageRequest decodeTree() throws IOException {
+        String payload = frame().toString(StandardCharsets.UTF_8);
+        JsonNode node = objectMapper.readTree(payload);
+        return new MessageRequest(node.get("sender").asText(), node.get("content").asText(), ROOM);
+    }
+
+    @Benchmark
+    public byte[] encodeStreaming() throws IOException {
+        return codec.encodeMessage(message, WireFormat.JSON);
+    }
+
+    @Benchmark
+    public byte[] encodeObjectMapper() throws IOException {
+        return objectMapper.writeValueAsBytes(MessageMapper.toResponse(message));
+    }
+
+    private DataBuffer frame() {
+        return DefaultDataBufferFactory.sharedInstance.wrap(inbound);
+    }
+}
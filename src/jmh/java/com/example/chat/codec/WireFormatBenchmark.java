@@ -0,0 +1,90 @@
+package com.example.chat.codec;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.dto.MessageResponse;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.model.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+/**
+ * Compares the JSON and CBOR wire formats: encode and decode throughput through the streaming codec,
+ * and through MessageMapper plus an ObjectMapper of each format. Frame sizes are printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"JSON", "CBOR"})
+    private WireFormat format;
+
+    private ChatFrameCodec codec;
+    private ObjectMapper mapper;
+    private Message message;
+    private byte[] inbound;
+    private byte[] mapperFrame;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper json = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        codec = new ChatFrameCodec(json, new FrameCompressor(new ChatProperties()));
+        mapper = format == WireFormat.JSON ? json : CBORMapper.builder().findAndAddModules().build();
+        message = Message.builder()
+                .id(123_456)
+                .room("general")
+                .sender("alice")
+                .content("hello, reactive world")
+                .timestamp(System.currentTimeMillis())
+                .build();
+        inbound = mapper.writeValueAsBytes(new MessageRequest("alice", "hello, reactive world"));
+        mapperFrame = mapper.writeValueAsBytes(MessageMapper.toResponse(message));
+        System.out.printf("%n%s frame: codec %d bytes, mapper %d bytes, request %d bytes%n",
+                format, codec.encodeMessage(message, format).length, mapperFrame.length, inbound.length);
+    }
+
+    @Benchmark
+    public byte[] encodeCodec() throws IOException {
+        return codec.encodeMessage(message, format);
+    }
+
+    @Benchmark
+    public MessageRequest decodeCodec() throws IOException {
+        return codec.decodeRequest(DefaultDataBufferFactory.sharedInstance.wrap(inbound), format, "general");
+    }
+
+    @Benchmark
+    public byte[] encodeMapper() throws IOException {
+        return mapper.writeValueAsBytes(MessageMapper.toResponse(message));
+    }
+
+    @Benchmark
+    public MessageResponse decodeMapper() throws IOException {
+        return mapper.readValue(mapperFrame, MessageResponse.class);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.chat.mapper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.dto.MessageResponse;
+import com.example.chat.model.Message;
+
+/**
+ * Cost of the MessageMapper conversions on the request and response paths. The request carries its own
+ * copy of the sender name, as a decoded frame does, so toEntity pays for interning it.
+ * Run with "-prof gc" to see allocation per conversion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageMapperBenchmark {
+
+    private MessageRequest request;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        request = new MessageRequest(new String("alice"), "hello, reactive world", "general");
+        message = MessageMapper.toEntity(request).withId(123_456);
+    }
+
+    @Benchmark
+    public Message toEntity() {
+        return MessageMapper.toEntity(request);
+    }
+
+    @Benchmark
+    public MessageResponse toResponse() {
+        return MessageMapper.toResponse(message);
+    }
+
+    @Benchmark
+    public String roomOrDefault() {
+        return MessageMapper.roomOrDefault(request.room());
+    }
+}
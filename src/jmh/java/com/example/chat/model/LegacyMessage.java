@@ -0,0 +1,22 @@
+package com.example.chat.model;
+
+import java.time.LocalDateTime;
+
+import com.example.chat.config.ChatConstants;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The original mutable message model with a LocalDateTime timestamp, kept as a benchmark baseline.
+ */
+@Data
+@Builder
+class LegacyMessage {
+    private long id;
+    @Builder.Default
+    private String room = ChatConstants.DEFAULT_ROOM;
+    private String sender;
+    private String content;
+    private LocalDateTime timestamp;
+}
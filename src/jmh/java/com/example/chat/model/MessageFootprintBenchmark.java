@@ -0,0 +1,92 @@
+package com.example.chat.model;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+
+/**
+ * Heap retained by one million published messages, and the time to map them from requests, for the compact
+ * message model against the original one. Requests carry their own copies of the sender and room names, as
+ * decoded frames do, and a few hundred senders share the history. The retained size of each model, measured
+ * with JOL, is printed at setup; content strings are the same in both and included in the totals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class MessageFootprintBenchmark {
+
+    private static final int MESSAGES = 1_000_000;
+
+    @Param({"legacy", "compact"})
+    private String model;
+
+    @Param({"500"})
+    private int senders;
+
+    private MessageRequest[] requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        requests = new MessageRequest[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            requests[i] = new MessageRequest(new String("sender-" + i % senders), "message " + i, new String("general"));
+        }
+        Object[] retained = retain();
+        long messagesOnly = GraphLayout.parseInstance(retained).totalSize();
+        long contents = GraphLayout.parseInstance(contents(retained)).totalSize();
+        System.out.printf("%n%s model: %,d bytes retained per %,d messages, %.1f bytes per message excluding content%n",
+                model, messagesOnly, MESSAGES, (double) (messagesOnly - contents) / MESSAGES);
+    }
+
+    @Benchmark
+    public Object[] retain() {
+        Object[] history = new Object[MESSAGES];
+        if ("compact".equals(model)) {
+            for (int i = 0; i < MESSAGES; i++) {
+                history[i] = MessageMapper.toEntity(requests[i]).withId(i + 1);
+            }
+        } else {
+            for (int i = 0; i < MESSAGES; i++) {
+                MessageRequest request = requests[i];
+                LegacyMessage message = LegacyMessage.builder()
+                        .room(MessageMapper.roomOrDefault(request.room()))
+                        .sender(request.sender())
+                        .content(request.content())
+                        .timestamp(LocalDateTime.now())
+                        .build();
+                message.setId(i + 1);
+                history[i] = message;
+            }
+        }
+        return history;
+    }
+
+    private static Object[] contents(Object[] retained) {
+        Object[] contents = new Object[retained.length];
+        for (int i = 0; i < retained.length; i++) {
+            contents[i] = retained[i] instanceof Message message
+                    ? message.getContent()
+                    : ((LegacyMessage) retained[i]).getContent();
+        }
+        return contents;
+    }
+}
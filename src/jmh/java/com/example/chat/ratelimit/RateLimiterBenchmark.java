@@ -0,0 +1,101 @@
+package com.example.chat.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.service.SubscriberQueues;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Cost of a rate-limit check on the inbound path: the bare bucket, a lookup of one hot key, lookups
+ * spread over many keys, and one hot key shared by several threads. The limits are set high enough that
+ * every check is allowed, which is the path a well-behaved client pays for on every message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final long INTERVAL_NANOS = 1;
+    private static final long TOLERANCE_NANOS = Long.MAX_VALUE / 4;
+
+    @Param({"100000"})
+    private int keys;
+
+    private RateLimiter limiter;
+    private TokenBucket bucket;
+    private String[] senders;
+
+    @Setup
+    public void setUp() {
+        ChatProperties properties = new ChatProperties();
+        ChatProperties.RateLimit rateLimit = properties.getRateLimit();
+        for (ChatProperties.RateLimit.Limit limit : new ChatProperties.RateLimit.Limit[] {
+                rateLimit.getSender(), rateLimit.getSession(), rateLimit.getAddress()}) {
+            limit.setRate(1e9);
+            limit.setBurst(Integer.MAX_VALUE);
+        }
+        rateLimit.setMaxKeys(keys);
+        SubscriberQueues subscriberQueues = new SubscriberQueues(properties);
+        ChatFrameCodec codec = new ChatFrameCodec(new ObjectMapper(), new FrameCompressor(new ChatProperties()));
+        limiter = new RateLimiter(properties, new ChatMetrics(new SimpleMeterRegistry(), subscriberQueues, codec));
+        bucket = new TokenBucket(System.nanoTime());
+        senders = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            senders[i] = "sender-" + i;
+            limiter.tryAcquire(LimitScope.SENDER, senders[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next(int bound) {
+            next = next + 1 == bound ? 0 : next + 1;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public long bucketOnly() {
+        return bucket.tryAcquire(System.nanoTime(), INTERVAL_NANOS, TOLERANCE_NANOS);
+    }
+
+    @Benchmark
+    public long hotKey() {
+        return limiter.tryAcquire(LimitScope.SENDER, "sender-0");
+    }
+
+    @Benchmark
+    public long manyKeys(Cursor cursor) {
+        return limiter.tryAcquire(LimitScope.SENDER, senders[cursor.next(keys)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long hotKeyContended() {
+        return limiter.tryAcquire(LimitScope.SENDER, "sender-0");
+    }
+}
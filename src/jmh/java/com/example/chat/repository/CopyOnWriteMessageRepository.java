@@ -0,0 +1,66 @@
+package com.example.chat.repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.example.chat.model.Message;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * The original CopyOnWriteArrayList-backed repository, kept as a benchmark baseline.
+ */
+class CopyOnWriteMessageRepository implements MessageRepository {
+
+    private final List<Message> messages = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void save(Message message) {
+        messages.add(message);
+    }
+
+    @Override
+    public void saveAll(List<Message> batch) {
+        messages.addAll(batch);
+    }
+
+    @Override
+    public List<Message> findAll() {
+        return Collections.unmodifiableList(messages);
+    }
+
+    @Override
+    public List<Message> findLast(int limit) {
+        int size = messages.size();
+        int startIndex = Math.max(0, size - limit);
+        return Collections.unmodifiableList(messages.subList(startIndex, size));
+    }
+
+    @Override
+    public List<Message> findLast(String room, int limit) {
+        List<Message> inRoom = messages.stream()
+                .filter(message -> room.equals(message.getRoom()))
+                .toList();
+        return inRoom.subList(Math.max(0, inRoom.size() - limit), inRoom.size());
+    }
+
+    @Override
+    public List<Message> findAfter(String room, long afterId) {
+        return messages.stream()
+                .filter(message -> room.equals(message.getRoom()) && message.getId() > afterId)
+                .toList();
+    }
+
+    @Override
+    public Flux<Message> findRange(HistoryQuery query) {
+        List<Message> snapshot = List.copyOf(messages);
+        List<Message> ordered = query.ascending() ? snapshot : snapshot.reversed();
+        return Flux.fromIterable(ordered).filter(query::matches).take(query.limit(), true);
+    }
+
+    @Override
+    public long lastId() {
+        return messages.isEmpty() ? 0 : messages.get(messages.size() - 1).getId();
+    }
+}
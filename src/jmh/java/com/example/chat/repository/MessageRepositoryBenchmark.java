@@ -0,0 +1,81 @@
+package com.example.chat.repository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.model.Message;
+
+/**
+ * Compares the ring-buffer InMemoryMessageRepository against the original
+ * CopyOnWriteArrayList implementation, single-threaded and with concurrent writers and readers.
+ * Run with "-prof gc" to see the per-append allocation rate.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageRepositoryBenchmark {
+
+    private static final int HISTORY = 10_000;
+
+    @Param({"ringBuffer", "copyOnWrite"})
+    private String implementation;
+
+    private MessageRepository repository;
+    private Message message;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ChatProperties properties = new ChatProperties();
+        properties.getHistory().setCapacity(HISTORY);
+        repository = "ringBuffer".equals(implementation)
+                ? new InMemoryMessageRepository(properties)
+                : new CopyOnWriteMessageRepository();
+        message = Message.builder()
+                .sender("bench")
+                .content("hello, reactive world")
+                .timestamp(System.currentTimeMillis())
+                .build();
+        for (int i = 0; i < HISTORY; i++) {
+            repository.save(message);
+        }
+    }
+
+    @Benchmark
+    @Group("append")
+    public void save() {
+        repository.save(message);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void contendedSave() {
+        repository.save(message);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public List<Message> contendedFindLast() {
+        return repository.findLast(50);
+    }
+}
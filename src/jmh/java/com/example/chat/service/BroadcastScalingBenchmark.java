@@ -0,0 +1,112 @@
+package com.example.chat.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.chat.cluster.StandaloneBackplane;
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.codec.WireFormat;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.model.Message;
+import com.example.chat.moderation.ModerationPipeline;
+import com.example.chat.repository.InMemoryMessageRepository;
+import com.example.chat.scheduling.ChatSchedulers;
+import com.example.chat.search.SearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+
+/**
+ * Time from ChatServiceImpl.publish until all 10,000 subscribers of a room have taken the message, with the
+ * subscribers partitioned over 1, 4 and 16 broadcast shards. Each subscriber takes the shared JSON frame and then
+ * burns a little CPU for the write a WebSocket session would make. The score should fall with the shard count
+ * until it reaches the number of cores the benchmark runs on; run it on a machine with at least 16.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastScalingBenchmark {
+
+    private static final String ROOM = "general";
+    private static final int SUBSCRIBERS = 10_000;
+
+    @Param({"1", "4", "16"})
+    private int shards;
+
+    @Param({"50"})
+    private long writeTokens;
+
+    private ChatServiceImpl chatService;
+    private SearchIndex searchIndex;
+    private ChatSchedulers schedulers;
+    private Message message;
+    private final List<Disposable> subscriptions = new ArrayList<>();
+    // Counted per cell, so counting does not bounce one cache line between the shard threads
+    private final LongAdder delivered = new LongAdder();
+    private long expected;
+
+    @Setup
+    public void setUp() {
+        ChatProperties properties = new ChatProperties();
+        properties.getSearch().setEnabled(false);
+        properties.getExecution().setBroadcastShards(shards);
+        SubscriberQueues subscriberQueues = new SubscriberQueues(properties);
+        ChatFrameCodec codec = new ChatFrameCodec(new ObjectMapper(), new FrameCompressor(properties));
+        ChatMetrics metrics = new ChatMetrics(new SimpleMeterRegistry(), subscriberQueues, codec);
+        InMemoryMessageRepository repository = new InMemoryMessageRepository(properties);
+        searchIndex = new SearchIndex(properties, repository, metrics);
+        schedulers = new ChatSchedulers(properties);
+        chatService = new ChatServiceImpl(properties, repository, subscriberQueues, codec, metrics,
+                new StandaloneBackplane(properties), searchIndex, schedulers,
+                new ModerationPipeline(properties, List.of(), metrics, schedulers));
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            subscriptions.add(chatService.messages(ROOM).subscribe(encoded -> {
+                encoded.frame(WireFormat.JSON);
+                Blackhole.consumeCPU(writeTokens);
+                delivered.increment();
+            }));
+        }
+        message = MessageMapper.toEntity(new MessageRequest("alice", "hello, reactive world", ROOM));
+    }
+
+    @TearDown
+    public void tearDown() {
+        subscriptions.forEach(Disposable::dispose);
+        chatService.shutdown();
+        searchIndex.shutdown();
+        schedulers.shutdown();
+    }
+
+    @Benchmark
+    public void publishAndDeliver() {
+        expected += SUBSCRIBERS;
+        chatService.publish(message);
+        while (delivered.sum() < expected) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.chat.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.chat.cluster.StandaloneBackplane;
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.codec.WireFormat;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.model.Message;
+import com.example.chat.moderation.ModerationPipeline;
+import com.example.chat.repository.InMemoryMessageRepository;
+import com.example.chat.scheduling.ChatSchedulers;
+import com.example.chat.search.SearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+
+/**
+ * Time for ChatServiceImpl.publish to store a message and hand it to the broadcast shards of its room.
+ * Delivery to the subscribers runs on the shard threads and is not part of the score, see
+ * BroadcastScalingBenchmark; each subscriber takes the shared JSON frame, as a WebSocket session would.
+ * Search indexing is off, so only the publish path itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatServicePublishBenchmark {
+
+    private static final String ROOM = "general";
+
+    @Param({"1", "100", "10000"})
+    private int subscribers;
+
+    private ChatServiceImpl chatService;
+    private SearchIndex searchIndex;
+    private ChatSchedulers schedulers;
+    private Message message;
+    private final List<Disposable> subscriptions = new ArrayList<>();
+    private final long[] delivered = new long[1];
+
+    @Setup
+    public void setUp() {
+        ChatProperties properties = new ChatProperties();
+        properties.getSearch().setEnabled(false);
+        SubscriberQueues subscriberQueues = new SubscriberQueues(properties);
+        ChatFrameCodec codec = new ChatFrameCodec(new ObjectMapper(), new FrameCompressor(new ChatProperties()));
+        ChatMetrics metrics = new ChatMetrics(new SimpleMeterRegistry(), subscriberQueues, codec);
+        InMemoryMessageRepository repository = new InMemoryMessageRepository(properties);
+        searchIndex = new SearchIndex(properties, repository, metrics);
+        schedulers = new ChatSchedulers(properties);
+        chatService = new ChatServiceImpl(properties, repository, subscriberQueues, codec, metrics,
+                new StandaloneBackplane(properties), searchIndex, schedulers,
+                new ModerationPipeline(properties, List.of(), metrics, schedulers));
+        for (int i = 0; i < subscribers; i++) {
+            subscriptions.add(chatService.messages(ROOM)
+                    .subscribe(encoded -> delivered[0] += encoded.frame(WireFormat.JSON).length));
+        }
+        message = MessageMapper.toEntity(new MessageRequest("alice", "hello, reactive world", ROOM));
+    }
+
+    @TearDown
+    public void tearDown() {
+        subscriptions.forEach(Disposable::dispose);
+        chatService.shutdown();
+        searchIndex.shutdown();
+        schedulers.shutdown();
+    }
+
+    @Benchmark
+    public void publish() {
+        chatService.publish(message);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.chat.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.chat.cluster.StandaloneBackplane;
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.codec.WireFormat;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.model.Message;
+import com.example.chat.moderation.ModerationPipeline;
+import com.example.chat.presence.PresenceRegistry;
+import com.example.chat.repository.InMemoryMessageRepository;
+import com.example.chat.scheduling.ChatSchedulers;
+import com.example.chat.search.SearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Time from ChatServiceImpl.publish until every subscriber of the room has taken the message, with and without
+ * a presence storm in the same room. Subscribers merge chat and presence the way ChatWebSocketHandler does, so a
+ * presence batch being delivered when a message arrives delays it; the storm thread toggles the typing state of
+ * every user as fast as it can for the whole run. Compare the percentiles of the two storm settings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PresenceStormBenchmark {
+
+    private static final String ROOM = "general";
+    private static final int USERS = 1_000;
+
+    @Param({"100"})
+    private int subscribers;
+
+    @Param({"false", "true"})
+    private boolean storm;
+
+    private ChatServiceImpl chatService;
+    private SearchIndex searchIndex;
+    private ChatSchedulers schedulers;
+    private PresenceRegistry presenceRegistry;
+    private Message message;
+    private Thread stormThread;
+    private final List<Disposable> subscriptions = new ArrayList<>();
+    private final AtomicLong delivered = new AtomicLong();
+    private long expected;
+
+    @Setup
+    public void setUp() {
+        ChatProperties properties = new ChatProperties();
+        properties.getSearch().setEnabled(false);
+        SubscriberQueues subscriberQueues = new SubscriberQueues(properties);
+        ChatFrameCodec codec = new ChatFrameCodec(new ObjectMapper(), new FrameCompressor(properties));
+        ChatMetrics metrics = new ChatMetrics(new SimpleMeterRegistry(), subscriberQueues, codec);
+        InMemoryMessageRepository repository = new InMemoryMessageRepository(properties);
+        searchIndex = new SearchIndex(properties, repository, metrics);
+        schedulers = new ChatSchedulers(properties);
+        chatService = new ChatServiceImpl(properties, repository, subscriberQueues, codec, metrics,
+                new StandaloneBackplane(properties), searchIndex, schedulers,
+                new ModerationPipeline(properties, List.of(), metrics, schedulers));
+        presenceRegistry = new PresenceRegistry(properties, codec, metrics, schedulers);
+        String[] users = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = "user-" + i;
+            presenceRegistry.join(ROOM, users[i]);
+        }
+        for (int i = 0; i < subscribers; i++) {
+            // Only chat frames count as delivered, once they are out of the merge
+            Flux<Integer> chat = chatService.messages(ROOM).map(encoded -> encoded.frame(WireFormat.JSON).length > 0 ? 1 : 0);
+            Flux<Integer> presence = presenceRegistry.updates(ROOM, WireFormat.JSON).map(frame -> 0);
+            subscriptions.add(Flux.merge(1, chat, presence).subscribe(delivered::addAndGet));
+        }
+        if (storm) {
+            stormThread = new Thread(() -> {
+                for (long i = 0; !Thread.currentThread().isInterrupted(); i++) {
+                    presenceRegistry.typing(ROOM, users[(int) (i % USERS)], (i / USERS) % 2 == 0);
+                }
+            }, "presence-storm");
+            stormThread.setDaemon(true);
+            stormThread.start();
+        }
+        message = MessageMapper.toEntity(new MessageRequest("alice", "hello, reactive world", ROOM));
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        if (stormThread != null) {
+            stormThread.interrupt();
+            stormThread.join();
+        }
+        subscriptions.forEach(Disposable::dispose);
+        presenceRegistry.shutdown();
+        chatService.shutdown();
+        searchIndex.shutdown();
+        schedulers.shutdown();
+    }
+
+    @Benchmark
+    public void publishAndDeliver() {
+        expected += subscribers;
+        chatService.publish(message);
+        while (delivered.get() < expected) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.chat.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+import com.example.chat.config.ChatConstants;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.ByteBufMono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * End-to-end load generator for a running chat server.
+ *
+ * <p>Opens the scenario's WebSocket and SSE sessions, spread round-robin over its rooms, then publishes at a fixed
+ * rate through POST /chat/send or one WebSocket per room. Each message is stamped with its intended send time, so a
+ * server that falls behind shows up as latency instead of silently slowing the publisher down. After a warm-up, it
+ * measures publish-to-receive latency, throughput and missing deliveries for the scenario's duration, and reads heap
+ * use and drop counters from the server's actuator endpoint.
+ *
+ * <p>Arguments are scenario properties files, run one after another, and {@code key=value} overrides applied to
+ * every scenario. The exit status is 1 if a scenario breaks its {@code max.p99} or {@code max.dropped} limit.
+ */
+public final class ChatLoadGenerator {
+
+    private static final Duration TICK = Duration.ofMillis(10);
+    private static final Duration CONNECT_GRACE = Duration.ofSeconds(30);
+
+    private final LoadScenario scenario;
+    private final LoadStats stats;
+    private final LoopResources loops = LoopResources.create("loadtest", Math.max(2, Runtime.getRuntime().availableProcessors()), true);
+    private final ConnectionProvider publishConnections;
+    private final HttpClient requests;
+    private final HttpClient streams;
+    private final ServerProbe probe;
+    private final Disposable.Composite sessions = Disposables.composite();
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger disconnected = new AtomicInteger();
+    private volatile boolean stopping;
+
+    ChatLoadGenerator(LoadScenario scenario) {
+        this.scenario = scenario;
+        this.stats = new LoadStats(scenario.rooms());
+        this.publishConnections = ConnectionProvider.builder("loadtest-publish")
+                .maxConnections(scenario.publishConcurrency())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.requests = HttpClient.create(publishConnections)
+                .runOn(loops)
+                .baseUrl(scenario.target().toString())
+                .headers(headers -> headers.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON));
+        // Long-lived sessions must not hold pooled connections, or they would starve each other and the publisher
+        this.streams = HttpClient.newConnection().runOn(loops).baseUrl(scenario.target().toString());
+        this.probe = new ServerProbe(requests);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties overrides = new Properties();
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                overrides.setProperty(arg.substring(0, separator).trim(), arg.substring(separator + 1).trim());
+            } else if (!arg.isBlank()) {
+                files.add(Path.of(arg.trim()));
+            }
+        }
+
+        boolean passed = true;
+        for (Properties properties : scenarios(files, overrides)) {
+            LoadScenario scenario = LoadScenario.from(properties);
+            LoadReport report = new ChatLoadGenerator(scenario).run();
+            report.print(System.out);
+            if (scenario.reportFile() != null) {
+                Path file = Path.of(scenario.reportFile().replace("{scenario}", scenario.name()));
+                report.write(file);
+                System.out.println("report       " + file);
+            }
+            passed &= check(scenario, report);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Connects, publishes through warm-up and measurement, drains and reports.
+     */
+    LoadReport run() throws InterruptedException {
+        System.out.printf("%s: %d WebSocket and %d SSE clients in %d rooms, %.0f msg/s via %s for %s after %s warm-up%n",
+                scenario.name(), scenario.webSocketClients(), scenario.sseClients(), scenario.rooms(),
+                scenario.publishRate(), scenario.publishVia(), scenario.duration(), scenario.warmup());
+        Scheduler publisher = Schedulers.newSingle("loadtest-publisher");
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(
+                runnable -> new Thread(runnable, "loadtest-sampler"));
+        try {
+            LoadReport.ServerSample initial = LoadReport.ServerSample.read(probe);
+            connectAll();
+            System.out.printf("connected %d sessions, %d failed%n", connected.get(), failed.get());
+
+            List<Sinks.Many<String>> sockets = scenario.publishVia() == LoadScenario.PublishVia.WEBSOCKET
+                    ? connectPublishers()
+                    : List.of();
+            long startNanos = System.nanoTime();
+            AtomicLong sequence = new AtomicLong();
+            Disposable publishing = Flux.interval(Duration.ZERO, TICK, publisher)
+                    .subscribe(tick -> publishDue(startNanos, sequence, sockets));
+            sessions.add(publishing);
+
+            Thread.sleep(scenario.warmup().toMillis());
+            LoadReport.ServerSample before = LoadReport.ServerSample.read(probe);
+            DoubleAccumulator heapPeak = new DoubleAccumulator(ChatLoadGenerator::maxKnown, before.heapUsed());
+            sampler.scheduleAtFixedRate(() -> heapPeak.accumulate(probe.heapUsed()), 1, 1, TimeUnit.SECONDS);
+            long windowStart = System.nanoTime();
+            stats.startWindow(windowStart);
+
+            Thread.sleep(scenario.duration().toMillis());
+            long windowEnd = System.nanoTime();
+            stats.endWindow(windowEnd);
+            publishing.dispose();
+
+            Thread.sleep(scenario.drain().toMillis());
+            sampler.shutdownNow();
+            LoadReport.ServerSample after = LoadReport.ServerSample.read(probe);
+            heapPeak.accumulate(after.heapUsed());
+            stopping = true;
+            return LoadReport.of(scenario, stats, connected.get(), failed.get(), disconnected.get(),
+                    (windowEnd - windowStart) / 1e9, initial, before, after, heapPeak.get());
+        } finally {
+            stopping = true;
+            sampler.shutdownNow();
+            sessions.dispose();
+            publisher.dispose();
+            publishConnections.disposeLater().block(Duration.ofSeconds(10));
+            loops.disposeLater().block(Duration.ofSeconds(10));
+        }
+    }
+
+    private void connectAll() throws InterruptedException {
+        int total = scenario.webSocketClients() + scenario.sseClients();
+        CountDownLatch opened = new CountDownLatch(total);
+        Flux<Integer> clients = Flux.range(0, total);
+        if (scenario.connectRate() > 0) {
+            Duration interval = Duration.ofNanos((long) (TimeUnit.SECONDS.toNanos(1) / scenario.connectRate()));
+            clients = clients.delayElements(interval);
+        }
+        sessions.add(clients.subscribe(client -> sessions.add(client < scenario.webSocketClients()
+                ? receiveWebSocket(client, opened)
+                : receiveSse(client - scenario.webSocketClients(), opened))));
+        long waitMillis = (long) (scenario.connectRate() > 0 ? total * 1000 / scenario.connectRate() : 0)
+                + CONNECT_GRACE.toMillis();
+        if (!opened.await(waitMillis, TimeUnit.MILLISECONDS)) {
+            System.out.printf("gave up waiting for %d sessions to connect%n", opened.getCount());
+        }
+    }
+
+    private Disposable receiveWebSocket(int client, CountDownLatch opened) {
+        AtomicBoolean counted = new AtomicBoolean();
+        return streams.websocket(WebsocketClientSpec.builder().build())
+                .uri(ChatConstants.WEBSOCKET_PATH + "?" + ChatConstants.ROOM_PARAM + "=" + scenario.room(client))
+                .handle((inbound, outbound) -> {
+                    opened(counted, opened);
+                    return inbound.receive().asString().doOnNext(stats::received);
+                })
+                .subscribe(null, error -> closed(counted, opened), () -> closed(counted, opened));
+    }
+
+    private Disposable receiveSse(int client, CountDownLatch opened) {
+        AtomicBoolean counted = new AtomicBoolean();
+        StringBuilder pending = new StringBuilder();
+        return streams
+                .headers(headers -> headers.set(HttpHeaderNames.ACCEPT, "text/event-stream"))
+                .get()
+                .uri(ChatConstants.CHAT_BASE_PATH + ChatConstants.STREAM_MESSAGES_PATH
+                        + "?" + ChatConstants.ROOM_PARAM + "=" + scenario.room(client))
+                .response((response, content) -> {
+                    if (response.status().code() != 200) {
+                        return Mono.error(new IllegalStateException("stream rejected with " + response.status()));
+                    }
+                    opened(counted, opened);
+                    // Events may be split across chunks; only complete lines are scanned for markers
+                    return content.asString().doOnNext(chunk -> {
+                        pending.append(chunk);
+                        int end = pending.lastIndexOf("\n");
+                        if (end >= 0) {
+                            stats.received(pending.subSequence(0, end));
+                            pending.delete(0, end + 1);
+                        }
+                    });
+                })
+                .subscribe(null, error -> closed(counted, opened), () -> closed(counted, opened));
+    }
+
+    private void opened(AtomicBoolean counted, CountDownLatch opened) {
+        if (counted.compareAndSet(false, true)) {
+            connected.incrementAndGet();
+            opened.countDown();
+        }
+    }
+
+    private void closed(AtomicBoolean counted, CountDownLatch opened) {
+        if (counted.compareAndSet(false, true)) {
+            failed.incrementAndGet();
+            opened.countDown();
+        } else if (!stopping) {
+            disconnected.incrementAndGet();
+        }
+    }
+
+    /**
+     * Opens one publishing WebSocket per room. They receive their room's broadcast like any session, but only
+     * error frames are looked at; each one stands for a rejected message of that room. Once a socket is closed,
+     * or could not be opened, the messages of its room count as failed.
+     */
+    private List<Sinks.Many<String>> connectPublishers() throws InterruptedException {
+        List<Sinks.Many<String>> sockets = new ArrayList<>(scenario.rooms());
+        CountDownLatch opened = new CountDownLatch(scenario.rooms());
+        for (int room = 0; room < scenario.rooms(); room++) {
+            int index = room;
+            AtomicBoolean counted = new AtomicBoolean();
+            Sinks.Many<String> frames = Sinks.many().unicast().onBackpressureBuffer();
+            sockets.add(frames);
+            sessions.add(streams.websocket(WebsocketClientSpec.builder().build())
+                    .uri(ChatConstants.WEBSOCKET_PATH + "?" + ChatConstants.ROOM_PARAM + "=" + scenario.room(room))
+                    .handle((inbound, outbound) -> {
+                        counted.set(true);
+                        opened.countDown();
+                        Mono<Void> errors = inbound.receive().asString()
+                                .filter(frame -> frame.startsWith("{\"error\""))
+                                .doOnNext(frame -> stats.rejectedUnattributed(index))
+                                .then();
+                        return Mono.when(outbound.sendString(frames.asFlux()), errors);
+                    })
+                    .subscribe(null, error -> {
+                        System.out.println("publishing socket failed: " + error);
+                        if (counted.compareAndSet(false, true)) {
+                            opened.countDown();
+                        }
+                        // Later messages for the room fail to emit and are counted as failed publishes
+                        frames.tryEmitComplete();
+                    }, frames::tryEmitComplete));
+        }
+        if (!opened.await(CONNECT_GRACE.toMillis(), TimeUnit.MILLISECONDS)) {
+            System.out.printf("gave up waiting for %d publishing sockets%n", opened.getCount());
+        }
+        return sockets;
+    }
+
+    /**
+     * Publishes every message whose intended send time has passed, so the rate holds whatever the tick jitter.
+     */
+    private void publishDue(long startNanos, AtomicLong sequence, List<Sinks.Many<String>> sockets) {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / scenario.publishRate();
+        long now = System.nanoTime();
+        long due = (long) ((now - startNanos) / intervalNanos);
+        for (long next = sequence.get(); next <= due; next = sequence.incrementAndGet()) {
+            long sentNanos = startNanos + (long) (next * intervalNanos);
+            int room = (int) (next % scenario.rooms());
+            String sender = "load-" + (next % scenario.senders());
+            String content = stats.content(next, sentNanos);
+            if (sockets.isEmpty()) {
+                publishHttp(room, sender, content, sentNanos);
+            } else {
+                Sinks.EmitResult result = sockets.get(room).tryEmitNext(
+                        "{\"sender\":\"" + sender + "\",\"content\":\"" + content + "\"}");
+                if (result.isSuccess()) {
+                    stats.published(room, sentNanos, true);
+                } else {
+                    stats.failed(sentNanos);
+                }
+            }
+        }
+    }
+
+    private void publishHttp(int room, String sender, String content, long sentNanos) {
+        String body = "{\"sender\":\"" + sender + "\",\"content\":\"" + content + "\",\"room\":\"" + scenario.room(room) + "\"}";
+        requests.post()
+                .uri(ChatConstants.CHAT_BASE_PATH + ChatConstants.SEND_MESSAGE_PATH)
+                .send(ByteBufMono.fromString(Mono.just(body)))
+                .response()
+                .subscribe(
+                        response -> stats.published(room, sentNanos, response.status().code() / 100 == 2),
+                        error -> stats.failed(sentNanos));
+    }
+
+    private static List<Properties> scenarios(List<Path> files, Properties overrides) throws IOException {
+        List<Properties> scenarios = new ArrayList<>();
+        if (files.isEmpty()) {
+            scenarios.add(overrides);
+            return scenarios;
+        }
+        for (Path file : files) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+            String fileName = file.getFileName().toString();
+            properties.putIfAbsent("name", fileName.replaceFirst("\\.properties$", ""));
+            properties.putAll(overrides);
+            scenarios.add(properties);
+        }
+        return scenarios;
+    }
+
+    private static double maxKnown(double left, double right) {
+        return Double.isNaN(left) ? right : Double.isNaN(right) ? left : Math.max(left, right);
+    }
+
+    private static boolean check(LoadScenario scenario, LoadReport report) {
+        boolean passed = true;
+        if (scenario.maxP99() != null && report.latencyP99() > scenario.maxP99().toNanos() / 1_000) {
+            System.out.printf("FAILED       p99 %d µs is above %s%n", report.latencyP99(), scenario.maxP99());
+            passed = false;
+        }
+        if (scenario.maxDropped() != null && report.expected() > 0
+                && (double) report.dropped() / report.expected() > scenario.maxDropped()) {
+            System.out.printf("FAILED       %d of %d deliveries dropped, above %s%n",
+                    report.dropped(), report.expected(), scenario.maxDropped());
+            passed = false;
+        }
+        if (report.connectedClients() == 0) {
+            System.out.println("FAILED       no client connected");
+            passed = false;
+        }
+        return passed;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.chat.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * The results of one run: what was measured on the client and what the server reported.
+ * Latencies are in microseconds, rates per second and memory in bytes; server figures are NaN
+ * when the actuator endpoint could not be read. Subscriber drops are counted over the measurement window
+ * and drain, rejected connections over the whole run.
+ */
+record LoadReport(
+        String scenario,
+        int connectedClients,
+        int failedConnections,
+        int disconnectedClients,
+        double durationSeconds,
+        long published,
+        long accepted,
+        long rejected,
+        long failed,
+        long expected,
+        long received,
+        long dropped,
+        double publishRate,
+        double deliveryRate,
+        long latencyP50,
+        long latencyP99,
+        long latencyP999,
+        long latencyMax,
+        double serverHeapPeak,
+        double serverHeapEnd,
+        double serverSubscriberDrops,
+        double serverRejectedConnections) {
+
+    static LoadReport of(LoadScenario scenario, LoadStats stats, int connected, int failedConnections, int disconnected, double seconds,
+                         ServerSample initial, ServerSample before, ServerSample after, double heapPeak) {
+        Histogram latency = stats.latencyMicros();
+        long expected = stats.expected(scenario);
+        return new LoadReport(
+                scenario.name(),
+                connected,
+                failedConnections,
+                disconnected,
+                seconds,
+                stats.published(),
+                stats.accepted(),
+                stats.rejected(),
+                stats.failed(),
+                expected,
+                stats.received(),
+                Math.max(0, expected - stats.received()),
+                stats.published() / seconds,
+                stats.received() / seconds,
+                latency.getValueAtPercentile(50),
+                latency.getValueAtPercentile(99),
+                latency.getValueAtPercentile(99.9),
+                latency.getMaxValue(),
+                heapPeak,
+                after.heapUsed(),
+                after.subscriberDrops() - before.subscriberDrops(),
+                after.rejectedConnections() - initial.rejectedConnections());
+    }
+
+    void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%n=== %s ===%n", scenario);
+        out.printf(Locale.ROOT, "clients      %d connected, %d failed, %d disconnected early%n",
+                connectedClients, failedConnections, disconnectedClients);
+        out.printf(Locale.ROOT, "published    %d in %.1f s (%.1f msg/s): %d accepted, %d rejected, %d failed%n",
+                published, durationSeconds, publishRate, accepted, rejected, failed);
+        out.printf(Locale.ROOT, "delivered    %d of %d expected (%.1f msg/s), %d dropped (%.3f%%)%n",
+                received, expected, deliveryRate, dropped, expected > 0 ? 100.0 * dropped / expected : 0.0);
+        out.printf(Locale.ROOT, "latency      p50 %s  p99 %s  p99.9 %s  max %s%n",
+                millis(latencyP50), millis(latencyP99), millis(latencyP999), millis(latencyMax));
+        out.printf(Locale.ROOT, "server       heap peak %s, end %s; %s subscriber drops, %s rejected connections%n",
+                megabytes(serverHeapPeak), megabytes(serverHeapEnd),
+                count(serverSubscriberDrops), count(serverRejectedConnections));
+    }
+
+    void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(file.toFile(), this);
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.3f ms", micros / 1000.0);
+    }
+
+    private static String megabytes(double bytes) {
+        return Double.isNaN(bytes) ? "n/a" : String.format(Locale.ROOT, "%.1f MB", bytes / (1024 * 1024));
+    }
+
+    private static String count(double value) {
+        return Double.isNaN(value) ? "n/a" : String.format(Locale.ROOT, "%.0f", value);
+    }
+
+    /**
+     * Server counters read at one point of a run.
+     */
+    record ServerSample(double heapUsed, double subscriberDrops, double rejectedConnections) {
+
+        static ServerSample read(ServerProbe probe) {
+            return new ServerSample(probe.heapUsed(), probe.subscriberDrops(), probe.rejectedConnections());
+        }
+    }
+}
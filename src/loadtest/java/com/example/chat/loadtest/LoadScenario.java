@@ -0,0 +1,102 @@
+package com.example.chat.loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Properties;
+
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * One load-test run, read from a scenario properties file. Every key has a default, so a scenario only
+ * states what it changes; command-line {@code key=value} arguments override the file.
+ *
+ * @param name the name printed in the report
+ * @param target the base URL of the chat server
+ * @param webSocketClients the number of receiving WebSocket sessions
+ * @param sseClients the number of receiving SSE sessions
+ * @param rooms the number of rooms the clients and messages are spread over
+ * @param publishRate the messages published per second, across all rooms
+ * @param publishVia whether messages go through POST /chat/send or a WebSocket
+ * @param publishConcurrency the most HTTP publishes in flight at once
+ * @param senders the number of distinct sender names the messages cycle through
+ * @param connectRate the sessions opened per second while connecting
+ * @param warmup how long to publish before measuring
+ * @param duration how long to measure
+ * @param drain how long to keep receiving after the last measured publish
+ * @param reportFile where to write the JSON report, or null for none; {scenario} is replaced by the name
+ * @param maxP99 the p99 latency above which the run fails, or null for no limit
+ * @param maxDropped the fraction of expected deliveries that may be dropped before the run fails, or null for no limit
+ */
+public record LoadScenario(
+        String name,
+        URI target,
+        int webSocketClients,
+        int sseClients,
+        int rooms,
+        double publishRate,
+        PublishVia publishVia,
+        int publishConcurrency,
+        int senders,
+        double connectRate,
+        Duration warmup,
+        Duration duration,
+        Duration drain,
+        String reportFile,
+        Duration maxP99,
+        Double maxDropped) {
+
+    /**
+     * How a scenario publishes its messages.
+     */
+    public enum PublishVia {
+        /** POST /chat/send, one request per message */
+        HTTP,
+        /** One extra WebSocket session per room, sending a text frame per message */
+        WEBSOCKET
+    }
+
+    public static LoadScenario from(Properties properties) {
+        return new LoadScenario(
+                properties.getProperty("name", "default"),
+                URI.create(properties.getProperty("target", "http://localhost:8080")),
+                Integer.parseInt(properties.getProperty("websocket.clients", "100")),
+                Integer.parseInt(properties.getProperty("sse.clients", "0")),
+                Math.max(1, Integer.parseInt(properties.getProperty("rooms", "1"))),
+                Double.parseDouble(properties.getProperty("publish.rate", "100")),
+                PublishVia.valueOf(properties.getProperty("publish.via", "http").toUpperCase(Locale.ROOT)),
+                Math.max(1, Integer.parseInt(properties.getProperty("publish.concurrency", "256"))),
+                Math.max(1, Integer.parseInt(properties.getProperty("senders", "1000"))),
+                Double.parseDouble(properties.getProperty("connect.rate", "500")),
+                DurationStyle.detectAndParse(properties.getProperty("warmup", "5s")),
+                DurationStyle.detectAndParse(properties.getProperty("duration", "30s")),
+                DurationStyle.detectAndParse(properties.getProperty("drain", "2s")),
+                properties.getProperty("report.file"),
+                properties.containsKey("max.p99") ? DurationStyle.detectAndParse(properties.getProperty("max.p99")) : null,
+                properties.containsKey("max.dropped") ? Double.valueOf(properties.getProperty("max.dropped")) : null);
+    }
+
+    /**
+     * Returns the room a client or message is assigned to.
+     *
+     * @param index the client index or message sequence number
+     * @return the room name
+     */
+    public String room(long index) {
+        return "load-" + (index % rooms);
+    }
+
+    /**
+     * Returns the number of receiving clients, WebSocket and SSE, in a room.
+     *
+     * @param room the room index
+     * @return the clients assigned to it
+     */
+    public long clientsInRoom(int room) {
+        return countInRoom(webSocketClients, room) + countInRoom(sseClients, room);
+    }
+
+    private long countInRoom(int clients, int room) {
+        return clients / rooms + (room < clients % rooms ? 1 : 0);
+    }
+}
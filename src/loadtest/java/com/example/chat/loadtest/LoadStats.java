@@ -0,0 +1,188 @@
+package com.example.chat.loadtest;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Client-side counters and the publish-to-receive latency histogram of one run.
+ *
+ * <p>Every published message carries a marker with the run id, its sequence number and the
+ * {@link System#nanoTime()} it was sent at. Publishers and receivers share this JVM, so a receiver
+ * subtracts that time from its own clock to get the latency. Only messages sent inside the measurement
+ * window are counted, which keeps warm-up and drain out of the figures; messages of other runs or
+ * other clients are ignored.
+ */
+class LoadStats {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String marker = "lt-" + UUID.randomUUID().toString().substring(0, 8) + ":";
+    private final Histogram latencyMicros = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final AtomicLongArray acceptedPerRoom;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder receivedOutsideWindow = new LongAdder();
+    private volatile long windowStartNanos = Long.MAX_VALUE;
+    private volatile long windowEndNanos = Long.MAX_VALUE;
+
+    LoadStats(int rooms) {
+        this.acceptedPerRoom = new AtomicLongArray(rooms);
+    }
+
+    /**
+     * Returns the content of a message, marked for latency measurement.
+     *
+     * @param sequence the message's sequence number
+     * @param sentNanos when it is sent
+     * @return the marked content
+     */
+    String content(long sequence, long sentNanos) {
+        return marker + sequence + ":" + sentNanos;
+    }
+
+    void startWindow(long nanos) {
+        windowStartNanos = nanos;
+    }
+
+    void endWindow(long nanos) {
+        windowEndNanos = nanos;
+    }
+
+    boolean inWindow(long sentNanos) {
+        return sentNanos >= windowStartNanos && sentNanos < windowEndNanos;
+    }
+
+    /**
+     * Records a message handed to the server.
+     *
+     * @param room the room index it was published to
+     * @param sentNanos when it was sent
+     * @param accepted whether the server accepted it
+     */
+    void published(int room, long sentNanos, boolean accepted) {
+        if (!inWindow(sentNanos)) {
+            return;
+        }
+        published.increment();
+        if (accepted) {
+            acceptedPerRoom.incrementAndGet(room);
+        } else {
+            rejected.increment();
+        }
+    }
+
+    /**
+     * Records a publish that got no answer from the server.
+     */
+    void failed(long sentNanos) {
+        if (inWindow(sentNanos)) {
+            published.increment();
+            failed.increment();
+        }
+    }
+
+    /**
+     * Records a publish the server answered with a rejection, without telling which one it was.
+     * Used for WebSocket publishes, whose error frames carry no sequence number.
+     */
+    void rejectedUnattributed(int room) {
+        if (windowStartNanos != Long.MAX_VALUE) {
+            rejected.increment();
+            acceptedPerRoom.decrementAndGet(room);
+        }
+    }
+
+    /**
+     * Records every marked message in a received payload. A payload may hold several messages,
+     * such as an SSE chunk, as long as none of them is cut off.
+     *
+     * @param payload the received text
+     */
+    void received(CharSequence payload) {
+        long now = System.nanoTime();
+        String text = payload.toString();
+        int index = text.indexOf(marker);
+        while (index >= 0) {
+            int position = index + marker.length();
+            int separator = text.indexOf(':', position);
+            long sentNanos = separator > 0 ? parseLong(text, separator + 1) : Long.MIN_VALUE;
+            if (sentNanos != Long.MIN_VALUE) {
+                if (inWindow(sentNanos)) {
+                    received.increment();
+                    latencyMicros.recordValue(Math.min(MAX_LATENCY_MICROS, Math.max(0, (now - sentNanos) / 1_000)));
+                } else {
+                    receivedOutsideWindow.increment();
+                }
+            }
+            index = text.indexOf(marker, position);
+        }
+    }
+
+    /**
+     * Returns how many deliveries the accepted messages should have produced.
+     *
+     * @param scenario the run's scenario, to count the clients per room
+     */
+    long expected(LoadScenario scenario) {
+        long expected = 0;
+        for (int room = 0; room < acceptedPerRoom.length(); room++) {
+            expected += acceptedPerRoom.get(room) * scenario.clientsInRoom(room);
+        }
+        return expected;
+    }
+
+    long accepted() {
+        long accepted = 0;
+        for (int room = 0; room < acceptedPerRoom.length(); room++) {
+            accepted += acceptedPerRoom.get(room);
+        }
+        return accepted;
+    }
+
+    long published() {
+        return published.sum();
+    }
+
+    long rejected() {
+        return rejected.sum();
+    }
+
+    long failed() {
+        return failed.sum();
+    }
+
+    long received() {
+        return received.sum();
+    }
+
+    long receivedOutsideWindow() {
+        return receivedOutsideWindow.sum();
+    }
+
+    Histogram latencyMicros() {
+        return latencyMicros;
+    }
+
+    private static long parseLong(String text, int start) {
+        // nanoTime() may be negative
+        boolean negative = start < text.length() && text.charAt(start) == '-';
+        int digits = negative ? start + 1 : start;
+        long value = 0;
+        int end = digits;
+        while (end < text.length() && Character.isDigit(text.charAt(end))) {
+            value = value * 10 + (text.charAt(end) - '0');
+            end++;
+        }
+        if (end == digits) {
+            return Long.MIN_VALUE;
+        }
+        return negative ? -value : value;
+    }
+}
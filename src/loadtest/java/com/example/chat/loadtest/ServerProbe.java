@@ -0,0 +1,76 @@
+package com.example.chat.loadtest;
+
+import java.time.Duration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * Reads server-side figures from the actuator metrics endpoint of the instance under test.
+ * Every read returns NaN instead of failing, so a server without actuator still gets a client-side report.
+ */
+class ServerProbe {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    ServerProbe(HttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Returns the JVM heap in use, in bytes.
+     */
+    double heapUsed() {
+        return read("jvm.memory.used?tag=area:heap");
+    }
+
+    /**
+     * Returns the messages dropped so far from the queues of slow subscribers.
+     */
+    double subscriberDrops() {
+        return read("chat.subscribers.dropped");
+    }
+
+    /**
+     * Returns the connections refused so far by the session limits.
+     */
+    double rejectedConnections() {
+        return read("chat.sessions.rejected");
+    }
+
+    /**
+     * Returns the sessions currently connected.
+     */
+    double activeSessions() {
+        return read("chat.sessions.active");
+    }
+
+    private double read(String metric) {
+        try {
+            String body = client.get()
+                    .uri("/actuator/metrics/" + metric)
+                    .responseSingle((response, content) -> response.status().code() == 200
+                            ? content.asString()
+                            : Mono.empty())
+                    .block(TIMEOUT);
+            if (body == null) {
+                return Double.NaN;
+            }
+            for (JsonNode measurement : objectMapper.readTree(body).path("measurements")) {
+                String statistic = measurement.path("statistic").asText();
+                if (statistic.equals("VALUE") || statistic.equals("COUNT")) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+            return Double.NaN;
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.chat.cluster;
+
+import java.util.List;
+
+import com.example.chat.model.Message;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * SPI for carrying published messages between the instances of a chat cluster.
+ *
+ * <p>ChatService publishes every message locally first and then hands it to the backplane, which forwards
+ * it to the other nodes; messages from other nodes arrive on {@link #inbound()} and are broadcast locally
+ * without being forwarded again. Delivery between nodes is at most once and may repeat a message, so
+ * receivers drop duplicates by origin node and message id (see {@link PeerSequences}).
+ * Implementations are selected with chat.cluster.type.
+ */
+public interface ChatBackplane {
+
+    /**
+     * @return the id of this node, carried by every message it forwards
+     */
+    String nodeId();
+
+    /**
+     * Forwards a message published on this node to its peers. Must not block.
+     * The message already carries the id this node assigned to it.
+     *
+     * @param message the published message
+     */
+    void forward(Message message);
+
+    /**
+     * Forwards a micro-batch published on this node, in order.
+     *
+     * @param messages the published messages
+     */
+    default void forwardAll(List<Message> messages) {
+        for (Message message : messages) {
+            forward(message);
+        }
+    }
+
+    /**
+     * Messages published on other nodes. An element may be shared with other receivers; messages are immutable,
+     * so a receiver that assigns its own id does so on a copy.
+     *
+     * @return a hot stream of messages from peers, never including this node's own
+     */
+    Flux<ClusterMessage> inbound();
+}
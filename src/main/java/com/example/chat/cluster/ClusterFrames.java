@@ -0,0 +1,78 @@
+package com.example.chat.cluster;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.example.chat.model.Message;
+import com.example.chat.model.Names;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Binary framing of messages exchanged between nodes over TCP.
+ *
+ * <p>Layout: {@code [int length][short origin][long bootId][long id][long timestamp][short room][short sender][int content]},
+ * where the timestamp is in epoch milliseconds, strings are length-prefixed UTF-8 and {@code length} counts
+ * everything after itself. Decoded room and sender names are interned like those of local messages.
+ */
+final class ClusterFrames {
+
+    static final int LENGTH_FIELD_SIZE = 4;
+    static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    private ClusterFrames() {
+    }
+
+    /**
+     * Encodes a frame, length field included. The result is sent unchanged to every peer.
+     */
+    static byte[] encode(String origin, long bootId, Message message) {
+        byte[] originBytes = shortField(origin);
+        byte[] room = shortField(message.getRoom());
+        byte[] sender = shortField(message.getSender());
+        byte[] content = message.getContent().getBytes(StandardCharsets.UTF_8);
+        int length = 2 + originBytes.length + 8 + 8 + 8 + 2 + room.length + 2 + sender.length + 4 + content.length;
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_FIELD_SIZE + length);
+        frame.putInt(length);
+        putShortField(frame, originBytes);
+        frame.putLong(bootId);
+        frame.putLong(message.getId());
+        frame.putLong(message.getTimestamp());
+        putShortField(frame, room);
+        putShortField(frame, sender);
+        frame.putInt(content.length);
+        frame.put(content);
+        return frame.array();
+    }
+
+    /**
+     * Decodes one frame with its length field already stripped.
+     */
+    static ClusterMessage decode(ByteBuf frame) {
+        String origin = readShortString(frame);
+        long bootId = frame.readLong();
+        long id = frame.readLong();
+        long timestamp = frame.readLong();
+        String room = Names.intern(readShortString(frame));
+        String sender = Names.intern(readShortString(frame));
+        String content = frame.readCharSequence(frame.readInt(), StandardCharsets.UTF_8).toString();
+        return new ClusterMessage(origin, bootId, new Message(id, room, sender, content, timestamp));
+    }
+
+    private static byte[] shortField(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Field is too long to forward: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static void putShortField(ByteBuffer frame, byte[] bytes) {
+        frame.putShort((short) bytes.length);
+        frame.put(bytes);
+    }
+
+    private static String readShortString(ByteBuf frame) {
+        return frame.readCharSequence(frame.readUnsignedShort(), StandardCharsets.UTF_8).toString();
+    }
+}
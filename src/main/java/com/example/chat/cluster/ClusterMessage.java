@@ -0,0 +1,13 @@
+package com.example.chat.cluster;
+
+import com.example.chat.model.Message;
+
+/**
+ * A message received from another node: the node it was published on and the message with that node's id.
+ *
+ * @param origin the id of the node that published the message
+ * @param bootId a random id the origin picked when it started, so a restart that begins its ids again is recognized
+ * @param message the message, its id assigned by the origin node
+ */
+public record ClusterMessage(String origin, long bootId, Message message) {
+}
@@ -0,0 +1,62 @@
+package com.example.chat.cluster;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatConstants;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.model.Message;
+import com.example.chat.scheduling.Emissions;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * In-process backplane: every application context in the JVM with the same chat.cluster.name shares one bus.
+ * Lets tests run a cluster of several nodes without any networking.
+ */
+@Component
+@ConditionalOnProperty(name = ChatConstants.CHAT_CLUSTER_TYPE_KEY, havingValue = "loopback")
+@Slf4j
+public class LoopbackBackplane implements ChatBackplane {
+
+    private static final Map<String, Sinks.Many<ClusterMessage>> BUSES = new ConcurrentHashMap<>();
+
+    private final String nodeId;
+    private final long bootId = ThreadLocalRandom.current().nextLong();
+    private final Sinks.Many<ClusterMessage> bus;
+
+    public LoopbackBackplane(ChatProperties chatProperties) {
+        this.nodeId = chatProperties.getCluster().getNodeId();
+        this.bus = BUSES.computeIfAbsent(chatProperties.getCluster().getName(),
+                name -> Sinks.many().multicast().directBestEffort());
+        log.info("Node {} joined loopback cluster {}", nodeId, chatProperties.getCluster().getName());
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void forward(Message message) {
+        ClusterMessage forwarded = new ClusterMessage(nodeId, bootId, message);
+        // Several nodes publish concurrently; retry until the bus accepts the serialized emission
+        Sinks.EmitResult result = Emissions.emitNext(bus, forwarded);
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            log.warn("Loopback bus rejected message {} from node {}: {}", message.getId(), nodeId, result);
+        }
+    }
+
+    @Override
+    public Flux<ClusterMessage> inbound() {
+        // Messages are immutable, so every receiver gets the same instance
+        return bus.asFlux()
+                .filter(received -> !nodeId.equals(received.origin()));
+    }
+}
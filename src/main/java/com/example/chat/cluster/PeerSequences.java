@@ -0,0 +1,82 @@
+package com.example.chat.cluster;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Duplicate detection for messages from other nodes, keyed by origin node and the id the origin assigned.
+ *
+ * <p>Ids from one origin mostly arrive in increasing order, but concurrent publishers on the origin may
+ * forward them slightly out of order. For each origin this keeps the highest id seen and a sliding bit
+ * window of the ids below it; an id older than the window is treated as a duplicate. A message with another boot
+ * id than the last one from its origin comes from a restart of that node, which may number its messages from 1
+ * again, so the window starts over.
+ */
+public final class PeerSequences {
+
+    /** Number of ids remembered below the highest one, per origin. Must be a multiple of 64. */
+    static final int WINDOW = 4096;
+
+    private final Map<String, Window> origins = new ConcurrentHashMap<>();
+
+    /**
+     * Records a message id and tells whether it was seen before.
+     *
+     * @param origin the node that published the message
+     * @param bootId the boot id of the origin when it published the message
+     * @param id the id the origin assigned
+     * @return true the first time an id is seen from an origin since it started
+     */
+    public boolean firstSeen(String origin, long bootId, long id) {
+        return origins.computeIfAbsent(origin, key -> new Window(bootId)).mark(bootId, id);
+    }
+
+    private static final class Window {
+        private final long[] bits = new long[WINDOW / 64];
+        private long bootId;
+        private long highest;
+
+        Window(long bootId) {
+            this.bootId = bootId;
+        }
+
+        synchronized boolean mark(long bootId, long id) {
+            if (bootId != this.bootId) {
+                this.bootId = bootId;
+                Arrays.fill(bits, 0);
+                highest = 0;
+            }
+            if (id > highest) {
+                // Slide the window forward, forgetting the ids that fall out of it
+                long clearFrom = Math.max(highest + 1, id - WINDOW + 1);
+                for (long cleared = clearFrom; cleared < id; cleared++) {
+                    clear(cleared);
+                }
+                highest = id;
+                set(id);
+                return true;
+            }
+            if (id <= highest - WINDOW || isSet(id)) {
+                return false;
+            }
+            set(id);
+            return true;
+        }
+
+        private boolean isSet(long id) {
+            int bit = (int) Math.floorMod(id, (long) WINDOW);
+            return (bits[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        private void set(long id) {
+            int bit = (int) Math.floorMod(id, (long) WINDOW);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+
+        private void clear(long id) {
+            int bit = (int) Math.floorMod(id, (long) WINDOW);
+            bits[bit >>> 6] &= ~(1L << bit);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.chat.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatConstants;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.model.Message;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Backplane of a single, unclustered instance: nothing is forwarded and nothing arrives.
+ */
+@Component
+@ConditionalOnProperty(name = ChatConstants.CHAT_CLUSTER_TYPE_KEY, havingValue = "none", matchIfMissing = true)
+public class StandaloneBackplane implements ChatBackplane {
+
+    private final String nodeId;
+
+    public StandaloneBackplane(ChatProperties chatProperties) {
+        this.nodeId = chatProperties.getCluster().getNodeId();
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void forward(Message message) {
+        // No peers
+    }
+
+    @Override
+    public Flux<ClusterMessage> inbound() {
+        return Flux.never();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.chat.cluster;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatConstants;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.model.Message;
+import com.example.chat.scheduling.Emissions;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.tcp.TcpClient;
+import reactor.netty.tcp.TcpServer;
+import reactor.util.retry.Retry;
+
+/**
+ * Peer-to-peer backplane over Reactor Netty TCP.
+ *
+ * <p>Every node listens on chat.cluster.host:port for messages from its peers and keeps one outbound
+ * connection to each address in chat.cluster.peers, so the peers form a full mesh. A message is framed once
+ * and the same bytes are written to every peer. Each peer has a bounded outbound queue that also holds
+ * messages while the peer is unreachable; connections are re-established with exponential backoff. When a
+ * queue is full, further messages for that peer are dropped, so one slow node cannot stall the publishers.
+ */
+@Component
+@ConditionalOnProperty(name = ChatConstants.CHAT_CLUSTER_TYPE_KEY, havingValue = "tcp")
+@Slf4j
+public class TcpBackplane implements ChatBackplane {
+
+    private static final Duration MIN_BACKOFF = Duration.ofMillis(100);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(5);
+
+    private final String nodeId;
+    private final long bootId = ThreadLocalRandom.current().nextLong();
+    private final Sinks.Many<ClusterMessage> inbound = Sinks.many().multicast().directBestEffort();
+    private final DisposableServer server;
+    private final List<Peer> peers;
+
+    public TcpBackplane(ChatProperties chatProperties) {
+        ChatProperties.Cluster cluster = chatProperties.getCluster();
+        this.nodeId = cluster.getNodeId();
+        this.server = TcpServer.create()
+                .host(cluster.getHost())
+                .port(cluster.getPort())
+                .doOnConnection(connection -> connection.addHandlerLast(new LengthFieldBasedFrameDecoder(
+                        ClusterFrames.MAX_FRAME_SIZE, 0, ClusterFrames.LENGTH_FIELD_SIZE, 0, ClusterFrames.LENGTH_FIELD_SIZE)))
+                .handle((in, out) -> in.receive()
+                        .map(ClusterFrames::decode)
+                        .doOnNext(this::received)
+                        .doOnError(error -> log.warn("Closing peer connection after a bad frame: {}", error.toString()))
+                        .then())
+                .bindNow();
+        this.peers = cluster.getPeers().stream()
+                .map(address -> new Peer(address, cluster.getOutboundBuffer()))
+                .toList();
+        log.info("Node {} listening for peers on {}:{}, forwarding to {}", nodeId, cluster.getHost(), server.port(), cluster.getPeers());
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void forward(Message message) {
+        if (peers.isEmpty()) {
+            return;
+        }
+        byte[] frame = ClusterFrames.encode(nodeId, bootId, message);
+        for (Peer peer : peers) {
+            peer.send(frame, message);
+        }
+    }
+
+    @Override
+    public Flux<ClusterMessage> inbound() {
+        return inbound.asFlux();
+    }
+
+    @PreDestroy
+    void close() {
+        peers.forEach(Peer::close);
+        server.disposeNow();
+        log.info("Node {} left the cluster", nodeId);
+    }
+
+    private void received(ClusterMessage message) {
+        // Connections from different peers run on different event loops
+        Emissions.emitNext(inbound, message);
+    }
+
+    /**
+     * Outbound link to one peer: a bounded queue drained by a connection that reconnects until the node stops.
+     */
+    private static final class Peer {
+        private final String address;
+        private final Sinks.Many<byte[]> queue;
+        private final Disposable link;
+
+        Peer(String address, int bufferSize) {
+            int separator = address.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Peer address must be host:port: " + address);
+            }
+            String host = address.substring(0, separator);
+            int port = Integer.parseInt(address.substring(separator + 1));
+            this.address = address;
+            // Not cancelled when a connection drops, so messages queue up until the next connection
+            this.queue = Sinks.many().multicast().onBackpressureBuffer(bufferSize, false);
+            this.link = TcpClient.create()
+                    .host(host)
+                    .port(port)
+                    .handle((in, out) -> out.send(queue.asFlux().map(Unpooled::wrappedBuffer)))
+                    .connect()
+                    .doOnNext(connection -> log.info("Connected to peer {}", address))
+                    .flatMap(Connection::onDispose)
+                    .doOnSuccess(done -> log.info("Connection to peer {} closed", address))
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_BACKOFF)
+                            .maxBackoff(MAX_BACKOFF)
+                            .doBeforeRetry(signal -> log.debug("Reconnecting to peer {}: {}", address, signal.failure().toString())))
+                    .repeatWhen(closed -> closed.delayElements(MIN_BACKOFF))
+                    .subscribe();
+        }
+
+        void send(byte[] frame, Message message) {
+            Sinks.EmitResult result = Emissions.emitNext(queue, frame);
+            if (result.isFailure()) {
+                log.warn("Dropped message {} for peer {}: {}", message.getId(), address, result);
+            }
+        }
+
+        void close() {
+            link.dispose();
+            queue.tryEmitComplete();
+        }
+    }
+}
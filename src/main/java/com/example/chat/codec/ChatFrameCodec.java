@@ -0,0 +1,211 @@
+package com.example.chat.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.model.Message;
+import com.example.chat.presence.PresenceChange;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Streaming codec for WebSocket chat frames, in any of the negotiable {@link WireFormat}s.
+ *
+ * <p>Inbound frames are parsed token by token straight from the frame's DataBuffer into a MessageRequest,
+ * without building a String or a JsonNode tree. Outbound messages are written with a JsonGenerator into a
+ * per-thread, reused output buffer; broadcasts share the result through {@link EncodedMessage}. JSON uses the factory of the application's ObjectMapper, so escaping and features match
+ * the REST API. Both formats carry the MessageResponse fields; CBOR sends the timestamp as epoch milliseconds.
+ */
+@Component
+public class ChatFrameCodec {
+
+    private static final ThreadLocal<ByteArrayBuilder> OUTPUT = ThreadLocal.withInitial(() -> new ByteArrayBuilder(512));
+
+    private final Map<WireFormat, JsonFactory> factories = new EnumMap<>(WireFormat.class);
+    private final Map<WireFormat, Map<FrameError, byte[]>> errorFrames = new EnumMap<>(WireFormat.class);
+    private final Map<WireFormat, LongAdder> encodeCounts = new EnumMap<>(WireFormat.class);
+    private final FrameCompressor compressor;
+
+    public ChatFrameCodec(ObjectMapper objectMapper, FrameCompressor compressor) {
+        this.compressor = compressor;
+        factories.put(WireFormat.JSON, objectMapper.getFactory());
+        factories.put(WireFormat.CBOR, new CBORFactory());
+        for (WireFormat format : WireFormat.values()) {
+            encodeCounts.put(format, new LongAdder());
+            Map<FrameError, byte[]> frames = new EnumMap<>(FrameError.class);
+            for (FrameError error : FrameError.values()) {
+                frames.put(error, encodeError(error, format));
+            }
+            errorFrames.put(format, frames);
+        }
+    }
+
+    /**
+     * Returns the compressor that {@link EncodedMessage} deflates large encodings with.
+     */
+    public FrameCompressor compressor() {
+        return compressor;
+    }
+
+    /**
+     * Decodes an inbound frame. The buffer is read synchronously and not retained.
+     *
+     * @param payload the frame payload
+     * @param format the session's wire format
+     * @param room the room of the session that sent the frame
+     * @return the chat message or typing indicator, or null if the frame is neither an object with a sender
+     *         and content nor one with a boolean typing field
+     * @throws IOException if the payload is malformed
+     */
+    public InboundFrame decodeFrame(DataBuffer payload, WireFormat format, String room) throws IOException {
+        try (InputStream input = payload.asInputStream(); JsonParser parser = factories.get(format).createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String sender = null;
+            String content = null;
+            Boolean typing = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value.isStructStart()) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if ("sender".equals(field)) {
+                    sender = parser.getValueAsString();
+                } else if ("content".equals(field)) {
+                    content = parser.getValueAsString();
+                } else if ("typing".equals(field) && value.isBoolean()) {
+                    typing = parser.getBooleanValue();
+                }
+            }
+            if (sender != null && content != null) {
+                return new InboundFrame.Chat(new MessageRequest(sender, content, room));
+            }
+            return typing != null ? new InboundFrame.Typing(typing) : null;
+        }
+    }
+
+    /**
+     * Decodes an inbound chat message. The buffer is read synchronously and not retained.
+     *
+     * @param payload the frame payload
+     * @param format the session's wire format
+     * @param room the room of the session that sent the frame
+     * @return the request, or null if the frame is not an object with a sender and content
+     * @throws IOException if the payload is malformed
+     */
+    public MessageRequest decodeRequest(DataBuffer payload, WireFormat format, String room) throws IOException {
+        return decodeFrame(payload, format, room) instanceof InboundFrame.Chat chat ? chat.request() : null;
+    }
+
+    /**
+     * Encodes a message in the MessageResponse layout.
+     *
+     * @param message the message to encode
+     * @param format the wire format
+     * @return the encoded frame
+     * @throws IOException if the generator fails
+     */
+    public byte[] encodeMessage(Message message, WireFormat format) throws IOException {
+        encodeCounts.get(format).increment();
+        ByteArrayBuilder output = OUTPUT.get();
+        output.reset();
+        try (JsonGenerator generator = factories.get(format).createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeNumberField("id", message.getId());
+            generator.writeStringField("room", message.getRoom());
+            generator.writeStringField("sender", message.getSender());
+            generator.writeStringField("content", message.getContent());
+            if (format == WireFormat.CBOR) {
+                generator.writeNumberField("timestamp", message.getTimestamp());
+            } else {
+                generator.writeStringField("timestamp",
+                        DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(MessageMapper.toLocalDateTime(message.getTimestamp())));
+            }
+            generator.writeEndObject();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Encodes presence changes as {@code {"room": ..., "presence": [{"user": ..., "state": ...}], "snapshot": ...}}.
+     *
+     * @param room the room
+     * @param changes the latest state of each user
+     * @param snapshot whether the changes replace everything the client knew about the room
+     * @param format the wire format
+     * @return the encoded frame
+     * @throws IOException if the generator fails
+     */
+    public byte[] encodePresence(String room, List<PresenceChange> changes, boolean snapshot, WireFormat format) throws IOException {
+        ByteArrayBuilder output = OUTPUT.get();
+        output.reset();
+        try (JsonGenerator generator = factories.get(format).createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeStringField("room", room);
+            generator.writeArrayFieldStart("presence");
+            for (PresenceChange change : changes) {
+                generator.writeStartObject();
+                generator.writeStringField("user", change.user());
+                generator.writeStringField("state", change.state().tag());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeBooleanField("snapshot", snapshot);
+            generator.writeEndObject();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Returns how many messages have been encoded in a format since startup.
+     * With broadcasts sharing an {@link EncodedMessage}, this grows with the number of messages, not subscribers.
+     *
+     * @param format the wire format
+     * @return the number of encodings
+     */
+    public long encodeCount(WireFormat format) {
+        return encodeCounts.get(format).sum();
+    }
+
+    /**
+     * Returns the precomputed payload of an error reply. The array is shared and must not be modified.
+     *
+     * @param error the error to report
+     * @param format the wire format
+     * @return the encoded error frame
+     */
+    public byte[] errorFrame(FrameError error, WireFormat format) {
+        return errorFrames.get(format).get(error);
+    }
+
+    private byte[] encodeError(FrameError error, WireFormat format) {
+        ByteArrayBuilder output = new ByteArrayBuilder(64);
+        try (JsonGenerator generator = factories.get(format).createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeStringField("error", error.message());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.chat.codec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.example.chat.model.Message;
+
+/**
+ * A published message together with its wire encodings, shared by every subscriber of the broadcast.
+ *
+ * <p>Each encoding is produced by the first subscriber that asks for it and cached, so a message is
+ * serialized at most once per format however many sessions and streams receive it. The cached arrays
+ * are shared and must not be modified; callers wrap them in a DataBuffer per connection.
+ * The compressed variants are produced the same way, so a message is also deflated at most once per variant.
+ */
+public final class EncodedMessage {
+
+    private static final byte[] SSE_ID = "id:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SSE_DATA = "\ndata:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SSE_END = "\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NOT_COMPRESSED = new byte[0];
+
+    private final Message message;
+    private final ChatFrameCodec codec;
+    private final long publishedNanos;
+    private final AtomicReferenceArray<byte[]> frames = new AtomicReferenceArray<>(WireFormat.values().length);
+
+    private volatile byte[] sseEvent;
+    private volatile byte[] deflatedFrame;
+    private volatile byte[] sseEventBlock;
+
+    /**
+     * Wraps a message replayed from history.
+     */
+    public EncodedMessage(Message message, ChatFrameCodec codec) {
+        this(message, codec, 0);
+    }
+
+    /**
+     * Wraps a live message.
+     *
+     * @param publishedNanos the {@link System#nanoTime()} at which the message was published
+     */
+    public EncodedMessage(Message message, ChatFrameCodec codec, long publishedNanos) {
+        this.message = message;
+        this.codec = codec;
+        this.publishedNanos = publishedNanos;
+    }
+
+    public Message message() {
+        return message;
+    }
+
+    public long id() {
+        return message.getId();
+    }
+
+    /**
+     * Returns when the message was published, for delivery latency.
+     *
+     * @return the publish {@link System#nanoTime()}, or 0 for messages replayed from history
+     */
+    public long publishedNanos() {
+        return publishedNanos;
+    }
+
+    /**
+     * Returns the message encoded as a WebSocket frame payload.
+     *
+     * @param format the wire format
+     * @return the shared encoded payload
+     */
+    public byte[] frame(WireFormat format) {
+        int slot = format.ordinal();
+        byte[] frame = frames.get(slot);
+        if (frame == null) {
+            // Locked, unlike the SSE event below, so that the expensive encoding itself never runs twice
+            synchronized (this) {
+                frame = frames.get(slot);
+                if (frame == null) {
+                    frame = encode(format);
+                    frames.set(slot, frame);
+                }
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Returns the message as a complete Server-Sent Event, {@code id:<id>\ndata:<json>\n\n},
+     * built around the cached JSON frame.
+     *
+     * @return the shared encoded event
+     */
+    public byte[] sseEvent() {
+        byte[] event = sseEvent;
+        if (event == null) {
+            byte[] data = frame(WireFormat.JSON);
+            byte[] id = Long.toString(message.getId()).getBytes(StandardCharsets.US_ASCII);
+            event = new byte[SSE_ID.length + id.length + SSE_DATA.length + data.length + SSE_END.length];
+            int position = 0;
+            for (byte[] part : new byte[][] {SSE_ID, id, SSE_DATA, data, SSE_END}) {
+                System.arraycopy(part, 0, event, position, part.length);
+                position += part.length;
+            }
+            // Building the event twice in a race is harmless; the JSON encoding underneath happens once
+            sseEvent = event;
+        }
+        return event;
+    }
+
+    /**
+     * Returns the JSON frame as a complete raw deflate stream, for sessions that negotiated
+     * {@link WireFormat#JSON_DEFLATE_SUBPROTOCOL}.
+     *
+     * @return the shared compressed frame, or null if the frame is too small to be worth compressing
+     */
+    public byte[] deflatedFrame() {
+        byte[] frame = deflatedFrame;
+        if (frame == null) {
+            synchronized (this) {
+                frame = deflatedFrame;
+                if (frame == null) {
+                    frame = codec.compressor().deflate(frame(WireFormat.JSON));
+                    frame = frame != null ? frame : NOT_COMPRESSED;
+                    deflatedFrame = frame;
+                }
+            }
+        }
+        return frame != NOT_COMPRESSED ? frame : null;
+    }
+
+    /**
+     * Returns the Server-Sent Event as deflate blocks to append to a gzip response body.
+     *
+     * @return the shared blocks, stored uncompressed if the event is too small to be worth compressing
+     * @see GzipStream
+     */
+    public byte[] sseEventBlock() {
+        byte[] block = sseEventBlock;
+        if (block == null) {
+            synchronized (this) {
+                block = sseEventBlock;
+                if (block == null) {
+                    block = codec.compressor().deflateBlock(sseEvent());
+                    sseEventBlock = block;
+                }
+            }
+        }
+        return block;
+    }
+
+    private byte[] encode(WireFormat format) {
+        try {
+            return codec.encodeMessage(message, format);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode message " + message.getId(), e);
+        }
+    }
+}
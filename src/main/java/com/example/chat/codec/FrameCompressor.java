@@ -0,0 +1,175 @@
+package com.example.chat.codec;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatProperties;
+
+/**
+ * Deflates encoded messages once, for every connection that receives them compressed.
+ *
+ * <p>Each message is compressed by a freshly reset Deflater, with no window carried over from earlier messages,
+ * so the output does not depend on what a connection was sent before and {@link EncodedMessage} can share it
+ * across sessions. That costs some ratio against a per-connection compressor with context takeover, in exchange
+ * for one compression per message instead of one per connection. Messages under the threshold are not worth
+ * the CPU and are left as they are.
+ *
+ * <p>Deflaters hold native memory, so they are pooled rather than created per call or kept per thread.
+ */
+@Component
+public class FrameCompressor {
+
+    private static final int MAX_STORED_BLOCK = 0xFFFF;
+
+    private final int level;
+    private final int threshold;
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final LongAdder compressions = new LongAdder();
+    private final LongAdder compressionNanos = new LongAdder();
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder outputBytes = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    public FrameCompressor(ChatProperties chatProperties) {
+        ChatProperties.Compression compression = chatProperties.getCompression();
+        if (compression.getLevel() < Deflater.BEST_SPEED || compression.getLevel() > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("chat.compression.level must be between 1 and 9");
+        }
+        this.level = compression.getLevel();
+        this.threshold = (int) Math.min(Integer.MAX_VALUE, compression.getThreshold().toBytes());
+    }
+
+    /**
+     * Compresses a payload into a complete raw deflate stream (RFC 1951, no zlib or gzip wrapper),
+     * which any inflater in nowrap mode decodes on its own.
+     *
+     * @param data the payload
+     * @return the compressed payload, or null if the payload is under the threshold or does not get smaller
+     */
+    public byte[] deflate(byte[] data) {
+        if (data.length < threshold) {
+            skipped.increment();
+            return null;
+        }
+        long start = System.nanoTime();
+        Deflater deflater = acquire();
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] output = new byte[data.length];
+            int length = 0;
+            while (!deflater.finished() && length < output.length) {
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            return deflater.finished() ? record(start, data.length, Arrays.copyOf(output, length)) : incompressible(start);
+        } finally {
+            release(deflater);
+        }
+    }
+
+    /**
+     * Compresses a payload into deflate blocks that end on a byte boundary without ending the stream,
+     * so they can be appended to any deflate stream after a flush point, such as a gzip response body
+     * that is written one event at a time. Payloads under the threshold, or that do not get smaller,
+     * become stored blocks.
+     *
+     * @param data the payload
+     * @return the blocks, never null
+     */
+    public byte[] deflateBlock(byte[] data) {
+        if (data.length >= threshold) {
+            long start = System.nanoTime();
+            Deflater deflater = acquire();
+            try {
+                deflater.setInput(data);
+                byte[] output = new byte[data.length];
+                // A sync flush that fills the buffer may have more to write; only a shorter one is complete
+                int length = deflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH);
+                if (length < output.length) {
+                    return record(start, data.length, Arrays.copyOf(output, length));
+                }
+                incompressible(start);
+            } finally {
+                release(deflater);
+            }
+        } else {
+            skipped.increment();
+        }
+        return storedBlocks(data);
+    }
+
+    /**
+     * Wraps a payload in uncompressed deflate blocks, five bytes of overhead per 64 KiB.
+     *
+     * @param data the payload
+     * @return non-final stored blocks holding the payload
+     */
+    public static byte[] storedBlocks(byte[] data) {
+        int blocks = Math.max(1, (data.length + MAX_STORED_BLOCK - 1) / MAX_STORED_BLOCK);
+        byte[] output = new byte[data.length + blocks * 5];
+        int position = 0;
+        for (int offset = 0, block = 0; block < blocks; block++) {
+            int length = Math.min(MAX_STORED_BLOCK, data.length - offset);
+            // BFINAL 0, BTYPE 00, padded to the byte boundary, then LEN and its complement, little-endian
+            output[position++] = 0;
+            output[position++] = (byte) length;
+            output[position++] = (byte) (length >>> 8);
+            output[position++] = (byte) ~length;
+            output[position++] = (byte) (~length >>> 8);
+            System.arraycopy(data, offset, output, position, length);
+            position += length;
+            offset += length;
+        }
+        return output;
+    }
+
+    public long compressions() {
+        return compressions.sum();
+    }
+
+    public long compressionNanos() {
+        return compressionNanos.sum();
+    }
+
+    public long inputBytes() {
+        return inputBytes.sum();
+    }
+
+    public long outputBytes() {
+        return outputBytes.sum();
+    }
+
+    public long skipped() {
+        return skipped.sum();
+    }
+
+    private byte[] record(long start, int input, byte[] output) {
+        compressionNanos.add(System.nanoTime() - start);
+        compressions.increment();
+        inputBytes.add(input);
+        outputBytes.add(output.length);
+        return output;
+    }
+
+    private byte[] incompressible(long start) {
+        compressionNanos.add(System.nanoTime() - start);
+        compressions.increment();
+        skipped.increment();
+        return null;
+    }
+
+    private Deflater acquire() {
+        Deflater deflater = deflaters.poll();
+        return deflater != null ? deflater : new Deflater(level, true);
+    }
+
+    private void release(Deflater deflater) {
+        deflater.reset();
+        deflaters.offer(deflater);
+    }
+}
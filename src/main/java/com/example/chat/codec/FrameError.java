@@ -0,0 +1,24 @@
+package com.example.chat.codec;
+
+import com.example.chat.config.ChatConstants;
+
+/**
+ * Error replies sent back to a WebSocket client as {@code {"error": message}}.
+ * ChatFrameCodec serializes each of them once per wire format.
+ */
+public enum FrameError {
+    INVALID_FORMAT("Invalid message format"),
+    INVALID_JSON("Invalid JSON format"),
+    INVALID_REQUEST(ChatConstants.INVALID_REQUEST_MESSAGE),
+    RATE_LIMITED(ChatConstants.RATE_LIMITED_MESSAGE);
+
+    private final String message;
+
+    FrameError(String message) {
+        this.message = message;
+    }
+
+    public String message() {
+        return message;
+    }
+}
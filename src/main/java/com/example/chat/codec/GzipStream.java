@@ -0,0 +1,90 @@
+package com.example.chat.codec;
+
+import java.util.zip.CRC32;
+
+/**
+ * The per-connection framing of a gzip response body (RFC 1952) whose deflate blocks come from
+ * {@link FrameCompressor#deflateBlock(byte[])} and are shared between connections.
+ *
+ * <p>The blocks need no state from the connection, but the trailer checksums everything the connection was sent,
+ * so each connection keeps a running CRC of the uncompressed bytes. That is all the per-connection work left.
+ * Not thread-safe; a response body is written by one subscriber at a time.
+ */
+public final class GzipStream {
+
+    private static final byte[] HEADER = {
+            0x1f, (byte) 0x8b, // magic
+            8,                 // deflate
+            0,                 // no flags
+            0, 0, 0, 0,        // no modification time
+            0,                 // no extra flags
+            (byte) 0xff        // unknown operating system
+    };
+    // An empty final stored block, ending the deflate stream
+    private static final byte[] LAST_BLOCK = {1, 0, 0, (byte) 0xff, (byte) 0xff};
+
+    private final CRC32 crc = new CRC32();
+    private long size;
+
+    /**
+     * Returns the header that starts the response body.
+     */
+    public static byte[] header() {
+        return HEADER.clone();
+    }
+
+    /**
+     * Accounts for data about to be written as deflate blocks.
+     *
+     * @param data the uncompressed data
+     * @param blocks the data's shared deflate blocks
+     * @return the blocks, to write
+     */
+    public byte[] append(byte[] data, byte[] blocks) {
+        crc.update(data);
+        size += data.length;
+        return blocks;
+    }
+
+    /**
+     * Returns the end of the response body: the final deflate block, the CRC and the length.
+     */
+    public byte[] trailer() {
+        byte[] trailer = new byte[LAST_BLOCK.length + 8];
+        System.arraycopy(LAST_BLOCK, 0, trailer, 0, LAST_BLOCK.length);
+        writeIntLe(trailer, LAST_BLOCK.length, crc.getValue());
+        writeIntLe(trailer, LAST_BLOCK.length + 4, size);
+        return trailer;
+    }
+
+    /**
+     * Checks whether an Accept-Encoding header value allows gzip.
+     *
+     * @param acceptEncoding the header values, joined by commas
+     * @return true if gzip is listed without a zero quality
+     */
+    public static boolean accepted(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    if (parts[i].trim().matches("[qQ]=0(\\.0{0,3})?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeIntLe(byte[] target, int offset, long value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >>> 8);
+        target[offset + 2] = (byte) (value >>> 16);
+        target[offset + 3] = (byte) (value >>> 24);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.chat.codec;
+
+import com.example.chat.dto.MessageRequest;
+
+/**
+ * A frame a WebSocket client sent, as decoded by {@link ChatFrameCodec#decodeFrame}.
+ */
+public sealed interface InboundFrame {
+
+    /**
+     * A chat message to publish: {@code {"sender": ..., "content": ...}}.
+     *
+     * @param request the message
+     */
+    record Chat(MessageRequest request) implements InboundFrame {
+    }
+
+    /**
+     * A typing indicator for the session's user: {@code {"typing": true}}.
+     *
+     * @param typing whether the user is typing
+     */
+    record Typing(boolean typing) implements InboundFrame {
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.chat.codec;
+
+import java.util.List;
+
+import org.springframework.web.reactive.socket.WebSocketMessage;
+
+/**
+ * Encodings a WebSocket session can negotiate through the Sec-WebSocket-Protocol header.
+ * Sessions that request no subprotocol use JSON. Sessions that request {@link #JSON_DEFLATE_SUBPROTOCOL} use JSON
+ * too, but receive large messages as binary frames holding the JSON deflated.
+ */
+public enum WireFormat {
+    /** JSON text frames, with ISO-8601 local timestamps. */
+    JSON("chat.json", WebSocketMessage.Type.TEXT),
+    /** CBOR binary frames, with epoch-millisecond timestamps. */
+    CBOR("chat.cbor", WebSocketMessage.Type.BINARY);
+
+    /** JSON text frames, with messages over the compression threshold sent as raw deflate (RFC 1951) binary frames. */
+    public static final String JSON_DEFLATE_SUBPROTOCOL = "chat.json.deflate";
+
+    private static final List<String> SUBPROTOCOLS = List.of(JSON.subProtocol, CBOR.subProtocol);
+    private static final List<String> SUBPROTOCOLS_WITH_DEFLATE =
+            List.of(JSON.subProtocol, CBOR.subProtocol, JSON_DEFLATE_SUBPROTOCOL);
+
+    private final String subProtocol;
+    private final WebSocketMessage.Type frameType;
+
+    WireFormat(String subProtocol, WebSocketMessage.Type frameType) {
+        this.subProtocol = subProtocol;
+        this.frameType = frameType;
+    }
+
+    public String subProtocol() {
+        return subProtocol;
+    }
+
+    public WebSocketMessage.Type frameType() {
+        return frameType;
+    }
+
+    /**
+     * Returns the subprotocols a session may negotiate.
+     *
+     * @param deflate whether {@link #JSON_DEFLATE_SUBPROTOCOL} is offered
+     * @return the subprotocols, in order of preference
+     */
+    public static List<String> subProtocols(boolean deflate) {
+        return deflate ? SUBPROTOCOLS_WITH_DEFLATE : SUBPROTOCOLS;
+    }
+
+    /**
+     * Resolves the subprotocol selected during the handshake.
+     *
+     * @param subProtocol the negotiated subprotocol, or null if none was requested
+     * @return the matching format, JSON by default
+     */
+    public static WireFormat fromSubProtocol(String subProtocol) {
+        return CBOR.subProtocol.equals(subProtocol) ? CBOR : JSON;
+    }
+}
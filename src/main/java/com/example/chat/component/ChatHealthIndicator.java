@@ -0,0 +1,53 @@
+package com.example.chat.component;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.repository.MessageRepository;
+import com.example.chat.service.ChatService;
+import com.example.chat.service.SubscriberStats;
+import com.example.chat.session.SessionRegistry;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Health of the chat broadcast, reported as the "chat" component of /actuator/health
+ * and included in the readiness group.
+ *
+ * <p>Reports DOWN while the message store's background writes fail, and OUT_OF_SERVICE while the global
+ * session limit is reached, so that a load balancer stops sending new clients until sessions close.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatHealthIndicator implements HealthIndicator {
+
+    private final ChatService chatService;
+    private final ChatProperties chatProperties;
+    private final SessionRegistry sessionRegistry;
+    private final MessageRepository messageRepository;
+
+    @Override
+    public Health health() {
+        RuntimeException storeFailure = messageRepository.failure();
+        Health.Builder health;
+        if (storeFailure != null) {
+            health = Health.down(storeFailure);
+        } else if (sessionRegistry.isFull()) {
+            health = Health.outOfService();
+        } else {
+            health = Health.up();
+        }
+        var subscribers = chatService.subscriberStats();
+        return health
+                .withDetail("rooms", chatService.activeRooms())
+                .withDetail("sessions", sessionRegistry.size())
+                .withDetail("maxSessions", chatProperties.getSessions().getMaxConnections())
+                .withDetail("subscribers", subscribers.size())
+                .withDetail("deepestQueue", subscribers.stream().mapToLong(SubscriberStats::getLag).max().orElse(0))
+                .withDetail("queueCapacity", chatProperties.getMaxBufferSize())
+                .withDetail("store", chatProperties.getStore().getType())
+                .build();
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.chat.config;
 
+import java.time.Duration;
+
+import org.springframework.util.unit.DataSize;
+
 /**
  * Constants used throughout the chat application.
  * Contains route paths, error messages, and configuration keys.
@@ -9,16 +13,108 @@ public final class ChatConstants {
     // Route paths
     public static final String CHAT_BASE_PATH = "/chat";
     public static final String SEND_MESSAGE_PATH = "/send";
+    public static final String SEND_BATCH_PATH = "/send/batch";
     public static final String STREAM_MESSAGES_PATH = "/stream";
+    public static final String HISTORY_PATH = "/history";
+    public static final String SEARCH_PATH = "/search";
+    public static final String WEBSOCKET_PATH = "/ws/chat";
+
+    // Rooms
+    public static final String ROOM_PARAM = "room";
+    public static final String DEFAULT_ROOM = "general";
+    public static final int MAX_ROOM_LENGTH = 64;
+
+    // Resume
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    public static final String SINCE_PARAM = "since";
+
+    // History
+    public static final String BEFORE_PARAM = "before";
+    public static final String AFTER_PARAM = "after";
+    public static final String FROM_PARAM = "from";
+    public static final String TO_PARAM = "to";
+    public static final String SENDER_PARAM = "sender";
+    public static final String LIMIT_PARAM = "limit";
+    public static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+    public static final int MAX_HISTORY_PAGE_SIZE = 1000;
+
+    // Search
+    public static final String QUERY_PARAM = "q";
+    public static final String OFFSET_PARAM = "offset";
+    public static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    public static final int MAX_SEARCH_PAGE_SIZE = 100;
+    public static final int MAX_SEARCH_OFFSET = 1000;
+
+    // Presence
+    public static final String USER_PARAM = "user";
+    public static final int MAX_USER_LENGTH = 64;
 
     // Error messages
     public static final String VALIDATION_FAILED_MESSAGE = "Validation failed";
     public static final String REQUEST_BINDING_FAILED_MESSAGE = "Request binding failed";
+    public static final String INVALID_REQUEST_MESSAGE = "Invalid request";
+    public static final String RATE_LIMITED_MESSAGE = "Rate limit exceeded";
+    public static final String CONNECTION_LIMITED_MESSAGE = "Connection limit reached";
     public static final String UNEXPECTED_ERROR_MESSAGE = "An unexpected error occurred";
 
     // Configuration properties
     public static final String CHAT_MAX_BUFFER_SIZE_KEY = "chat.max-buffer-size";
     public static final int DEFAULT_MAX_BUFFER_SIZE = 1000;
+    public static final String CHAT_OVERFLOW_POLICY_KEY = "chat.overflow-policy";
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DROP_OLDEST;
+    public static final String CHAT_HISTORY_CAPACITY_KEY = "chat.history.capacity";
+    public static final int DEFAULT_HISTORY_CAPACITY = 10_000;
+    public static final String CHAT_HISTORY_RETENTION_KEY = "chat.history.retention";
+    public static final String CHAT_HISTORY_ROOM_CAPACITY_KEY = "chat.history.room-capacity";
+    public static final int DEFAULT_HISTORY_ROOM_CAPACITY = 1000;
+    public static final String CHAT_HISTORY_MAX_ROOMS_KEY = "chat.history.max-rooms";
+    public static final int DEFAULT_HISTORY_MAX_ROOMS = 1000;
+    public static final String CHAT_ROOMS_IDLE_TIMEOUT_KEY = "chat.rooms.idle-timeout";
+    public static final Duration DEFAULT_ROOM_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    public static final String CHAT_STORE_TYPE_KEY = "chat.store.type";
+    public static final String DEFAULT_STORE_PATH = "data/messages";
+    public static final DataSize DEFAULT_SEGMENT_SIZE = DataSize.ofMegabytes(64);
+    public static final DataSize DEFAULT_INDEX_INTERVAL = DataSize.ofKilobytes(4);
+    public static final DataSize DEFAULT_STORE_RETENTION_SIZE = DataSize.ofGigabytes(1);
+    public static final Duration DEFAULT_STORE_RETENTION_AGE = Duration.ofDays(7);
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+    public static final String CHAT_BATCH_SIZE_KEY = "chat.batch.size";
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final String CHAT_BATCH_WINDOW_KEY = "chat.batch.window";
+    public static final Duration DEFAULT_BATCH_WINDOW = Duration.ofMillis(10);
+    public static final String CHAT_CLUSTER_TYPE_KEY = "chat.cluster.type";
+    public static final String DEFAULT_CLUSTER_NAME = "chat";
+    public static final String DEFAULT_CLUSTER_HOST = "0.0.0.0";
+    public static final int DEFAULT_CLUSTER_PORT = 7480;
+    public static final int DEFAULT_CLUSTER_OUTBOUND_BUFFER = 10_000;
+    public static final String CHAT_RATE_LIMIT_ENABLED_KEY = "chat.rate-limit.enabled";
+    public static final double DEFAULT_SENDER_RATE = 10;
+    public static final int DEFAULT_SENDER_BURST = 20;
+    public static final double DEFAULT_SESSION_RATE = 10;
+    public static final int DEFAULT_SESSION_BURST = 20;
+    public static final double DEFAULT_ADDRESS_RATE = 50;
+    public static final int DEFAULT_ADDRESS_BURST = 100;
+    public static final int DEFAULT_RATE_LIMIT_MAX_KEYS = 100_000;
+    public static final Duration DEFAULT_RATE_LIMIT_IDLE_TIMEOUT = Duration.ofMinutes(10);
+    public static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ADDRESS = 100;
+    public static final Duration DEFAULT_PING_INTERVAL = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_SESSION_IDLE_TIMEOUT = Duration.ofSeconds(90);
+    public static final Duration DEFAULT_SSE_HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+    public static final Duration CONNECTION_RETRY_AFTER = Duration.ofSeconds(5);
+    public static final String CHAT_SEARCH_ENABLED_KEY = "chat.search.enabled";
+    public static final int DEFAULT_SEARCH_QUEUE_CAPACITY = 10_000;
+    public static final Duration DEFAULT_SEARCH_COMPACT_INTERVAL = Duration.ofSeconds(30);
+    public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    public static final DataSize DEFAULT_COMPRESSION_THRESHOLD = DataSize.ofBytes(256);
+    public static final String CHAT_PRESENCE_ENABLED_KEY = "chat.presence.enabled";
+    public static final Duration DEFAULT_PRESENCE_WINDOW = Duration.ofMillis(100);
+    public static final Duration DEFAULT_TYPING_TIMEOUT = Duration.ofSeconds(5);
+    public static final Duration PRESENCE_OFFLINE_RETENTION = Duration.ofMinutes(1);
+    public static final String CHAT_MODERATION_BLOCKED_WORDS_KEY = "chat.moderation.blocked-words";
+    public static final int DEFAULT_MODERATION_PARALLELISM = 64;
+    public static final int DEFAULT_MODERATION_CACHE_SIZE = 10_000;
+    public static final Duration DEFAULT_MODERATION_TIMEOUT = Duration.ofSeconds(2);
 
     private ChatConstants() {
         // Utility class
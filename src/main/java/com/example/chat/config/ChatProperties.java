@@ -1,7 +1,13 @@
 package com.example.chat.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Configuration properties for the chat application.
@@ -11,6 +17,19 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "chat")
 public class ChatProperties {
     private int maxBufferSize = ChatConstants.DEFAULT_MAX_BUFFER_SIZE;
+    private OverflowPolicy overflowPolicy = ChatConstants.DEFAULT_OVERFLOW_POLICY;
+    private final History history = new History();
+    private final Rooms rooms = new Rooms();
+    private final Store store = new Store();
+    private final Batch batch = new Batch();
+    private final Cluster cluster = new Cluster();
+    private final RateLimit rateLimit = new RateLimit();
+    private final Search search = new Search();
+    private final Sessions sessions = new Sessions();
+    private final Execution execution = new Execution();
+    private final Compression compression = new Compression();
+    private final Presence presence = new Presence();
+    private final Moderation moderation = new Moderation();
 
     public int getMaxBufferSize() {
         return maxBufferSize;
@@ -19,4 +38,646 @@ public class ChatProperties {
     public void setMaxBufferSize(int maxBufferSize) {
         this.maxBufferSize = maxBufferSize;
     }
-}
\ No newline at end of file
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public History getHistory() {
+        return history;
+    }
+
+    public Rooms getRooms() {
+        return rooms;
+    }
+
+    public Store getStore() {
+        return store;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public Sessions getSessions() {
+        return sessions;
+    }
+
+    public Execution getExecution() {
+        return execution;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public Presence getPresence() {
+        return presence;
+    }
+
+    public Moderation getModeration() {
+        return moderation;
+    }
+
+    /**
+     * Message history retained by the repository, bound from "chat.history".
+     * The in-memory store keeps a history of room-capacity messages for at most max-rooms rooms,
+     * evicting the rooms used least.
+     */
+    public static class History {
+        private int capacity = ChatConstants.DEFAULT_HISTORY_CAPACITY;
+        private int roomCapacity = ChatConstants.DEFAULT_HISTORY_ROOM_CAPACITY;
+        private int maxRooms = ChatConstants.DEFAULT_HISTORY_MAX_ROOMS;
+        private Duration retention;
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getRoomCapacity() {
+            return roomCapacity;
+        }
+
+        public void setRoomCapacity(int roomCapacity) {
+            this.roomCapacity = roomCapacity;
+        }
+
+        public int getMaxRooms() {
+            return maxRooms;
+        }
+
+        public void setMaxRooms(int maxRooms) {
+            this.maxRooms = maxRooms;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+    }
+
+    /**
+     * Chat room lifecycle settings, bound from "chat.rooms".
+     */
+    public static class Rooms {
+        private Duration idleTimeout = ChatConstants.DEFAULT_ROOM_IDLE_TIMEOUT;
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+    }
+
+    /**
+     * Message store settings, bound from "chat.store".
+     * With type LOG, fsync happens every flush-interval and, if flush-messages is positive,
+     * after that many unflushed appends; lower values trade throughput for durability.
+     */
+    public static class Store {
+        private StoreType type = StoreType.MEMORY;
+        private String path = ChatConstants.DEFAULT_STORE_PATH;
+        private DataSize segmentSize = ChatConstants.DEFAULT_SEGMENT_SIZE;
+        private DataSize indexInterval = ChatConstants.DEFAULT_INDEX_INTERVAL;
+        private DataSize retentionSize = ChatConstants.DEFAULT_STORE_RETENTION_SIZE;
+        private Duration retentionAge = ChatConstants.DEFAULT_STORE_RETENTION_AGE;
+        private Duration flushInterval = ChatConstants.DEFAULT_FLUSH_INTERVAL;
+        private int flushMessages;
+
+        public StoreType getType() {
+            return type;
+        }
+
+        public void setType(StoreType type) {
+            this.type = type;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public DataSize getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public DataSize getIndexInterval() {
+            return indexInterval;
+        }
+
+        public void setIndexInterval(DataSize indexInterval) {
+            this.indexInterval = indexInterval;
+        }
+
+        public DataSize getRetentionSize() {
+            return retentionSize;
+        }
+
+        public void setRetentionSize(DataSize retentionSize) {
+            this.retentionSize = retentionSize;
+        }
+
+        public Duration getRetentionAge() {
+            return retentionAge;
+        }
+
+        public void setRetentionAge(Duration retentionAge) {
+            this.retentionAge = retentionAge;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public int getFlushMessages() {
+            return flushMessages;
+        }
+
+        public void setFlushMessages(int flushMessages) {
+            this.flushMessages = flushMessages;
+        }
+    }
+
+    /**
+     * Micro-batching of bulk publishes, bound from "chat.batch".
+     * A batch is written and broadcast once it holds size messages or window has passed since its first one.
+     */
+    public static class Batch {
+        private int size = ChatConstants.DEFAULT_BATCH_SIZE;
+        private Duration window = ChatConstants.DEFAULT_BATCH_WINDOW;
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+    }
+
+    /**
+     * Cross-node broadcast settings, bound from "chat.cluster".
+     * With type TCP, the node listens on host:port and forwards its messages to every address in peers;
+     * with type LOOPBACK, nodes in the same JVM that share a name form a cluster.
+     */
+    public static class Cluster {
+        private ClusterType type = ClusterType.NONE;
+        private String nodeId = UUID.randomUUID().toString();
+        private String name = ChatConstants.DEFAULT_CLUSTER_NAME;
+        private String host = ChatConstants.DEFAULT_CLUSTER_HOST;
+        private int port = ChatConstants.DEFAULT_CLUSTER_PORT;
+        private List<String> peers = new ArrayList<>();
+        private int outboundBuffer = ChatConstants.DEFAULT_CLUSTER_OUTBOUND_BUFFER;
+
+        public ClusterType getType() {
+            return type;
+        }
+
+        public void setType(ClusterType type) {
+            this.type = type;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public List<String> getPeers() {
+            return peers;
+        }
+
+        public void setPeers(List<String> peers) {
+            this.peers = peers;
+        }
+
+        public int getOutboundBuffer() {
+            return outboundBuffer;
+        }
+
+        public void setOutboundBuffer(int outboundBuffer) {
+            this.outboundBuffer = outboundBuffer;
+        }
+    }
+
+    /**
+     * Inbound message rate limits, bound from "chat.rate-limit".
+     * Each scope allows rate messages per second on average and bursts of up to burst messages;
+     * a rate of zero or less turns that scope off. Buckets of keys idle for idle-timeout are forgotten,
+     * and at most max-keys buckets are kept per scope.
+     */
+    public static class RateLimit {
+        private boolean enabled = true;
+        private final Limit sender = new Limit(ChatConstants.DEFAULT_SENDER_RATE, ChatConstants.DEFAULT_SENDER_BURST);
+        private final Limit session = new Limit(ChatConstants.DEFAULT_SESSION_RATE, ChatConstants.DEFAULT_SESSION_BURST);
+        private final Limit address = new Limit(ChatConstants.DEFAULT_ADDRESS_RATE, ChatConstants.DEFAULT_ADDRESS_BURST);
+        private int maxKeys = ChatConstants.DEFAULT_RATE_LIMIT_MAX_KEYS;
+        private Duration idleTimeout = ChatConstants.DEFAULT_RATE_LIMIT_IDLE_TIMEOUT;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Limit getSender() {
+            return sender;
+        }
+
+        public Limit getSession() {
+            return session;
+        }
+
+        public Limit getAddress() {
+            return address;
+        }
+
+        public int getMaxKeys() {
+            return maxKeys;
+        }
+
+        public void setMaxKeys(int maxKeys) {
+            this.maxKeys = maxKeys;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        /**
+         * A token bucket: rate messages per second, up to burst at once.
+         */
+        public static class Limit {
+            private double rate;
+            private int burst;
+
+            public Limit(double rate, int burst) {
+                this.rate = rate;
+                this.burst = burst;
+            }
+
+            public double getRate() {
+                return rate;
+            }
+
+            public void setRate(double rate) {
+                this.rate = rate;
+            }
+
+            public int getBurst() {
+                return burst;
+            }
+
+            public void setBurst(int burst) {
+                this.burst = burst;
+            }
+        }
+    }
+
+    /**
+     * Full-text search settings, bound from "chat.search".
+     * The index covers the same messages as the history (chat.history.capacity and retention); at most
+     * queue-capacity published messages wait to be indexed, and stale postings are compacted every compact-interval.
+     */
+    public static class Search {
+        private boolean enabled = true;
+        private int queueCapacity = ChatConstants.DEFAULT_SEARCH_QUEUE_CAPACITY;
+        private Duration compactInterval = ChatConstants.DEFAULT_SEARCH_COMPACT_INTERVAL;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getCompactInterval() {
+            return compactInterval;
+        }
+
+        public void setCompactInterval(Duration compactInterval) {
+            this.compactInterval = compactInterval;
+        }
+    }
+
+    /**
+     * Client connection settings, bound from "chat.sessions".
+     * WebSocket sessions are pinged every ping-interval and closed once nothing, not even a pong, has arrived
+     * for idle-timeout; SSE streams get a comment line every sse-heartbeat-interval so dead connections fail a
+     * write. Connections beyond max-connections, or max-connections-per-address from one address, are refused;
+     * zero disables an interval or limit.
+     */
+    public static class Sessions {
+        private int maxConnections = ChatConstants.DEFAULT_MAX_CONNECTIONS;
+        private int maxConnectionsPerAddress = ChatConstants.DEFAULT_MAX_CONNECTIONS_PER_ADDRESS;
+        private Duration pingInterval = ChatConstants.DEFAULT_PING_INTERVAL;
+        private Duration idleTimeout = ChatConstants.DEFAULT_SESSION_IDLE_TIMEOUT;
+        private Duration sseHeartbeatInterval = ChatConstants.DEFAULT_SSE_HEARTBEAT_INTERVAL;
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public int getMaxConnectionsPerAddress() {
+            return maxConnectionsPerAddress;
+        }
+
+        public void setMaxConnectionsPerAddress(int maxConnectionsPerAddress) {
+            this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+        }
+
+        public Duration getPingInterval() {
+            return pingInterval;
+        }
+
+        public void setPingInterval(Duration pingInterval) {
+            this.pingInterval = pingInterval;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public Duration getSseHeartbeatInterval() {
+            return sseHeartbeatInterval;
+        }
+
+        public void setSseHeartbeatInterval(Duration sseHeartbeatInterval) {
+            this.sseHeartbeatInterval = sseHeartbeatInterval;
+        }
+    }
+
+    /**
+     * Where work that must stay off the event loops runs, bound from "chat.execution".
+     * Blocking work runs on virtual threads when virtual-threads is set, otherwise on a bounded elastic pool;
+     * CPU-heavy work runs on cpu-parallelism threads, zero meaning one per available processor.
+     * Room subscribers are partitioned across broadcast-shards delivery threads, zero likewise meaning one per processor.
+     */
+    public static class Execution {
+        private boolean virtualThreads = true;
+        private int cpuParallelism = 0;
+        private int broadcastShards = 0;
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+
+        public int getCpuParallelism() {
+            return cpuParallelism;
+        }
+
+        public void setCpuParallelism(int cpuParallelism) {
+            this.cpuParallelism = cpuParallelism;
+        }
+
+        public int getBroadcastShards() {
+            return broadcastShards;
+        }
+
+        public void setBroadcastShards(int broadcastShards) {
+            this.broadcastShards = broadcastShards;
+        }
+    }
+
+    /**
+     * Compression of outbound messages, bound from "chat.compression".
+     * Messages of at least threshold bytes are deflated at level, once per message, and the result is shared by
+     * every WebSocket session that negotiated the deflate subprotocol (when websocket is set) and every SSE stream
+     * that accepts gzip (when sse is set). per-message-deflate controls whether the server may negotiate the
+     * permessage-deflate extension, which then compresses at level too, and server-context-takeover whether it
+     * keeps a compression window per session.
+     */
+    public static class Compression {
+        private int level = ChatConstants.DEFAULT_COMPRESSION_LEVEL;
+        private DataSize threshold = ChatConstants.DEFAULT_COMPRESSION_THRESHOLD;
+        private boolean websocket = true;
+        private boolean sse = true;
+        private boolean perMessageDeflate = true;
+        private boolean serverContextTakeover = true;
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+
+        public DataSize getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(DataSize threshold) {
+            this.threshold = threshold;
+        }
+
+        public boolean isWebsocket() {
+            return websocket;
+        }
+
+        public void setWebsocket(boolean websocket) {
+            this.websocket = websocket;
+        }
+
+        public boolean isSse() {
+            return sse;
+        }
+
+        public void setSse(boolean sse) {
+            this.sse = sse;
+        }
+
+        public boolean isPerMessageDeflate() {
+            return perMessageDeflate;
+        }
+
+        public void setPerMessageDeflate(boolean perMessageDeflate) {
+            this.perMessageDeflate = perMessageDeflate;
+        }
+
+        public boolean isServerContextTakeover() {
+            return serverContextTakeover;
+        }
+
+        public void setServerContextTakeover(boolean serverContextTakeover) {
+            this.serverContextTakeover = serverContextTakeover;
+        }
+    }
+
+    /**
+     * Presence and typing indicators on the WebSocket endpoint, bound from "chat.presence".
+     * Updates are coalesced per user and broadcast at most once per window, and a typing indicator
+     * that is not renewed falls back to online after typing-timeout.
+     */
+    public static class Presence {
+        private boolean enabled = true;
+        private Duration window = ChatConstants.DEFAULT_PRESENCE_WINDOW;
+        private Duration typingTimeout = ChatConstants.DEFAULT_TYPING_TIMEOUT;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public Duration getTypingTimeout() {
+            return typingTimeout;
+        }
+
+        public void setTypingTimeout(Duration typingTimeout) {
+            this.typingTimeout = typingTimeout;
+        }
+    }
+
+    /**
+     * The moderation stages messages pass before they are published, bound from "chat.moderation".
+     * At most parallelism messages are moderated at once, each sender's one after another; an async stage
+     * that takes longer than timeout is skipped. Each cacheable stage remembers its results for the last
+     * cache-size distinct contents. blocked-words enables the built-in filter that masks those words.
+     */
+    public static class Moderation {
+        private int parallelism = ChatConstants.DEFAULT_MODERATION_PARALLELISM;
+        private int cacheSize = ChatConstants.DEFAULT_MODERATION_CACHE_SIZE;
+        private Duration timeout = ChatConstants.DEFAULT_MODERATION_TIMEOUT;
+        private List<String> blockedWords = new ArrayList<>();
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public List<String> getBlockedWords() {
+            return blockedWords;
+        }
+
+        public void setBlockedWords(List<String> blockedWords) {
+            this.blockedWords = blockedWords;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.chat.config;
+
+/**
+ * How published messages reach the other instances of the application.
+ */
+public enum ClusterType {
+    /** Single instance; messages are only broadcast within this JVM. */
+    NONE,
+    /** In-process bus shared by application contexts in the same JVM; for tests. */
+    LOOPBACK,
+    /** Peer-to-peer TCP connections to the addresses in chat.cluster.peers. */
+    TCP
+}
@@ -0,0 +1,13 @@
+package com.example.chat.config;
+
+/**
+ * What a subscriber queue does when a slow consumer lets it fill up.
+ */
+public enum OverflowPolicy {
+    /** Evict the oldest queued message to make room for the new one. */
+    DROP_OLDEST,
+    /** Discard the incoming message and keep the queued ones. */
+    DROP_LATEST,
+    /** Terminate the slow subscriber with an overflow error. */
+    DISCONNECT
+}
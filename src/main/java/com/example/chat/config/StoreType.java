@@ -0,0 +1,11 @@
+package com.example.chat.config;
+
+/**
+ * Where chat history is stored.
+ */
+public enum StoreType {
+    /** Bounded ring buffers on the heap; history is lost on restart. */
+    MEMORY,
+    /** Append-only, memory-mapped segment files on local disk. */
+    LOG
+}
@@ -9,6 +9,9 @@ import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
 import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAdapter;
 
 import com.example.chat.handler.ChatWebSocketHandler;
+import com.example.chat.session.AdmissionWebSocketService;
+import com.example.chat.session.PerMessageDeflateUpgradeStrategy;
+import com.example.chat.session.SessionRegistry;
 
 import lombok.RequiredArgsConstructor;
 
@@ -17,15 +20,18 @@ import lombok.RequiredArgsConstructor;
 public class WebsocketConfig {
 
     private final ChatWebSocketHandler chatWebSocketHandler;
+    private final SessionRegistry sessionRegistry;
+    private final ChatProperties chatProperties;
 
     @Bean
     public HandlerMapping webSocketMapping() {
-        return new SimpleUrlHandlerMapping(Map.of("/ws/chat", chatWebSocketHandler), -1);
+        return new SimpleUrlHandlerMapping(Map.of(ChatConstants.WEBSOCKET_PATH, chatWebSocketHandler), -1);
     }
 
     @Bean
     public WebSocketHandlerAdapter handlerAdapter() {
-        return new WebSocketHandlerAdapter();
+        return new WebSocketHandlerAdapter(new AdmissionWebSocketService(sessionRegistry,
+                new PerMessageDeflateUpgradeStrategy(chatProperties)));
     }
 }
 
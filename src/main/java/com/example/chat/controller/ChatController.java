@@ -1,22 +1,50 @@
 package com.example.chat.controller;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.chat.codec.EncodedMessage;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.codec.GzipStream;
 import com.example.chat.config.ChatConstants;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.dto.BatchResponse;
 import com.example.chat.dto.MessageRequest;
 import com.example.chat.dto.MessageResponse;
+import com.example.chat.dto.SearchResponse;
 import com.example.chat.mapper.MessageMapper;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.metrics.Transport;
+import com.example.chat.model.Message;
+import com.example.chat.ratelimit.LimitScope;
+import com.example.chat.ratelimit.RateLimiter;
+import com.example.chat.repository.HistoryQuery;
 import com.example.chat.service.ChatService;
+import com.example.chat.session.ClientSession;
+import com.example.chat.session.SessionRegistry;
 
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * REST Controller for handling chat operations.
@@ -27,39 +55,220 @@ import reactor.core.publisher.Flux;
 @RequiredArgsConstructor
 @Slf4j
 public class ChatController {
+    private static final byte[] SSE_HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SSE_HEARTBEAT_BLOCK = FrameCompressor.storedBlocks(SSE_HEARTBEAT);
+
     private final ChatService chatService;
+    private final ChatMetrics metrics;
+    private final Validator validator;
+    private final RateLimiter rateLimiter;
+    private final SessionRegistry sessionRegistry;
+    private final ChatProperties chatProperties;
 
     /**
      * Sends a new message to the chat.
+     * Rejected with 429 when the client's address or the sender is over its rate limit.
      *
-     * @param request the message request containing sender and content
+     * @param request the message request containing sender, content and optional room
+     * @param httpRequest the HTTP request, for the client's address
      */
     @PostMapping(ChatConstants.SEND_MESSAGE_PATH)
-    public void send(@Valid @RequestBody MessageRequest request) {
-        log.info("Received message from sender: {}", request.sender());
+    public void send(@Valid @RequestBody MessageRequest request, ServerHttpRequest httpRequest) {
+        log.info("Received message from sender: {} for room: {}", request.sender(), request.room());
+        rateLimiter.acquire(LimitScope.ADDRESS, RateLimiter.addressKey(httpRequest.getRemoteAddress()));
+        rateLimiter.acquire(LimitScope.SENDER, request.sender());
         chatService.publish(MessageMapper.toEntity(request));
     }
 
     /**
-     * Streams chat messages in real-time using Server-Sent Events.
+     * Sends many messages in one request, as a JSON array or as newline-delimited JSON.
+     * The body is decoded and validated as a stream and published in micro-batches, so a large batch
+     * is never held in memory at once. Invalid entries are skipped and counted in the response.
+     * Each entry counts against the client's address limit and its sender's limit, and entries over either
+     * are rejected like invalid ones. Answers 429 when the address has no token left for the first entry.
      *
-     * @return a Flux of message responses
+     * @param requests the streamed message requests
+     * @param httpRequest the HTTP request, for the client's address
+     * @return the number of accepted and rejected messages
+     */
+    @PostMapping(value = ChatConstants.SEND_BATCH_PATH,
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<BatchResponse> sendBatch(@RequestBody Flux<MessageRequest> requests, ServerHttpRequest httpRequest) {
+        String address = RateLimiter.addressKey(httpRequest.getRemoteAddress());
+        // The token that admits the request pays for its first entry
+        rateLimiter.acquire(LimitScope.ADDRESS, address);
+        AtomicLong entries = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        Flux<Message> batch = requests
+                .filter(request -> isValid(request, address, entries.getAndIncrement() == 0, rejected))
+                .map(MessageMapper::toEntity);
+        return chatService.publishAll(batch)
+                .map(accepted -> new BatchResponse(accepted, rejected.get()))
+                .doOnNext(response -> log.info("Received batch of {} messages, rejected {}", response.accepted(), response.rejected()));
+    }
+
+    /**
+     * Streams a room's chat messages in real-time using Server-Sent Events.
+     * Each event carries the message sequence id, so a reconnecting client that sends
+     * Last-Event-ID (or the "since" parameter) first receives everything it missed.
+     * Events are written as pre-encoded bytes shared by every stream of the room,
+     * so a message is serialized once rather than once per connected client.
+     * A comment line is sent every chat.sessions.sse-heartbeat-interval. Answers 503 when a connection
+     * limit is reached.
+     * When the client accepts gzip and chat.compression.sse is set, the stream is gzip encoded from deflate
+     * blocks that are also shared: each event is compressed once, and each stream only adds its own checksum.
+     *
+     * @param room the room to stream, defaults to the general room
+     * @param lastEventId the last sequence id received before reconnecting, sent by EventSource
+     * @param since an explicit resume offset for clients that cannot set headers
+     * @param request the HTTP request, for the client's address
+     * @param response the response the events are written to
+     * @return completes when the stream ends
      */
     @GetMapping(value = ChatConstants.STREAM_MESSAGES_PATH, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<MessageResponse> stream() {
-        log.info("Client connected to message stream");
-        return chatService.messages()
-                .map(MessageMapper::toResponse);
+    public Mono<Void> stream(
+            @RequestParam(name = ChatConstants.ROOM_PARAM, required = false) String room,
+            @RequestHeader(name = ChatConstants.LAST_EVENT_ID_HEADER, required = false) Long lastEventId,
+            @RequestParam(name = ChatConstants.SINCE_PARAM, required = false) Long since,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
+        String roomId = MessageMapper.roomOrDefault(room);
+        Long resumeFrom = lastEventId != null ? lastEventId : since;
+        ClientSession client = sessionRegistry.register(request.getId(), Transport.SSE,
+                RateLimiter.addressKey(request.getRemoteAddress()), roomId);
+        log.info("Client connected to message stream for room: {}, resuming after: {}", roomId, resumeFrom);
+        Flux<EncodedMessage> messages = resumeFrom != null
+                ? chatService.messages(roomId, resumeFrom)
+                : chatService.messages(roomId);
+        GzipStream gzip = chatProperties.getCompression().isSse()
+                && GzipStream.accepted(String.join(",", request.getHeaders().getOrEmpty(HttpHeaders.ACCEPT_ENCODING)))
+                ? new GzipStream()
+                : null;
+        Flux<Mono<DataBuffer>> events = messages.map(message -> gzip != null
+                ? Mono.fromSupplier(() -> gzipEvent(response, message, gzip))
+                : Mono.fromSupplier(() -> event(response, message)));
+        Duration sseHeartbeatInterval = chatProperties.getSessions().getSseHeartbeatInterval();
+        // Comment lines keep proxies from timing the stream out and make writes to a dead connection fail
+        Flux<Mono<DataBuffer>> heartbeats = sseHeartbeatInterval.isZero() || sseHeartbeatInterval.isNegative()
+                ? Flux.empty()
+                : Flux.interval(sseHeartbeatInterval, sseHeartbeatInterval)
+                        .map(tick -> gzip != null
+                                ? Mono.fromSupplier(() -> response.bufferFactory().wrap(gzip.append(SSE_HEARTBEAT, SSE_HEARTBEAT_BLOCK)))
+                                : Mono.just(response.bufferFactory().wrap(SSE_HEARTBEAT)));
+        Flux<Mono<DataBuffer>> body = Flux.merge(events, heartbeats);
+        response.getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+        if (gzip != null) {
+            response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            // The writer subscribes to one chunk at a time, in order, so the suppliers see the stream as the client does
+            body = Flux.just(Mono.fromSupplier(() -> response.bufferFactory().wrap(GzipStream.header())))
+                    .concatWith(body)
+                    .concatWith(Mono.just(Mono.fromSupplier(() -> response.bufferFactory().wrap(gzip.trailer()))));
+        }
+        return response.writeAndFlushWith(body.doFinally(signal -> sessionRegistry.unregister(client)))
+                // Once the stream is committed a failed write means the client has gone, and there is nobody to answer
+                .onErrorResume(error -> response.isCommitted(), error -> {
+                    log.debug("Message stream for room {} ended: {}", roomId, error.toString());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Reads a page of a room's stored history, streamed from the store as the response is written.
+     * Without a cursor the newest messages come first; pass the id of the last message received as
+     * "before" for the next, older page. With "after" the page is read oldest first instead, for catching up.
+     * Responds with a JSON array, or with newline-delimited JSON when application/x-ndjson is accepted.
+     *
+     * @param room the room to read, defaults to the general room
+     * @param before only messages with a smaller id
+     * @param after only messages with a greater id, oldest first
+     * @param from only messages at or after this time
+     * @param to only messages before this time
+     * @param sender only messages from this sender
+     * @param limit the page size, at most {@value ChatConstants#MAX_HISTORY_PAGE_SIZE}
+     * @return the page of messages
+     */
+    @GetMapping(value = ChatConstants.HISTORY_PATH, produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<MessageResponse> history(
+            @RequestParam(name = ChatConstants.ROOM_PARAM, required = false) String room,
+            @RequestParam(name = ChatConstants.BEFORE_PARAM, required = false) Long before,
+            @RequestParam(name = ChatConstants.AFTER_PARAM, required = false) Long after,
+            @RequestParam(name = ChatConstants.FROM_PARAM, required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = ChatConstants.TO_PARAM, required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = ChatConstants.SENDER_PARAM, required = false) String sender,
+            @RequestParam(name = ChatConstants.LIMIT_PARAM, defaultValue = "" + ChatConstants.DEFAULT_HISTORY_PAGE_SIZE) int limit) {
+        if (limit < 1 || limit > ChatConstants.MAX_HISTORY_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + ChatConstants.MAX_HISTORY_PAGE_SIZE);
+        }
+        HistoryQuery query = new HistoryQuery(MessageMapper.roomOrDefault(room), before, after,
+                MessageMapper.toEpochMillis(from), MessageMapper.toEpochMillis(to), sender, limit);
+        log.debug("History query: {}", query);
+        return chatService.history(query).map(MessageMapper::toResponse);
     }
 
     /**
-     * Health check endpoint for testing connectivity.
-     * Useful for Postman demonstrations.
+     * Searches the content of recent messages, best match first.
+     * Messages are ranked by how many of the query's words they contain, how rare those words are and
+     * how often they occur; matching ignores case and punctuation. Only messages still in the history
+     * are searchable, and a message becomes searchable shortly after it is published.
      *
-     * @return a simple health status message
+     * @param query the words to search for
+     * @param room only messages in this room, or every room if not given
+     * @param offset the number of best matches to skip, at most {@value ChatConstants#MAX_SEARCH_OFFSET}
+     * @param limit the page size, at most {@value ChatConstants#MAX_SEARCH_PAGE_SIZE}
+     * @return the total number of matches and the requested page
      */
-    @GetMapping("/health")
-    public String health() {
-        return "Chat application is running and reactive!";
+    @GetMapping(ChatConstants.SEARCH_PATH)
+    public Mono<SearchResponse> search(
+            @RequestParam(name = ChatConstants.QUERY_PARAM) String query,
+            @RequestParam(name = ChatConstants.ROOM_PARAM, required = false) String room,
+            @RequestParam(name = ChatConstants.OFFSET_PARAM, defaultValue = "0") int offset,
+            @RequestParam(name = ChatConstants.LIMIT_PARAM, defaultValue = "" + ChatConstants.DEFAULT_SEARCH_PAGE_SIZE) int limit) {
+        if (query.isBlank()) {
+            throw new IllegalArgumentException("Query must not be blank");
+        }
+        if (limit < 1 || limit > ChatConstants.MAX_SEARCH_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + ChatConstants.MAX_SEARCH_PAGE_SIZE);
+        }
+        if (offset < 0 || offset > ChatConstants.MAX_SEARCH_OFFSET) {
+            throw new IllegalArgumentException("Offset must be between 0 and " + ChatConstants.MAX_SEARCH_OFFSET);
+        }
+        String searchRoom = room == null || room.isBlank() ? null : MessageMapper.roomOrDefault(room);
+        log.debug("Search query: {}, room: {}, offset: {}, limit: {}", query, searchRoom, offset, limit);
+        return chatService.search(query, searchRoom, offset, limit)
+                .map(page -> MessageMapper.toSearchResponse(query, offset, limit, page));
+    }
+
+    private DataBuffer event(ServerHttpResponse response, EncodedMessage message) {
+        byte[] event = message.sseEvent();
+        metrics.delivered(Transport.SSE, message, event.length);
+        return response.bufferFactory().wrap(event);
+    }
+
+    private DataBuffer gzipEvent(ServerHttpResponse response, EncodedMessage message, GzipStream gzip) {
+        byte[] event = message.sseEvent();
+        byte[] block = gzip.append(event, message.sseEventBlock());
+        metrics.delivered(Transport.SSE, message, block.length);
+        metrics.compressed(Transport.SSE, event.length, block.length);
+        return response.bufferFactory().wrap(block);
+    }
+
+    private boolean isValid(MessageRequest request, String address, boolean admitted, AtomicLong rejected) {
+        if (!validator.validate(request).isEmpty()) {
+            rejected.incrementAndGet();
+            log.debug("Rejected invalid batch entry from sender: {}", request.sender());
+            return false;
+        }
+        if (!admitted && rateLimiter.tryAcquire(LimitScope.ADDRESS, address) > 0) {
+            rejected.incrementAndGet();
+            log.debug("Rejected batch entry over the address limit of {}", address);
+            return false;
+        }
+        if (rateLimiter.tryAcquire(LimitScope.SENDER, request.sender()) > 0) {
+            rejected.incrementAndGet();
+            log.debug("Rejected rate-limited batch entry from sender: {}", request.sender());
+            return false;
+        }
+        return true;
     }
 }
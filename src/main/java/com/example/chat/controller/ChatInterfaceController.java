@@ -1,12 +1,18 @@
 package com.example.chat.controller;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
 /**
@@ -14,16 +20,30 @@ import reactor.core.publisher.Mono;
  * Provides the main HTML interface for the reactive chat application.
  */
 @Controller
+@Slf4j
 public class ChatInterfaceController {
 
+    private static final URI CHAT_URI = URI.create("/chat");
+    private static final String CHAT_PAGE = "static/chat.html";
+    private static final String MISSING_PAGE =
+            "<h1>Error loading chat interface</h1><p>Please check if chat.html exists in static resources.</p>";
+
+    private final String chatHtml;
+
+    public ChatInterfaceController() {
+        // Read once at startup; serving the page must not read the classpath on an event loop
+        this.chatHtml = loadChatHtml();
+    }
+
     /**
-     * Serves the main chat interface.
+     * Redirects to the chat interface.
+     * Answered directly rather than as a view name, as the application has no view resolver.
      *
-     * @return the chat HTML page
+     * @return a redirect to the chat HTML page
      */
     @GetMapping("/")
-    public Mono<String> index() {
-        return Mono.just("redirect:/chat");
+    public Mono<ResponseEntity<Void>> index() {
+        return Mono.just(ResponseEntity.status(HttpStatus.FOUND).location(CHAT_URI).build());
     }
 
     /**
@@ -34,22 +54,21 @@ public class ChatInterfaceController {
     @GetMapping(value = "/chat", produces = MediaType.TEXT_HTML_VALUE)
     @ResponseBody
     public Mono<String> chat() {
-        return loadChatHtml();
+        return Mono.just(chatHtml);
     }
 
     /**
      * Loads the chat HTML from static resources.
      *
-     * @return the HTML content
+     * @return the HTML content, or an error page if it cannot be read
      */
-    private Mono<String> loadChatHtml() {
-        return Mono.fromSupplier(() -> {
-            try {
-                Resource resource = new ClassPathResource("static/chat.html");
-                return resource.getContentAsString(java.nio.charset.StandardCharsets.UTF_8);
-            } catch (Exception e) {
-                return "<h1>Error loading chat interface</h1><p>Please check if chat.html exists in static resources.</p>";
-            }
-        });
+    private static String loadChatHtml() {
+        try {
+            Resource resource = new ClassPathResource(CHAT_PAGE);
+            return resource.getContentAsString(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.error("Failed to load {}: {}", CHAT_PAGE, e.getMessage());
+            return MISSING_PAGE;
+        }
     }
-}
\ No newline at end of file
+}
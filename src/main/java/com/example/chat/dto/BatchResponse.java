@@ -0,0 +1,10 @@
+package com.example.chat.dto;
+
+/**
+ * Data Transfer Object for the result of a batch send.
+ * Invalid entries are skipped and counted rather than failing the whole batch.
+ */
+public record BatchResponse(
+    long accepted,
+    long rejected
+) {}
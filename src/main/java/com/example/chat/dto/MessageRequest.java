@@ -3,11 +3,19 @@ package com.example.chat.dto;
 /**
  * Data Transfer Object for incoming message requests.
  * Contains validation constraints for sender and content fields.
+ * The room is optional and defaults to the general room.
  */
 public record MessageRequest(
     @jakarta.validation.constraints.NotBlank(message = "Sender cannot be blank")
     String sender,
 
     @jakarta.validation.constraints.NotBlank(message = "Content cannot be blank")
-    String content
-) {}
\ No newline at end of file
+    String content,
+
+    @jakarta.validation.constraints.Size(max = com.example.chat.config.ChatConstants.MAX_ROOM_LENGTH, message = "Room name is too long")
+    String room
+) {
+    public MessageRequest(String sender, String content) {
+        this(sender, content, null);
+    }
+}
@@ -7,7 +7,9 @@ import java.time.LocalDateTime;
  * Contains the message details sent to clients.
  */
 public record MessageResponse(
+    long id,
+    String room,
     String sender,
     String content,
     LocalDateTime timestamp
-) {}
\ No newline at end of file
+) {}
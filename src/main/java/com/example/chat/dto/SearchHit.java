@@ -0,0 +1,9 @@
+package com.example.chat.dto;
+
+/**
+ * Data Transfer Object for one search result: a message and its relevance score.
+ */
+public record SearchHit(
+    MessageResponse message,
+    double score
+) {}
@@ -0,0 +1,15 @@
+package com.example.chat.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for a page of search results, best match first.
+ * Total counts every match, so clients can page with offset and limit.
+ */
+public record SearchResponse(
+    String query,
+    long total,
+    int offset,
+    int limit,
+    List<SearchHit> hits
+) {}
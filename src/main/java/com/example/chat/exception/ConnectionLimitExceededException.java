@@ -0,0 +1,21 @@
+package com.example.chat.exception;
+
+import com.example.chat.session.ConnectionLimit;
+
+/**
+ * Thrown when a client connects while a connection limit is reached.
+ * GlobalExceptionHandler turns it into HTTP 503 with a Retry-After header.
+ */
+public class ConnectionLimitExceededException extends RuntimeException {
+
+    private final ConnectionLimit limit;
+
+    public ConnectionLimitExceededException(ConnectionLimit limit) {
+        super("Too many connections (" + limit.tag() + " limit), try again later");
+        this.limit = limit;
+    }
+
+    public ConnectionLimit getLimit() {
+        return limit;
+    }
+}
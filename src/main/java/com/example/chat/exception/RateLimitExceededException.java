@@ -0,0 +1,29 @@
+package com.example.chat.exception;
+
+import java.time.Duration;
+
+import com.example.chat.ratelimit.LimitScope;
+
+/**
+ * Thrown when a client sends messages faster than its rate limit allows.
+ * GlobalExceptionHandler turns it into HTTP 429 with a Retry-After header.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final LimitScope scope;
+    private final Duration retryAfter;
+
+    public RateLimitExceededException(LimitScope scope, Duration retryAfter) {
+        super("Too many messages per " + scope.tag() + ", retry after " + retryAfter.toMillis() + "ms");
+        this.scope = scope;
+        this.retryAfter = retryAfter;
+    }
+
+    public LimitScope getScope() {
+        return scope;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -1,106 +1,247 @@
 package com.example.chat.handler;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.socket.CloseStatus;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.EncodedMessage;
+import com.example.chat.codec.FrameError;
+import com.example.chat.codec.InboundFrame;
+import com.example.chat.codec.WireFormat;
+import com.example.chat.config.ChatConstants;
+import com.example.chat.config.ChatProperties;
 import com.example.chat.dto.MessageRequest;
+import com.example.chat.exception.ConnectionLimitExceededException;
 import com.example.chat.mapper.MessageMapper;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.metrics.Transport;
+import com.example.chat.presence.PresenceRegistry;
+import com.example.chat.ratelimit.LimitScope;
+import com.example.chat.ratelimit.RateLimiter;
 import com.example.chat.service.ChatService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.chat.session.ClientSession;
+import com.example.chat.session.SessionRegistry;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+/**
+ * WebSocket handler for the chat endpoint.
+ * Every session joins the room given by the "room" query parameter, publishes its
+ * inbound frames to that room and receives the shared broadcast of the room's messages.
+ * A reconnecting client passes the last sequence id it saw as "since" to replay what it missed.
+ * Clients may negotiate a binary {@link WireFormat} through the WebSocket subprotocol; the default is JSON.
+ * Clients that negotiate {@link WireFormat#JSON_DEFLATE_SUBPROTOCOL} receive messages over the compression
+ * threshold as binary frames of deflated JSON, compressed once per message for all such sessions.
+ * Inbound frames are rate limited per session, per remote address and per sender; frames over a limit
+ * are dropped and answered with a rate-limit error frame.
+ * Sessions are admitted through the {@link SessionRegistry}, pinged every chat.sessions.ping-interval
+ * and closed once they have sent nothing, not even a pong, for chat.sessions.idle-timeout.
+ * A session that names its user with the "user" query parameter is shown online in the room while connected
+ * and may send {@code {"typing": true|false}}; every session receives the room's presence from the
+ * {@link PresenceRegistry}, which drops stale presence rather than queueing it ahead of chat messages.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class ChatWebSocketHandler implements WebSocketHandler {
 
+    private static final byte[] PING_PAYLOAD = "ping".getBytes(StandardCharsets.US_ASCII);
+
     private final ChatService chatService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChatFrameCodec frameCodec;
+    private final ChatMetrics metrics;
+    private final RateLimiter rateLimiter;
+    private final SessionRegistry sessionRegistry;
+    private final PresenceRegistry presenceRegistry;
+    private final Duration pingInterval;
+    private final long idleTimeoutNanos;
+    private final List<String> subProtocols;
+
+    public ChatWebSocketHandler(ChatService chatService, ChatFrameCodec frameCodec, ChatMetrics metrics, RateLimiter rateLimiter,
+                                SessionRegistry sessionRegistry, PresenceRegistry presenceRegistry, ChatProperties chatProperties) {
+        this.chatService = chatService;
+        this.frameCodec = frameCodec;
+        this.metrics = metrics;
+        this.rateLimiter = rateLimiter;
+        this.sessionRegistry = sessionRegistry;
+        this.presenceRegistry = presenceRegistry;
+        this.pingInterval = chatProperties.getSessions().getPingInterval();
+        this.idleTimeoutNanos = chatProperties.getSessions().getIdleTimeout().toNanos();
+        this.subProtocols = WireFormat.subProtocols(chatProperties.getCompression().isWebsocket());
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return subProtocols;
+    }
 
     @Override
     public Mono<Void> handle(WebSocketSession session) {
-        log.info("New WebSocket connection established: {}", session.getId());
-        
-        return session.send(
-            session.receive()
-                .doOnNext(message -> log.debug("Received WebSocket message: {}", message.getPayloadAsText()))
-                .map(WebSocketMessage::getPayloadAsText)
-                .map(this::handleIncomingMessage)
-                .doOnNext(outgoingMessage -> {
-                    // Extract sender and content from the message and publish via reactive service
-                    if (outgoingMessage != null && outgoingMessage.has("sender") && outgoingMessage.has("content")) {
-                        MessageRequest request = new MessageRequest(
-                            outgoingMessage.get("sender").asText(),
-                            outgoingMessage.get("content").asText()
-                        );
-                        chatService.publish(MessageMapper.toEntity(request));
+        MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(session.getHandshakeInfo().getUri())
+                .build()
+                .getQueryParams();
+        String room;
+        String user;
+        Long since;
+        try {
+            room = MessageMapper.roomOrDefault(params.getFirst(ChatConstants.ROOM_PARAM));
+            user = MessageMapper.userOrNull(params.getFirst(ChatConstants.USER_PARAM));
+            String sinceParam = params.getFirst(ChatConstants.SINCE_PARAM);
+            since = sinceParam != null ? Long.valueOf(sinceParam) : null;
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting WebSocket connection {}: {}", session.getId(), e.getMessage());
+            return session.close(CloseStatus.POLICY_VIOLATION);
+        }
+        String subProtocol = session.getHandshakeInfo().getSubProtocol();
+        WireFormat format = WireFormat.fromSubProtocol(subProtocol);
+        boolean deflate = WireFormat.JSON_DEFLATE_SUBPROTOCOL.equals(subProtocol);
+        String address = RateLimiter.addressKey(session.getHandshakeInfo().getRemoteAddress());
+        ClientSession client;
+        try {
+            client = sessionRegistry.register(session.getId(), Transport.WEBSOCKET, address, room);
+        } catch (ConnectionLimitExceededException e) {
+            log.warn("Rejecting WebSocket connection {} from {}: {}", session.getId(), address, e.getMessage());
+            return session.close(CloseStatus.SERVICE_OVERLOAD);
+        }
+        log.info("New WebSocket connection established: {} in room: {} as: {}, format: {}, deflate: {}, resuming after: {}",
+                session.getId(), room, user, format, deflate, since);
+        if (user != null) {
+            presenceRegistry.join(room, user);
+        }
+
+        Flux<WebSocketMessage> replies = session.receive()
+                .doOnNext(frame -> client.touch())
+                .filter(frame -> frame.getType() == WebSocketMessage.Type.TEXT || frame.getType() == WebSocketMessage.Type.BINARY)
+                .mapNotNull(frame -> handleIncomingMessage(session, format, room, user, address, frame));
+
+        // Every session of the room shares each message's encoding; only the per-session wrapper is allocated
+        Flux<EncodedMessage> messages = since != null
+                ? chatService.messages(room, since)
+                : chatService.messages(room);
+        Flux<WebSocketMessage> broadcast = messages.map(message -> {
+            byte[] payload = message.frame(format);
+            byte[] deflated = deflate ? message.deflatedFrame() : null;
+            if (deflated != null) {
+                metrics.delivered(Transport.WEBSOCKET, message, deflated.length);
+                metrics.compressed(Transport.WEBSOCKET, payload.length, deflated.length);
+                return new WebSocketMessage(WebSocketMessage.Type.BINARY, session.bufferFactory().wrap(deflated));
+            }
+            metrics.delivered(Transport.WEBSOCKET, message, payload.length);
+            return new WebSocketMessage(format.frameType(), session.bufferFactory().wrap(payload));
+        });
+
+        // Presence is merged with a prefetch of one, so at most one stale batch waits behind a slow socket
+        Flux<WebSocketMessage> presence = presenceRegistry.updates(room, format)
+                .map(payload -> new WebSocketMessage(format.frameType(), session.bufferFactory().wrap(payload)));
+
+        return session.send(Flux.merge(1, Flux.merge(replies, broadcast, heartbeat(session, client)), presence))
+                .doFinally(signal -> {
+                    if (user != null) {
+                        presenceRegistry.leave(room, user);
                     }
+                    sessionRegistry.unregister(client);
+                    rateLimiter.release(LimitScope.SESSION, session.getId());
                 })
-                .map(message -> {
-                    if (message != null) {
-                        try {
-                            // Echo the message back to the sender
-                            return session.textMessage(objectMapper.writeValueAsString(message));
-                        } catch (Exception e) {
-                            log.error("Error serializing message", e);
-                            return session.textMessage("{\"error\":\"Message serialization failed\"}");
-                        }
-                    } else {
-                        return session.textMessage("{\"error\":\"Invalid message format\"}");
+                .doOnTerminate(() -> log.info("WebSocket connection closed: {}", session.getId()))
+                .doOnError(error -> log.error("WebSocket error for session {}: {}", session.getId(), error.getMessage()));
+    }
+
+    /**
+     * Pings the client every ping interval, or closes the session once it has been silent for the idle timeout.
+     * A connection that died without a close frame fails the ping write, which ends the session as well.
+     *
+     * @param session the WebSocket session
+     * @param client the session's registry entry
+     * @return the ping frames to send
+     */
+    private Flux<WebSocketMessage> heartbeat(WebSocketSession session, ClientSession client) {
+        if (pingInterval.isZero() || pingInterval.isNegative()) {
+            return Flux.empty();
+        }
+        return Flux.interval(pingInterval, pingInterval)
+                .concatMap(tick -> {
+                    long idleNanos = client.idleNanos();
+                    if (idleTimeoutNanos > 0 && idleNanos > idleTimeoutNanos) {
+                        sessionRegistry.evicted(client, Duration.ofNanos(idleNanos));
+                        return session.close(CloseStatus.GOING_AWAY).then(Mono.empty());
                     }
-                })
-        ).doOnTerminate(() -> log.info("WebSocket connection closed: {}", session.getId()))
-         .doOnError(error -> log.error("WebSocket error for session {}: {}", session.getId(), error.getMessage()));
+                    return Mono.just(session.pingMessage(factory -> factory.wrap(PING_PAYLOAD)));
+                });
     }
 
     /**
      * Handles incoming WebSocket messages.
+     * Valid messages are published to the chat; the sender receives them back through the broadcast.
+     * Typing indicators update the session user's presence and are only accepted from sessions with a user.
+     * The frame is decoded in place, before its buffer is released. Session and address limits are
+     * checked before decoding, so a flooding client costs as little as possible.
      *
-     * @param message the incoming WebSocket message payload as String
-     * @return the processed message as JsonNode
+     * @param session the session that sent the message
+     * @param format the session's wire format
+     * @param room the room the session joined
+     * @param user the user the session connected as, or null
+     * @param address the rate-limit key of the client's address
+     * @param frame the incoming WebSocket frame
+     * @return an error frame for the sender, or null when the message was published
      */
-    private JsonNode handleIncomingMessage(String messagePayload) {
+    private WebSocketMessage handleIncomingMessage(WebSocketSession session, WireFormat format, String room, String user,
+                                                   String address, WebSocketMessage frame) {
+        if (rateLimiter.tryAcquire(LimitScope.SESSION, session.getId()) > 0
+                || rateLimiter.tryAcquire(LimitScope.ADDRESS, address) > 0) {
+            log.debug("Rate limited frame from session {} at {}", session.getId(), address);
+            return createErrorResponse(session, format, FrameError.RATE_LIMITED);
+        }
         try {
-            // Parse the incoming message
-            JsonNode jsonNode = objectMapper.readTree(messagePayload);
-            
-            // Validate required fields
-            if (!jsonNode.has("sender") || !jsonNode.has("content")) {
-                log.warn("Invalid message format: missing sender or content");
-                return createErrorResponse("Invalid message format");
+            InboundFrame inbound = frameCodec.decodeFrame(frame.getPayload(), format, room);
+            if (inbound instanceof InboundFrame.Typing typing) {
+                if (user == null) {
+                    log.debug("Typing indicator from session {} without a user", session.getId());
+                    return createErrorResponse(session, format, FrameError.INVALID_REQUEST);
+                }
+                presenceRegistry.typing(room, user, typing.typing());
+                return null;
+            }
+            if (!(inbound instanceof InboundFrame.Chat chat)) {
+                log.warn("Invalid message format from session {}: missing sender or content", session.getId());
+                return createErrorResponse(session, format, FrameError.INVALID_FORMAT);
             }
-            
-            log.debug("Processed message from sender: {}", jsonNode.get("sender").asText());
-            return jsonNode;
-            
-        } catch (Exception e) {
-            log.error("Error parsing JSON message", e);
-            return createErrorResponse("Invalid JSON format");
+            MessageRequest request = chat.request();
+            if (rateLimiter.tryAcquire(LimitScope.SENDER, request.sender()) > 0) {
+                log.debug("Rate limited sender {} on session {}", request.sender(), session.getId());
+                return createErrorResponse(session, format, FrameError.RATE_LIMITED);
+            }
+            log.debug("Processed message from sender: {}", request.sender());
+            chatService.publish(MessageMapper.toEntity(request));
+            return null;
+        } catch (IOException e) {
+            log.warn("Invalid JSON from session {}: {}", session.getId(), e.getMessage());
+            return createErrorResponse(session, format, FrameError.INVALID_JSON);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected message from session {}: {}", session.getId(), e.getMessage());
+            return createErrorResponse(session, format, FrameError.INVALID_REQUEST);
         }
     }
 
     /**
-     * Creates an error response JsonNode.
+     * Creates an error response frame from its precomputed payload.
      *
-     * @param errorMessage the error message
-     * @return the error response as JsonNode
+     * @param session the session the frame is sent to
+     * @param format the session's wire format
+     * @param error the error to report
+     * @return the error response frame
      */
-    private JsonNode createErrorResponse(String errorMessage) {
-        try {
-            String errorJson = String.format("{\"error\":\"%s\"}", errorMessage);
-            return objectMapper.readTree(errorJson);
-        } catch (Exception ex) {
-            log.error("Error creating error response", ex);
-            // Return a simple hardcoded error object
-            return objectMapper.createObjectNode().put("error", "Internal error");
-        }
+    private WebSocketMessage createErrorResponse(WebSocketSession session, WireFormat format, FrameError error) {
+        return new WebSocketMessage(format.frameType(), session.bufferFactory().wrap(frameCodec.errorFrame(error, format)));
     }
 }
-
-
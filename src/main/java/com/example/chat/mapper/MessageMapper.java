@@ -1,30 +1,38 @@
 package com.example.chat.mapper;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
+import com.example.chat.config.ChatConstants;
 import com.example.chat.dto.MessageRequest;
 import com.example.chat.dto.MessageResponse;
+import com.example.chat.dto.SearchHit;
+import com.example.chat.dto.SearchResponse;
 import com.example.chat.model.Message;
+import com.example.chat.model.Names;
+import com.example.chat.search.SearchPage;
 
 /**
  * Mapper class for converting between Message entities and DTOs.
  * Provides static methods for bidirectional conversions.
+ * Messages carry epoch-millisecond timestamps; the API shows them as local date-times in the server's zone.
  */
 public class MessageMapper {
 
+    // Looked up once; ZoneId.systemDefault() clones the default TimeZone on every call
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
     /**
      * Converts a MessageRequest to a Message entity.
-     * Sets the current timestamp.
+     * Sets the current timestamp, falls back to the default room and interns the room and sender names.
      *
      * @param request the incoming message request
      * @return the created Message entity
      */
     public static Message toEntity(MessageRequest request) {
-        return Message.builder()
-                .sender(request.sender())
-                .content(request.content())
-                .timestamp(LocalDateTime.now())
-                .build();
+        return new Message(0, Names.intern(roomOrDefault(request.room())), Names.intern(request.sender()),
+                request.content(), System.currentTimeMillis());
     }
 
     /**
@@ -35,9 +43,82 @@ public class MessageMapper {
      */
     public static MessageResponse toResponse(Message message) {
         return new MessageResponse(
+                message.getId(),
+                message.getRoom(),
                 message.getSender(),
                 message.getContent(),
-                message.getTimestamp()
+                toLocalDateTime(message.getTimestamp())
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Converts an epoch-millisecond timestamp to a date-time in the server's zone.
+     *
+     * @param epochMillis milliseconds since the epoch
+     * @return the local date-time
+     */
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE);
+    }
+
+    /**
+     * Converts a date-time in the server's zone to an epoch-millisecond timestamp.
+     *
+     * @param dateTime the local date-time, may be null
+     * @return milliseconds since the epoch, or null
+     */
+    public static Long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Converts a page of search matches to a SearchResponse.
+     *
+     * @param query the search text
+     * @param offset the number of skipped matches
+     * @param limit the requested page size
+     * @param page the matches found
+     * @return the search response DTO
+     */
+    public static SearchResponse toSearchResponse(String query, int offset, int limit, SearchPage page) {
+        return new SearchResponse(query, page.total(), offset, limit, page.matches().stream()
+                .map(match -> new SearchHit(toResponse(match.message()), match.score()))
+                .toList());
+    }
+
+    /**
+     * Resolves a client-supplied room id, using the default room when none is given.
+     *
+     * @param room the requested room, may be null or blank
+     * @return the room id to use
+     * @throws IllegalArgumentException if the room id is too long
+     */
+    public static String roomOrDefault(String room) {
+        if (room == null || room.isBlank()) {
+            return ChatConstants.DEFAULT_ROOM;
+        }
+        String trimmed = room.trim();
+        if (trimmed.length() > ChatConstants.MAX_ROOM_LENGTH) {
+            throw new IllegalArgumentException("Room name is too long");
+        }
+        return trimmed;
+    }
+
+    /**
+     * Resolves the user name a client connected as.
+     *
+     * @param user the requested user name, may be null or blank
+     * @return the canonical user name, or null if none was given
+     * @throws IllegalArgumentException if the user name is too long
+     */
+    public static String userOrNull(String user) {
+        if (user == null || user.isBlank()) {
+            return null;
+        }
+        String trimmed = user.trim();
+        if (trimmed.length() > ChatConstants.MAX_USER_LENGTH) {
+            throw new IllegalArgumentException("User name is too long");
+        }
+        return Names.intern(trimmed);
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.chat.metrics;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import org.springframework.stereotype.Component;
+
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.EncodedMessage;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.codec.WireFormat;
+import com.example.chat.presence.PresenceRegistry;
+import com.example.chat.ratelimit.LimitScope;
+import com.example.chat.search.SearchIndex;
+import com.example.chat.session.ConnectionLimit;
+import com.example.chat.session.SessionRegistry;
+import com.example.chat.service.SubscriberQueues;
+import com.example.chat.service.SubscriberStats;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Micrometer meters for the publish-to-deliver path.
+ *
+ * <p>Meters on the hot path are created once up front, so recording is a counter increment or a timer
+ * update with no registry lookup. Subscriber queue depth and codec work are read from their owners
+ * when the registry is scraped.
+ */
+@Component
+public class ChatMetrics {
+
+    private final MeterRegistry registry;
+    private final Counter published;
+    private final Counter peerReceived;
+    private final Counter peerDuplicates;
+    private final Map<Sinks.EmitResult, Counter> emitFailures = new EnumMap<>(Sinks.EmitResult.class);
+    private final Map<Transport, Counter> sessionsEvicted = new EnumMap<>(Transport.class);
+    private final Map<ConnectionLimit, Counter> connectionsRejected = new EnumMap<>(ConnectionLimit.class);
+    private final Map<Transport, Timer> deliveryLatency = new EnumMap<>(Transport.class);
+    private final Map<Transport, Counter> bytesWritten = new EnumMap<>(Transport.class);
+    private final Map<Transport, Counter> bytesSaved = new EnumMap<>(Transport.class);
+    private final Map<LimitScope, Counter> rateLimited = new EnumMap<>(LimitScope.class);
+    private final Counter presenceUpdates;
+    private final Counter presenceCoalesced;
+    private final Counter presenceChanges;
+    private final Counter presenceSkipped;
+
+    public ChatMetrics(MeterRegistry registry, SubscriberQueues subscriberQueues, ChatFrameCodec frameCodec) {
+        this.registry = registry;
+        this.published = Counter.builder("chat.messages.published")
+                .description("Messages accepted for broadcast")
+                .register(registry);
+        this.peerReceived = Counter.builder("chat.cluster.received")
+                .description("Messages from other nodes broadcast on this node")
+                .register(registry);
+        this.peerDuplicates = Counter.builder("chat.cluster.duplicates")
+                .description("Messages from other nodes dropped as already delivered")
+                .register(registry);
+        this.presenceUpdates = Counter.builder("chat.presence.updates")
+                .description("Presence and typing updates received")
+                .register(registry);
+        this.presenceCoalesced = Counter.builder("chat.presence.coalesced")
+                .description("Presence updates superseded by a newer update of the same user before being broadcast")
+                .register(registry);
+        this.presenceChanges = Counter.builder("chat.presence.changes")
+                .description("User state changes broadcast in presence batches")
+                .register(registry);
+        this.presenceSkipped = Counter.builder("chat.presence.skipped")
+                .description("Times a session skipped stale presence batches and was sent the accumulated changes instead")
+                .register(registry);
+        for (Sinks.EmitResult result : Sinks.EmitResult.values()) {
+            if (result.isFailure()) {
+                emitFailures.put(result, Counter.builder("chat.emit.failures")
+                        .description("Broadcasts the room sink did not accept")
+                        .tag("result", result.name())
+                        .register(registry));
+            }
+        }
+        for (Transport transport : Transport.values()) {
+            sessionsEvicted.put(transport, Counter.builder("chat.sessions.evicted")
+                    .description("Sessions closed for not answering pings")
+                    .tag("transport", transport.tag())
+                    .register(registry));
+            deliveryLatency.put(transport, Timer.builder("chat.delivery.latency")
+                    .description("Time from publish to the frame being handed to the connection")
+                    .tag("transport", transport.tag())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(50_000))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry));
+            bytesWritten.put(transport, Counter.builder("chat.bytes.written")
+                    .description("Payload bytes handed to client connections")
+                    .baseUnit("bytes")
+                    .tag("transport", transport.tag())
+                    .register(registry));
+            bytesSaved.put(transport, Counter.builder("chat.compression.saved")
+                    .description("Payload bytes not written to client connections because the payload was sent compressed")
+                    .baseUnit("bytes")
+                    .tag("transport", transport.tag())
+                    .register(registry));
+        }
+        for (LimitScope scope : LimitScope.values()) {
+            rateLimited.put(scope, Counter.builder("chat.ratelimit.rejected")
+                    .description("Inbound messages rejected for exceeding a rate limit")
+                    .tag("scope", scope.tag())
+                    .register(registry));
+        }
+        for (ConnectionLimit limit : ConnectionLimit.values()) {
+            connectionsRejected.put(limit, Counter.builder("chat.sessions.rejected")
+                    .description("Connections refused because a connection limit was reached")
+                    .tag("limit", limit.tag())
+                    .register(registry));
+        }
+        for (WireFormat format : WireFormat.values()) {
+            FunctionCounter.builder("chat.messages.encoded", frameCodec, codec -> codec.encodeCount(format))
+                    .description("Message encodings; stays at one per message and format however many clients receive it")
+                    .tag("format", format.name().toLowerCase())
+                    .register(registry);
+        }
+        FrameCompressor compressor = frameCodec.compressor();
+        FunctionTimer.builder("chat.compression.time", compressor, FrameCompressor::compressions,
+                        FrameCompressor::compressionNanos, TimeUnit.NANOSECONDS)
+                .description("Time spent deflating messages, once per message however many clients receive it")
+                .register(registry);
+        FunctionCounter.builder("chat.compression.input", compressor, FrameCompressor::inputBytes)
+                .description("Bytes of messages deflated")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("chat.compression.output", compressor, FrameCompressor::outputBytes)
+                .description("Bytes the deflated messages came to")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("chat.compression.skipped", compressor, FrameCompressor::skipped)
+                .description("Messages sent uncompressed for being under the threshold or not getting smaller")
+                .register(registry);
+        Gauge.builder("chat.subscribers", subscriberQueues, queues -> queues.stats().size())
+                .description("Subscriber queues currently attached to a broadcast")
+                .register(registry);
+        Gauge.builder("chat.subscribers.queue.depth.max", subscriberQueues,
+                        queues -> queues.stats().stream().mapToLong(SubscriberStats::getLag).max().orElse(0))
+                .description("Deepest subscriber queue")
+                .register(registry);
+        Gauge.builder("chat.subscribers.queued", subscriberQueues,
+                        queues -> queues.stats().stream().mapToLong(SubscriberStats::getLag).sum())
+                .description("Messages waiting across all subscriber queues")
+                .register(registry);
+        FunctionCounter.builder("chat.subscribers.dropped", subscriberQueues, SubscriberQueues::droppedTotal)
+                .description("Messages dropped by full subscriber queues")
+                .register(registry);
+        FunctionCounter.builder("chat.subscribers.disconnected", subscriberQueues, SubscriberQueues::disconnectedTotal)
+                .description("Subscribers disconnected for overflowing their queue")
+                .register(registry);
+    }
+
+    /**
+     * Exposes the message sequence as the "chat.messages.sequence" gauge.
+     *
+     * @param sequence the last assigned message id
+     */
+    public void trackSequence(AtomicLong sequence) {
+        Gauge.builder("chat.messages.sequence", sequence, AtomicLong::get)
+                .description("Last assigned message sequence id")
+                .register(registry);
+    }
+
+    /**
+     * Exposes the connected clients of each transport as the "chat.sessions.active" gauge.
+     *
+     * @param sessionRegistry the session registry
+     */
+    public void trackSessions(SessionRegistry sessionRegistry) {
+        for (Transport transport : Transport.values()) {
+            Gauge.builder("chat.sessions.active", sessionRegistry, sessions -> sessions.active(transport))
+                    .description("Connected clients receiving the broadcast")
+                    .tag("transport", transport.tag())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Exposes the size of the search index and its indexing queue as "chat.search.*" meters.
+     *
+     * @param searchIndex the search index
+     */
+    public void trackSearch(SearchIndex searchIndex) {
+        Gauge.builder("chat.search.documents", searchIndex, SearchIndex::documentCount)
+                .description("Messages in the search index")
+                .register(registry);
+        Gauge.builder("chat.search.terms", searchIndex, SearchIndex::termCount)
+                .description("Distinct terms in the search index")
+                .register(registry);
+        Gauge.builder("chat.search.postings", searchIndex, SearchIndex::postingCount)
+                .description("Posting list entries, including those of evicted messages not yet compacted")
+                .register(registry);
+        Gauge.builder("chat.search.queued", searchIndex, SearchIndex::queued)
+                .description("Published messages waiting to be indexed")
+                .register(registry);
+        FunctionCounter.builder("chat.search.dropped", searchIndex, SearchIndex::droppedTotal)
+                .description("Published messages not indexed because the indexing queue was full")
+                .register(registry);
+    }
+
+    /**
+     * Exposes the rooms tracked for presence as the "chat.presence.rooms" gauge.
+     *
+     * @param presenceRegistry the presence registry
+     */
+    public void trackPresence(PresenceRegistry presenceRegistry) {
+        Gauge.builder("chat.presence.rooms", presenceRegistry, PresenceRegistry::activeRooms)
+                .description("Rooms with presence state or presence subscribers")
+                .register(registry);
+    }
+
+    /**
+     * Exposes the load of one broadcast shard as the "chat.broadcast.subscribers" and "chat.broadcast.queued" gauges.
+     *
+     * @param shard the shard index
+     * @param subscribers the room subscribers delivered to by the shard
+     * @param queued the deliveries waiting for the shard's thread
+     */
+    public void trackBroadcastShard(int shard, IntSupplier subscribers, IntSupplier queued) {
+        Gauge.builder("chat.broadcast.subscribers", subscribers::getAsInt)
+                .description("Room subscribers delivered to by a broadcast shard")
+                .tag("shard", Integer.toString(shard))
+                .register(registry);
+        Gauge.builder("chat.broadcast.queued", queued::getAsInt)
+                .description("Deliveries waiting for a broadcast shard's thread")
+                .tag("shard", Integer.toString(shard))
+                .register(registry);
+    }
+
+    /**
+     * Creates the "chat.moderation.latency" timer of a moderation stage, including results served from its cache.
+     *
+     * @param stage the stage name
+     * @return the timer
+     */
+    public Timer moderationLatency(String stage) {
+        return Timer.builder("chat.moderation.latency")
+                .description("Time a moderation stage took to decide about a message")
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    /**
+     * Creates the "chat.moderation.rejected" counter of a moderation stage.
+     *
+     * @param stage the stage name
+     * @return the counter
+     */
+    public Counter moderationRejected(String stage) {
+        return Counter.builder("chat.moderation.rejected")
+                .description("Messages a moderation stage rejected")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    /**
+     * Creates the "chat.moderation.failures" counter of a moderation stage.
+     *
+     * @param stage the stage name
+     * @return the counter
+     */
+    public Counter moderationFailed(String stage) {
+        return Counter.builder("chat.moderation.failures")
+                .description("Messages passed on unchanged because a moderation stage failed or timed out")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    /**
+     * Exposes the result cache of a moderation stage as the standard "cache.*" meters, tagged cache=moderation.
+     *
+     * @param stage the stage name
+     * @param cache the cache, which must record stats
+     */
+    public void trackModerationCache(String stage, Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(registry, cache, "moderation", "stage", stage);
+    }
+
+    public void published(int count) {
+        published.increment(count);
+    }
+
+    public void peerReceived() {
+        peerReceived.increment();
+    }
+
+    public void peerDuplicate() {
+        peerDuplicates.increment();
+    }
+
+    public void emitFailed(Sinks.EmitResult result) {
+        emitFailures.get(result).increment();
+    }
+
+    public void rateLimited(LimitScope scope) {
+        rateLimited.get(scope).increment();
+    }
+
+    public void sessionEvicted(Transport transport) {
+        sessionsEvicted.get(transport).increment();
+    }
+
+    public void connectionRejected(ConnectionLimit limit) {
+        connectionsRejected.get(limit).increment();
+    }
+
+    /**
+     * @param coalesced whether the update replaced one that had not been broadcast yet
+     */
+    public void presenceUpdated(boolean coalesced) {
+        presenceUpdates.increment();
+        if (coalesced) {
+            presenceCoalesced.increment();
+        }
+    }
+
+    public void presenceFlushed(int changes) {
+        presenceChanges.increment(changes);
+    }
+
+    public void presenceSkipped() {
+        presenceSkipped.increment();
+    }
+
+    /**
+     * Records a frame handed to a client connection.
+     * Latency is only recorded for live messages; replayed history would skew it by its age.
+     *
+     * @param transport how the frame is delivered
+     * @param message the delivered message
+     * @param bytes the payload size
+     */
+    public void delivered(Transport transport, EncodedMessage message, int bytes) {
+        bytesWritten.get(transport).increment(bytes);
+        if (message.publishedNanos() != 0) {
+            deliveryLatency.get(transport).record(System.nanoTime() - message.publishedNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records a frame handed to a client connection in compressed form, after {@link #delivered}.
+     * Frames that framing made larger, such as stored deflate blocks, count as saving nothing.
+     *
+     * @param transport how the frame is delivered
+     * @param uncompressedBytes the payload size before compression
+     * @param bytes the payload size written
+     */
+    public void compressed(Transport transport, int uncompressedBytes, int bytes) {
+        if (bytes < uncompressedBytes) {
+            bytesSaved.get(transport).increment(uncompressedBytes - bytes);
+        }
+    }
+}
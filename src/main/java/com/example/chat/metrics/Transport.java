@@ -0,0 +1,19 @@
+package com.example.chat.metrics;
+
+/**
+ * Ways a client receives the chat broadcast, used as the "transport" meter tag.
+ */
+public enum Transport {
+    WEBSOCKET("websocket"),
+    SSE("sse");
+
+    private final String tag;
+
+    Transport(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
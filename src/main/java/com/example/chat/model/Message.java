@@ -1,18 +1,32 @@
 package com.example.chat.model;
 
-import java.time.LocalDateTime;
+import com.example.chat.config.ChatConstants;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
+import lombok.With;
 
 /**
  * Domain model representing a chat message.
- * Contains the sender, content, and timestamp of the message.
+ * Contains the sequence id, room, sender, content, and timestamp of the message.
+ * The sequence id is assigned when the message is published and increases monotonically.
+ *
+ * <p>Messages are immutable, so one instance is safely shared by the history, the search index and every
+ * subscriber; publishing assigns the id with {@link #withId(long)}. The timestamp is epoch milliseconds
+ * instead of a LocalDateTime and its two nested objects, and room and sender names are expected to come
+ * from {@link Names#intern(String)}, so the many messages of one sender share a single String.
  */
-@Data
+@Value
 @Builder
+@AllArgsConstructor
 public class Message {
-    private String sender;
-    private String content;
-    private LocalDateTime timestamp;
+    @With
+    long id;
+    @Builder.Default
+    String room = ChatConstants.DEFAULT_ROOM;
+    String sender;
+    @With
+    String content;
+    long timestamp;
 }
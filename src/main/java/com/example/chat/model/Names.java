@@ -0,0 +1,27 @@
+package com.example.chat.model;
+
+import com.github.benmanes.caffeine.cache.Interner;
+
+/**
+ * Canonical instances of room and sender names.
+ * Every decoded message would otherwise carry its own copy of a name that a busy room repeats thousands
+ * of times in its history. Names are held weakly, so those of departed senders are garbage collected.
+ */
+public final class Names {
+
+    private static final Interner<String> NAMES = Interner.newWeakInterner();
+
+    private Names() {
+        // Utility class
+    }
+
+    /**
+     * Returns the canonical instance of a name.
+     *
+     * @param name a room or sender name, may be null
+     * @return an equal String shared by every caller, or null
+     */
+    public static String intern(String name) {
+        return name == null ? null : NAMES.intern(name);
+    }
+}
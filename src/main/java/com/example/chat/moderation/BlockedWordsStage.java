@@ -0,0 +1,59 @@
+package com.example.chat.moderation;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatConstants;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.model.Message;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Masks the words of chat.moderation.blocked-words with asterisks, whole words only and ignoring case.
+ * Chat repeats itself, so results are cached by content.
+ */
+@Component
+@Order(0)
+@ConditionalOnProperty(name = ChatConstants.CHAT_MODERATION_BLOCKED_WORDS_KEY)
+public class BlockedWordsStage implements MessageStage {
+
+    private final Pattern blocked;
+
+    public BlockedWordsStage(ChatProperties chatProperties) {
+        List<String> words = chatProperties.getModeration().getBlockedWords();
+        this.blocked = Pattern.compile(words.stream()
+                        .map(String::strip)
+                        .filter(word -> !word.isEmpty())
+                        .map(Pattern::quote)
+                        .collect(Collectors.joining("|", "\\b(?:", ")\\b")),
+                Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    @Override
+    public String name() {
+        return "blocked-words";
+    }
+
+    @Override
+    public StageMode mode() {
+        return StageMode.SYNC;
+    }
+
+    @Override
+    public boolean cacheable() {
+        return true;
+    }
+
+    @Override
+    public Mono<StageResult> apply(Message message) {
+        Matcher matcher = blocked.matcher(message.getContent());
+        return Mono.just(StageResult.pass(matcher.replaceAll(match -> "*".repeat(match.group().length()))));
+    }
+}
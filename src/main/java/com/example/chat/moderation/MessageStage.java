@@ -0,0 +1,44 @@
+package com.example.chat.moderation;
+
+import com.example.chat.model.Message;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * One step of the moderation a message passes before it is published, such as filtering words,
+ * expanding links or scoring spam. Stages are Spring beans applied in {@link org.springframework.core.annotation.Order}
+ * order, each to the content left by the previous one; the first rejection stops the message.
+ *
+ * <p>A stage that fails or, when {@link StageMode#ASYNC}, times out is skipped: the message goes on unchanged,
+ * so a broken dependency degrades moderation rather than chat.
+ */
+public interface MessageStage {
+
+    /**
+     * @return the stage name, used in logs and as the "stage" tag of its meters
+     */
+    String name();
+
+    /**
+     * @return how the stage runs
+     */
+    StageMode mode();
+
+    /**
+     * Whether the result depends on the content alone, so it may be cached by content.
+     *
+     * @return true to cache results, for stages that are expensive and see repeated content
+     */
+    default boolean cacheable() {
+        return false;
+    }
+
+    /**
+     * Moderates a message. {@link StageMode#SYNC} and {@link StageMode#CPU} stages return a result that is
+     * already available, such as {@code Mono.just(...)}.
+     *
+     * @param message the message, with the content left by the previous stages
+     * @return the result, for one message
+     */
+    Mono<StageResult> apply(Message message);
+}
@@ -0,0 +1,211 @@
+package com.example.chat.moderation;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.model.Message;
+import com.example.chat.scheduling.ChatSchedulers;
+import com.example.chat.scheduling.Emissions;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Runs the {@link MessageStage}s in front of publishing, off the publishing thread when a stage needs it.
+ *
+ * <p>Messages are moderated concurrently, at most chat.moderation.parallelism at once, but each sender's
+ * messages one after another in the order they were submitted: every sender has a lane, and only the head
+ * of a lane is ever in the pipeline. Results of cacheable stages are kept by content in a Caffeine cache
+ * of chat.moderation.cache-size entries, evicting the least recently and frequently used. Every stage
+ * records its latency, including cache hits, as "chat.moderation.latency".
+ */
+@Component
+@Slf4j
+public class ModerationPipeline {
+
+    private record Step(MessageStage stage, Timer latency, Counter rejected, Counter failed,
+                        Cache<String, StageResult> cache) {
+    }
+
+    private record Pending(Message message, Consumer<Message> publish) {
+    }
+
+    /**
+     * The messages of one sender waiting for moderation. It is scheduled, that is queued for or in the
+     * pipeline, exactly while it has messages.
+     */
+    private static final class SenderLane {
+        private final String sender;
+        private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private SenderLane(String sender) {
+            this.sender = sender;
+        }
+    }
+
+    private final List<Step> steps;
+    private final Duration timeout;
+    private final Scheduler cpu;
+    private final Map<String, SenderLane> lanes = new ConcurrentHashMap<>();
+    private final Sinks.Many<SenderLane> ready = Sinks.many().unicast().onBackpressureBuffer();
+    private final int parallelism;
+    private final Disposable worker;
+
+    public ModerationPipeline(ChatProperties chatProperties, List<MessageStage> stages, ChatMetrics metrics,
+                              ChatSchedulers schedulers) {
+        ChatProperties.Moderation settings = chatProperties.getModeration();
+        this.timeout = settings.getTimeout();
+        this.cpu = schedulers.cpu();
+        this.parallelism = settings.getParallelism();
+        this.steps = stages.stream()
+                .map(stage -> {
+                    Cache<String, StageResult> cache = null;
+                    if (stage.cacheable()) {
+                        cache = Caffeine.newBuilder().maximumSize(settings.getCacheSize()).recordStats().build();
+                        metrics.trackModerationCache(stage.name(), cache);
+                    }
+                    return new Step(stage, metrics.moderationLatency(stage.name()), metrics.moderationRejected(stage.name()),
+                            metrics.moderationFailed(stage.name()), cache);
+                })
+                .toList();
+        this.worker = ready.asFlux()
+                .flatMap(this::moderateNext, parallelism)
+                .subscribe();
+        log.info("Moderation stages: {}, parallelism: {}", stages.stream().map(MessageStage::name).toList(), parallelism);
+    }
+
+    /**
+     * @return true if there are no stages, so messages can be published as they are
+     */
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    /**
+     * @return how many messages may be moderated at once
+     */
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Moderates a message and publishes it unless it is rejected. The sender's earlier messages are
+     * published, or rejected, first.
+     *
+     * @param message the message to moderate
+     * @param publish publishes the moderated message; runs on the thread the last stage completed on
+     */
+    public void submit(Message message, Consumer<Message> publish) {
+        String sender = message.getSender();
+        SenderLane lane = lanes.compute(sender, (key, existing) -> {
+            existing = existing != null ? existing : new SenderLane(key);
+            // Offered under the map's lock, so the lane cannot be removed between finding it and queueing
+            existing.pending.offer(new Pending(message, publish));
+            return existing;
+        });
+        schedule(lane);
+    }
+
+    /**
+     * Moderates one message, without ordering it against others.
+     *
+     * @param message the message to moderate
+     * @return the moderated message, or empty if a stage rejected it
+     */
+    public Mono<Message> moderate(Message message) {
+        Mono<Message> moderated = Mono.just(message);
+        for (Step step : steps) {
+            moderated = moderated.flatMap(current -> apply(step, current));
+        }
+        return moderated;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.dispose();
+    }
+
+    private void schedule(SenderLane lane) {
+        if (!lane.pending.isEmpty() && lane.scheduled.compareAndSet(false, true)) {
+            Emissions.emitNext(ready, lane);
+        }
+    }
+
+    private Mono<Void> moderateNext(SenderLane lane) {
+        Pending next = lane.pending.poll();
+        return moderate(next.message())
+                .doOnNext(next.publish())
+                .onErrorResume(error -> {
+                    log.error("Failed to publish moderated message from sender {}", lane.sender, error);
+                    return Mono.empty();
+                })
+                .doFinally(signal -> {
+                    lane.scheduled.set(false);
+                    schedule(lane);
+                    lanes.computeIfPresent(lane.sender, (key, existing) ->
+                            existing.pending.isEmpty() && !existing.scheduled.get() ? null : existing);
+                })
+                .then();
+    }
+
+    private Mono<Message> apply(Step step, Message message) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            String content = message.getContent();
+            StageResult cached = step.cache() != null ? step.cache().getIfPresent(content) : null;
+            Mono<StageResult> result = cached != null ? Mono.just(cached) : run(step.stage(), message)
+                    .doOnNext(computed -> {
+                        if (step.cache() != null) {
+                            step.cache().put(content, computed);
+                        }
+                    });
+            return result
+                    .defaultIfEmpty(StageResult.pass(content))
+                    .onErrorResume(error -> {
+                        // A failing stage is skipped rather than holding up the sender's messages
+                        step.failed().increment();
+                        log.warn("Stage {} failed, passing message from sender {} unchanged: {}",
+                                step.stage().name(), message.getSender(), error.toString());
+                        return Mono.just(StageResult.pass(content));
+                    })
+                    .doOnSuccess(outcome -> step.latency().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS))
+                    .mapNotNull(outcome -> {
+                        if (outcome.rejected()) {
+                            step.rejected().increment();
+                            log.debug("Stage {} rejected message from sender {}: {}",
+                                    step.stage().name(), message.getSender(), outcome.rejection());
+                            return null;
+                        }
+                        return outcome.content().equals(content) ? message : message.withContent(outcome.content());
+                    });
+        });
+    }
+
+    private Mono<StageResult> run(MessageStage stage, Message message) {
+        return switch (stage.mode()) {
+            case SYNC -> stage.apply(message);
+            case CPU -> Mono.defer(() -> stage.apply(message)).subscribeOn(cpu);
+            case ASYNC -> Mono.defer(() -> stage.apply(message)).timeout(timeout);
+        };
+    }
+}
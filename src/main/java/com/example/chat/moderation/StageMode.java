@@ -0,0 +1,24 @@
+package com.example.chat.moderation;
+
+/**
+ * How a {@link MessageStage} runs, which decides the thread it runs on.
+ */
+public enum StageMode {
+
+    /**
+     * Returns its result at once and is cheap enough to run on the publishing thread, usually an event loop.
+     */
+    SYNC,
+
+    /**
+     * Computes its result without waiting, but long enough that it runs on the CPU scheduler
+     * rather than an event loop.
+     */
+    CPU,
+
+    /**
+     * Waits on something outside the process, such as an HTTP call; its result arrives on whatever thread
+     * completes it, and it is skipped when it takes longer than chat.moderation.timeout.
+     */
+    ASYNC
+}
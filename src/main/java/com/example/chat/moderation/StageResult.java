@@ -0,0 +1,24 @@
+package com.example.chat.moderation;
+
+/**
+ * What a {@link MessageStage} decided about a message: pass it on with its content, possibly rewritten,
+ * or reject it. A result depends only on the content it was computed from, so a cacheable stage's result
+ * is reused for every message with the same content.
+ *
+ * @param content the content to pass on, or null when rejected
+ * @param rejection why the message was rejected, or null when it passes
+ */
+public record StageResult(String content, String rejection) {
+
+    public static StageResult pass(String content) {
+        return new StageResult(content, null);
+    }
+
+    public static StageResult reject(String reason) {
+        return new StageResult(null, reason);
+    }
+
+    public boolean rejected() {
+        return rejection != null;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.chat.presence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.WireFormat;
+
+/**
+ * Presence changes of one room to deliver together, with their wire encodings.
+ *
+ * <p>A batch flushed for the whole room is shared by every session that is up to date and encoded at most once
+ * per format, like a chat message. A snapshot, or the catch-up of a session that missed batches, is built for that
+ * session alone.
+ */
+public final class PresenceBatch {
+
+    private final String room;
+    private final long version;
+    private final List<PresenceChange> changes;
+    private final boolean snapshot;
+    private final ChatFrameCodec codec;
+    private final AtomicReferenceArray<byte[]> frames = new AtomicReferenceArray<>(WireFormat.values().length);
+
+    /**
+     * @param room the room
+     * @param version the room's presence version the batch brings a session up to
+     * @param changes the latest state of each user that changed
+     * @param snapshot whether the changes are the room's complete presence, replacing what the client knew
+     * @param codec the codec to encode the batch with
+     */
+    PresenceBatch(String room, long version, List<PresenceChange> changes, boolean snapshot, ChatFrameCodec codec) {
+        this.room = room;
+        this.version = version;
+        this.changes = changes;
+        this.snapshot = snapshot;
+        this.codec = codec;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public List<PresenceChange> changes() {
+        return changes;
+    }
+
+    public boolean snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the batch encoded as a WebSocket frame payload.
+     * Encoding twice in a race is harmless, the frames being small and equal.
+     *
+     * @param format the wire format
+     * @return the shared encoded payload
+     */
+    public byte[] frame(WireFormat format) {
+        byte[] frame = frames.get(format.ordinal());
+        if (frame == null) {
+            try {
+                frame = codec.encodePresence(room, changes, snapshot, format);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to encode presence of room " + room, e);
+            }
+            frames.set(format.ordinal(), frame);
+        }
+        return frame;
+    }
+}
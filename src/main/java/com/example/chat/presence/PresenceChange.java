@@ -0,0 +1,10 @@
+package com.example.chat.presence;
+
+/**
+ * The latest state of one user in a room.
+ *
+ * @param user the user name
+ * @param state the user's state
+ */
+public record PresenceChange(String user, PresenceState state) {
+}
@@ -0,0 +1,168 @@
+package com.example.chat.presence;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.WireFormat;
+import com.example.chat.config.ChatConstants;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.scheduling.ChatSchedulers;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Who is online and who is typing in each room, delivered to WebSocket sessions apart from the chat broadcast.
+ *
+ * <p>Presence is lossy by design: only the latest state of each user matters. Updates are coalesced per user and
+ * flushed every chat.presence.window, each session keeps at most the newest batch it has not taken yet, and a
+ * session that skipped batches is sent what changed since the last one it took. A presence storm therefore costs
+ * a map write per update and one batch per window, and never queues in the subscriber queues of chat messages.
+ */
+@Component
+@Slf4j
+public class PresenceRegistry {
+
+    private final boolean enabled;
+    private final long typingTimeoutNanos;
+    private final long retentionNanos;
+    private final ChatFrameCodec codec;
+    private final ChatMetrics metrics;
+    private final Map<String, PresenceRoom> rooms = new ConcurrentHashMap<>();
+    private final Disposable flusher;
+
+    public PresenceRegistry(ChatProperties chatProperties, ChatFrameCodec codec, ChatMetrics metrics, ChatSchedulers schedulers) {
+        ChatProperties.Presence settings = chatProperties.getPresence();
+        this.enabled = settings.isEnabled();
+        this.typingTimeoutNanos = settings.getTypingTimeout().toNanos();
+        this.retentionNanos = ChatConstants.PRESENCE_OFFLINE_RETENTION.toNanos();
+        this.codec = codec;
+        this.metrics = metrics;
+        metrics.trackPresence(this);
+        Duration window = settings.getWindow();
+        this.flusher = enabled
+                ? Flux.interval(window, window, schedulers.cpu()).subscribe(tick -> flush())
+                : null;
+        log.info("Presence {}, window: {}, typing timeout: {}", enabled ? "enabled" : "disabled", window, settings.getTypingTimeout());
+    }
+
+    /**
+     * Records a session of a user joining a room; the user comes online with their first session.
+     *
+     * @param room the room
+     * @param user the user name
+     */
+    public void join(String room, String user) {
+        if (!enabled) {
+            return;
+        }
+        rooms.compute(room, (id, presence) -> {
+            presence = presence != null ? presence : new PresenceRoom(id, codec);
+            if (presence.join(user)) {
+                update(presence, user, PresenceState.ONLINE);
+            }
+            return presence;
+        });
+    }
+
+    /**
+     * Records a session of a user leaving a room; the user goes offline with their last session.
+     *
+     * @param room the room
+     * @param user the user name
+     */
+    public void leave(String room, String user) {
+        PresenceRoom presence = enabled ? rooms.get(room) : null;
+        if (presence != null && presence.leave(user)) {
+            update(presence, user, PresenceState.OFFLINE);
+        }
+    }
+
+    /**
+     * Records that a user started or stopped typing. A typing state that is not renewed within
+     * chat.presence.typing-timeout ends on its own.
+     *
+     * @param room the room
+     * @param user the user name, which must have joined the room
+     * @param typing whether the user is typing
+     */
+    public void typing(String room, String user, boolean typing) {
+        PresenceRoom presence = enabled ? rooms.get(room) : null;
+        if (presence != null) {
+            update(presence, user, typing ? PresenceState.TYPING : PresenceState.ONLINE);
+        }
+    }
+
+    /**
+     * Streams a room's presence to one session: a snapshot of who is there, then the coalesced changes.
+     * The stream keeps only the newest batch the session has not requested yet and never buffers more.
+     *
+     * @param room the room
+     * @param format the session's wire format
+     * @return the frame payloads to send
+     */
+    public Flux<byte[]> updates(String room, WireFormat format) {
+        if (!enabled) {
+            return Flux.empty();
+        }
+        return Flux.defer(() -> {
+            PresenceRoom presence = rooms.compute(room, (id, existing) -> {
+                existing = existing != null ? existing : new PresenceRoom(id, codec);
+                existing.acquire();
+                return existing;
+            });
+            long[] seen = {-1};
+            return presence.flux()
+                    .onBackpressureLatest()
+                    .startWith(presence.since(-1))
+                    .mapNotNull(batch -> {
+                        if (batch.version() <= seen[0]) {
+                            return null;
+                        }
+                        if (seen[0] >= 0 && batch.version() > seen[0] + 1) {
+                            metrics.presenceSkipped();
+                            batch = presence.since(seen[0]);
+                        }
+                        seen[0] = batch.version();
+                        return batch.changes().isEmpty() ? null : batch.frame(format);
+                    })
+                    .doFinally(signal -> presence.release());
+        });
+    }
+
+    /**
+     * @return the number of rooms with presence state or subscribers
+     */
+    public int activeRooms() {
+        return rooms.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+    }
+
+    private void update(PresenceRoom presence, String user, PresenceState state) {
+        metrics.presenceUpdated(presence.update(user, state));
+    }
+
+    private void flush() {
+        long now = System.nanoTime();
+        for (PresenceRoom presence : rooms.values()) {
+            PresenceBatch batch = presence.flush(now, typingTimeoutNanos, retentionNanos);
+            if (batch != null) {
+                metrics.presenceFlushed(batch.changes().size());
+            }
+            rooms.computeIfPresent(presence.id(), (id, existing) -> existing.isIdle() ? null : existing);
+        }
+    }
+}
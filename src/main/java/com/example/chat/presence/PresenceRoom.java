@@ -0,0 +1,168 @@
+package com.example.chat.presence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.scheduling.Emissions;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * The presence of the users of one room, and the broadcast of its changes.
+ *
+ * <p>Updates only overwrite the user's pending state, so a burst from one user costs one map entry however long
+ * it is. {@link #flush} applies the pending states that differ from the current ones, stamps them with the next
+ * version and broadcasts them as one batch. Every entry keeps the version that last changed it, so a session
+ * that missed batches can be sent everything newer than the last version it saw instead of every batch in turn.
+ * Flushes run on one thread at a time; updates and reads may come from any thread.
+ */
+final class PresenceRoom {
+
+    private record Entry(PresenceState state, long version, long updatedNanos) {
+    }
+
+    private final String id;
+    private final ChatFrameCodec codec;
+    private final Map<String, PresenceState> pending = new ConcurrentHashMap<>();
+    private final Map<String, Entry> states = new ConcurrentHashMap<>();
+    private final Set<String> typing = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> sessions = new ConcurrentHashMap<>();
+    private final Sinks.Many<PresenceBatch> sink = Sinks.many().multicast().directBestEffort();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private volatile long version;
+    private volatile long prunedVersion;
+
+    PresenceRoom(String id, ChatFrameCodec codec) {
+        this.id = id;
+        this.codec = codec;
+    }
+
+    String id() {
+        return id;
+    }
+
+    Flux<PresenceBatch> flux() {
+        return sink.asFlux();
+    }
+
+    long version() {
+        return version;
+    }
+
+    /**
+     * Counts a session of a user.
+     *
+     * @return true if it is the user's first session in the room
+     */
+    boolean join(String user) {
+        return sessions.merge(user, 1, Integer::sum) == 1;
+    }
+
+    /**
+     * Releases a session of a user.
+     *
+     * @return true if it was the user's last session in the room
+     */
+    boolean leave(String user) {
+        return sessions.computeIfPresent(user, (key, count) -> count > 1 ? count - 1 : null) == null;
+    }
+
+    /**
+     * Sets the state a user will have at the next flush, replacing any state set since the last one.
+     *
+     * @return true if an earlier pending state was replaced
+     */
+    boolean update(String user, PresenceState state) {
+        return pending.put(user, state) != null;
+    }
+
+    /**
+     * Applies the pending states and broadcasts the changes.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @param typingTimeoutNanos how long a typing state lasts without being renewed
+     * @param retentionNanos how long an offline user is remembered for sessions catching up
+     * @return the broadcast batch, or null if nothing changed
+     */
+    PresenceBatch flush(long nowNanos, long typingTimeoutNanos, long retentionNanos) {
+        for (String user : typing) {
+            Entry entry = states.get(user);
+            if (entry == null || entry.state() != PresenceState.TYPING) {
+                typing.remove(user);
+            } else if (nowNanos - entry.updatedNanos() >= typingTimeoutNanos) {
+                typing.remove(user);
+                pending.putIfAbsent(user, PresenceState.ONLINE);
+            }
+        }
+        long next = version + 1;
+        List<PresenceChange> changes = new ArrayList<>();
+        for (String user : pending.keySet()) {
+            PresenceState state = pending.remove(user);
+            Entry current = states.get(user);
+            if (state == PresenceState.TYPING) {
+                typing.add(user);
+            }
+            if (current != null && current.state() == state) {
+                // Renewing the state only restarts its typing timeout
+                states.put(user, new Entry(state, current.version(), nowNanos));
+            } else if (current != null || state != PresenceState.OFFLINE) {
+                states.put(user, new Entry(state, next, nowNanos));
+                changes.add(new PresenceChange(user, state));
+            }
+        }
+        states.entrySet().removeIf(entry -> {
+            Entry value = entry.getValue();
+            if (value.state() == PresenceState.OFFLINE && nowNanos - value.updatedNanos() >= retentionNanos) {
+                prunedVersion = Math.max(prunedVersion, value.version());
+                return true;
+            }
+            return false;
+        });
+        if (changes.isEmpty()) {
+            return null;
+        }
+        version = next;
+        PresenceBatch batch = new PresenceBatch(id, next, List.copyOf(changes), false, codec);
+        Emissions.emitNext(sink, batch);
+        return batch;
+    }
+
+    /**
+     * Returns what changed after a version, as one batch for a session that missed some.
+     * A session that is too far behind to be sent only the changes, because offline users it has not been told
+     * about are already forgotten, gets a snapshot instead.
+     *
+     * @param seen the last version the session was sent, or -1 for none
+     * @return the changes, or the snapshot, up to the current version
+     */
+    PresenceBatch since(long seen) {
+        long current = version;
+        boolean snapshot = seen < 0 || seen < prunedVersion;
+        List<PresenceChange> changes = new ArrayList<>();
+        states.forEach((user, entry) -> {
+            if (snapshot ? entry.state() != PresenceState.OFFLINE : entry.version() > seen) {
+                changes.add(new PresenceChange(user, entry.state()));
+            }
+        });
+        // Entries flushed after the version was read are sent again with their batch, which is harmless
+        return new PresenceBatch(id, current, changes, snapshot, codec);
+    }
+
+    void acquire() {
+        subscribers.incrementAndGet();
+    }
+
+    void release() {
+        subscribers.decrementAndGet();
+    }
+
+    boolean isIdle() {
+        return subscribers.get() == 0 && sessions.isEmpty() && pending.isEmpty() && states.isEmpty();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.chat.presence;
+
+/**
+ * What a user is doing in a room, as sent in presence frames.
+ */
+public enum PresenceState {
+    /** At least one of the user's sessions is connected to the room. */
+    ONLINE("online"),
+    /** Online and composing a message. */
+    TYPING("typing"),
+    /** The user's last session in the room has ended. */
+    OFFLINE("offline");
+
+    private final String tag;
+
+    PresenceState(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.chat.ratelimit;
+
+/**
+ * What a rate limit is keyed by. Each scope has its own buckets and limit.
+ */
+public enum LimitScope {
+    /** The sender name of a message, across all connections and endpoints. */
+    SENDER("sender"),
+    /** One WebSocket session. */
+    SESSION("session"),
+    /** The client's remote IP address. */
+    ADDRESS("address");
+
+    private final String tag;
+
+    LimitScope(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
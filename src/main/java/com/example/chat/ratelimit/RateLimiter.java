@@ -0,0 +1,131 @@
+package com.example.chat.ratelimit;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.exception.RateLimitExceededException;
+import com.example.chat.metrics.ChatMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Token-bucket rate limits for inbound messages, per sender, per WebSocket session and per remote address.
+ *
+ * <p>Buckets live in a Caffeine cache per scope, bounded by chat.rate-limit.max-keys and expiring after
+ * chat.rate-limit.idle-timeout without use, so a stream of one-off keys cannot grow memory without limit.
+ * Finding an existing bucket is a lock-free read and taking a token a compare-and-set; only a new key locks one
+ * hash bin of the cache while its bucket is created. Eviction runs on Caffeine's default executor, off the
+ * event loops that call in.
+ */
+@Component
+@Slf4j
+public class RateLimiter {
+
+    private static final String UNKNOWN_ADDRESS = "unknown";
+
+    private final Map<LimitScope, ScopeLimiter> limiters = new EnumMap<>(LimitScope.class);
+    private final ChatMetrics metrics;
+
+    public RateLimiter(ChatProperties chatProperties, ChatMetrics metrics) {
+        this.metrics = metrics;
+        ChatProperties.RateLimit rateLimit = chatProperties.getRateLimit();
+        if (rateLimit.isEnabled()) {
+            register(LimitScope.SENDER, rateLimit.getSender(), rateLimit);
+            register(LimitScope.SESSION, rateLimit.getSession(), rateLimit);
+            register(LimitScope.ADDRESS, rateLimit.getAddress(), rateLimit);
+        }
+        log.info("Rate limits enabled for: {}", limiters.keySet());
+    }
+
+    /**
+     * Takes a token from the bucket of a key.
+     *
+     * @param scope what the key identifies
+     * @param key the sender, session id or address
+     * @return 0 if the message is allowed, otherwise the nanoseconds until it would be
+     */
+    public long tryAcquire(LimitScope scope, String key) {
+        ScopeLimiter limiter = limiters.get(scope);
+        if (limiter == null) {
+            return 0;
+        }
+        long wait = limiter.tryAcquire(key);
+        if (wait > 0) {
+            metrics.rateLimited(scope);
+        }
+        return wait;
+    }
+
+    /**
+     * Takes a token from the bucket of a key, failing when none is left.
+     *
+     * @param scope what the key identifies
+     * @param key the sender, session id or address
+     * @throws RateLimitExceededException if the key is over its limit
+     */
+    public void acquire(LimitScope scope, String key) {
+        long wait = tryAcquire(scope, key);
+        if (wait > 0) {
+            throw new RateLimitExceededException(scope, Duration.ofNanos(wait));
+        }
+    }
+
+    /**
+     * Forgets the bucket of a key that will not be used again, such as a closed session.
+     *
+     * @param scope what the key identifies
+     * @param key the key to forget
+     */
+    public void release(LimitScope scope, String key) {
+        ScopeLimiter limiter = limiters.get(scope);
+        if (limiter != null) {
+            limiter.buckets.invalidate(key);
+        }
+    }
+
+    /**
+     * Returns the ADDRESS key of a client.
+     *
+     * @param remoteAddress the client's address, may be null
+     * @return the IP address, or a shared key if it is unknown
+     */
+    public static String addressKey(InetSocketAddress remoteAddress) {
+        if (remoteAddress == null) {
+            return UNKNOWN_ADDRESS;
+        }
+        return remoteAddress.getAddress() != null ? remoteAddress.getAddress().getHostAddress() : remoteAddress.getHostString();
+    }
+
+    private void register(LimitScope scope, ChatProperties.RateLimit.Limit limit, ChatProperties.RateLimit rateLimit) {
+        if (limit.getRate() <= 0) {
+            return;
+        }
+        long intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / limit.getRate()));
+        Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+                .maximumSize(rateLimit.getMaxKeys())
+                .expireAfterAccess(rateLimit.getIdleTimeout())
+                .build();
+        limiters.put(scope, new ScopeLimiter(buckets, intervalNanos, intervalNanos * Math.max(1, limit.getBurst())));
+    }
+
+    private record ScopeLimiter(Cache<String, TokenBucket> buckets, long intervalNanos, long toleranceNanos) {
+
+        long tryAcquire(String key) {
+            long now = System.nanoTime();
+            // Look up without a capturing lambda first; only a new key pays for computing its bucket
+            TokenBucket bucket = buckets.getIfPresent(key);
+            if (bucket == null) {
+                bucket = buckets.get(key, k -> new TokenBucket(now));
+            }
+            return bucket.tryAcquire(now, intervalNanos, toleranceNanos);
+        }
+    }
+}
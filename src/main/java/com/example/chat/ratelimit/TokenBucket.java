@@ -0,0 +1,41 @@
+package com.example.chat.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is one "theoretical arrival time" that each
+ * accepted message pushes forward by the emission interval. A message is accepted while that time is no more
+ * than the burst tolerance ahead of now; acquiring is a single compare-and-set, retried only under contention.
+ *
+ * <p>The limit itself is passed in on every call, so a bucket costs one AtomicLong per key.
+ */
+final class TokenBucket {
+
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(long nowNanos) {
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes one token if available.
+     *
+     * @param nowNanos the current time, from System.nanoTime()
+     * @param intervalNanos the time it takes to refill one token
+     * @param toleranceNanos the interval times the burst size
+     * @return 0 if the token was taken, otherwise how long until one is available
+     */
+    long tryAcquire(long nowNanos, long intervalNanos, long toleranceNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long wait = next - toleranceNanos - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
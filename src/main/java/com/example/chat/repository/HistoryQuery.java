@@ -0,0 +1,45 @@
+package com.example.chat.repository;
+
+import com.example.chat.model.Message;
+
+/**
+ * A range read over a room's stored history.
+ *
+ * <p>With an {@code afterId} cursor the range is read oldest first, starting after that id; otherwise it is
+ * read newest first, starting before {@code beforeId} or at the newest message. A client pages by passing the
+ * id of the last message it received as the next cursor. The time range includes {@code from} and excludes
+ * {@code to}; null bounds and a null sender are not applied.
+ *
+ * @param room the room to read
+ * @param beforeId only messages with a smaller id
+ * @param afterId only messages with a greater id; also selects oldest-first order
+ * @param from only messages at or after this time, in epoch milliseconds
+ * @param to only messages before this time, in epoch milliseconds
+ * @param sender only messages from this sender
+ * @param limit the maximum number of messages to return
+ */
+public record HistoryQuery(String room, Long beforeId, Long afterId, Long from, Long to,
+                           String sender, int limit) {
+
+    /**
+     * @return true if the range is read oldest first
+     */
+    public boolean ascending() {
+        return afterId != null;
+    }
+
+    /**
+     * Tells whether a message falls into the range.
+     *
+     * @param message a stored message
+     * @return true if the message matches every bound of the query
+     */
+    public boolean matches(Message message) {
+        return room.equals(message.getRoom())
+                && (beforeId == null || message.getId() < beforeId)
+                && (afterId == null || message.getId() > afterId)
+                && (from == null || message.getTimestamp() >= from)
+                && (to == null || message.getTimestamp() < to)
+                && (sender == null || sender.equals(message.getSender()));
+    }
+}
@@ -1,40 +1,129 @@
 package com.example.chat.repository;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+import com.example.chat.config.ChatConstants;
+import com.example.chat.config.ChatProperties;
 import com.example.chat.model.Message;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 
 /**
  * In-memory implementation of MessageRepository.
- * Uses a thread-safe list to store messages.
+ * Keeps the most recent messages in fixed-capacity, lock-free ring buffers:
+ * one across all rooms and one per room, created on the room's first message.
+ * Room names come from clients, so at most chat.history.max-rooms rooms keep a ring; the least used are
+ * evicted beyond that, and with a retention so is a room whose newest message has expired.
  */
 @Repository
+@ConditionalOnProperty(name = ChatConstants.CHAT_STORE_TYPE_KEY, havingValue = "memory", matchIfMissing = true)
 @Slf4j
 public class InMemoryMessageRepository implements MessageRepository {
 
-    private final List<Message> messages = new CopyOnWriteArrayList<>();
+    private static final int RANGE_CHUNK_SIZE = 64;
+
+    private final MessageRing messages;
+    private final Cache<String, MessageRing> rooms;
+    private final int roomCapacity;
+    private final Duration retention;
+
+    public InMemoryMessageRepository(ChatProperties chatProperties) {
+        this.retention = chatProperties.getHistory().getRetention();
+        this.roomCapacity = chatProperties.getHistory().getRoomCapacity();
+        this.messages = new MessageRing(chatProperties.getHistory().getCapacity(), retention);
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(chatProperties.getHistory().getMaxRooms());
+        if (retention != null) {
+            // Every append writes the room again, so the last write is the room's newest message and once it
+            // expires the whole ring has
+            builder.expireAfterWrite(retention);
+        }
+        this.rooms = builder.build();
+        log.info("Message history initialized with capacity: {}, room capacity: {}, max rooms: {}, retention: {}",
+                messages.capacity(), roomCapacity, chatProperties.getHistory().getMaxRooms(), retention);
+    }
 
     @Override
     public void save(Message message) {
         messages.add(message);
-        log.debug("Message saved from sender: {}", message.getSender());
+        ring(message.getRoom()).add(message);
+        log.debug("Message saved from sender: {} in room: {}", message.getSender(), message.getRoom());
+    }
+
+    @Override
+    public void saveAll(List<Message> batch) {
+        // Ring appends are already lock-free and allocation-free; only the room lookup is shared per run of a room
+        MessageRing ring = null;
+        String ringRoom = null;
+        for (Message message : batch) {
+            messages.add(message);
+            if (!message.getRoom().equals(ringRoom)) {
+                ringRoom = message.getRoom();
+                ring = ring(ringRoom);
+            }
+            ring.add(message);
+        }
+        log.debug("Saved batch of {} messages", batch.size());
     }
 
     @Override
     public List<Message> findAll() {
-        return Collections.unmodifiableList(messages);
+        return messages.last(messages.capacity());
     }
 
     @Override
     public List<Message> findLast(int limit) {
-        int size = messages.size();
-        int startIndex = Math.max(0, size - limit);
-        return Collections.unmodifiableList(messages.subList(startIndex, size));
+        return messages.last(limit);
+    }
+
+    @Override
+    public List<Message> findLast(String room, int limit) {
+        MessageRing ring = rooms.getIfPresent(room);
+        return ring != null ? ring.last(limit) : Collections.emptyList();
+    }
+
+    @Override
+    public List<Message> findAfter(String room, long afterId) {
+        MessageRing ring = rooms.getIfPresent(room);
+        return ring != null ? ring.after(afterId) : Collections.emptyList();
+    }
+
+    @Override
+    public Flux<Message> findRange(HistoryQuery query) {
+        MessageRing ring = rooms.getIfPresent(query.room());
+        if (ring == null) {
+            return Flux.empty();
+        }
+        return RangeReads.stream(query, () -> ring.chunks(query.ascending(), RANGE_CHUNK_SIZE));
+    }
+
+    @Override
+    public long lastId() {
+        List<Message> last = messages.last(1);
+        return last.isEmpty() ? 0 : last.get(0).getId();
+    }
+
+    /**
+     * Returns the number of rooms that currently keep a history.
+     */
+    long roomCount() {
+        rooms.cleanUp();
+        return rooms.estimatedSize();
+    }
+
+    private MessageRing ring(String room) {
+        MessageRing ring = rooms.get(room, key -> new MessageRing(roomCapacity, retention));
+        if (retention != null) {
+            // A hit does not restart the write clock; putting the ring back does
+            rooms.put(room, ring);
+        }
+        return ring;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,378 @@
+package com.example.chat.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import com.example.chat.model.Message;
+import com.example.chat.model.Names;
+
+/**
+ * A fixed-size, memory-mapped segment of the append-only message log.
+ *
+ * <p>Layout: a 16-byte header (magic, format version, base offset) followed by records of the form
+ * {@code [int length][long id][long epochMillis][short room][short sender][int content][int crc32c]},
+ * where strings are length-prefixed UTF-8 and {@code length} counts everything after itself.
+ * A zero length marks the end of the written data. The length is written last, so a record torn by a
+ * crash is never visible.
+ *
+ * <p>Appends must be serialized by the caller. Reads may run concurrently with appends and only see
+ * records completed before the read started.
+ */
+final class LogSegment {
+
+    private static final int MAGIC = 0x43484154; // "CHAT"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int BASE_OFFSET_POSITION = 8;
+    private static final int FIXED_RECORD_SIZE = 4 + 8 + 8 + 2 + 2 + 4 + 4;
+    private static final long UNASSIGNED = -1;
+
+    private final long number;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final SparseIndex index;
+    private final int indexInterval;
+
+    private long baseOffset;
+    private int writePosition = HEADER_SIZE;
+    private int bytesSinceIndex;
+    private volatile int committedPosition = HEADER_SIZE;
+    private volatile long recordCount;
+    private volatile long maxId;
+    private volatile long firstTimestampMillis;
+    private volatile long lastTimestampMillis;
+    private volatile boolean dirty;
+
+    private LogSegment(long number, Path path, FileChannel channel, MappedByteBuffer buffer, int indexInterval) {
+        this.number = number;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+        this.indexInterval = indexInterval;
+        this.index = new SparseIndex();
+    }
+
+    /**
+     * Creates and maps a new, empty segment file. Its base offset is assigned by {@link #activate(long)}.
+     */
+    static LogSegment create(Path directory, long number, int size, int indexInterval) {
+        Path path = directory.resolve(fileName(number));
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(BASE_OFFSET_POSITION, UNASSIGNED);
+            LogSegment segment = new LogSegment(number, path, channel, buffer, indexInterval);
+            segment.baseOffset = UNASSIGNED;
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create log segment " + path, e);
+        }
+    }
+
+    /**
+     * Maps an existing segment file and recovers its records, stopping at the first torn or corrupt record.
+     */
+    static LogSegment open(Path path, int indexInterval) {
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                channel.close();
+                throw new IllegalStateException("Not a chat log segment: " + path);
+            }
+            LogSegment segment = new LogSegment(parseNumber(path), path, channel, buffer, indexInterval);
+            segment.baseOffset = buffer.getLong(BASE_OFFSET_POSITION);
+            segment.recover();
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open log segment " + path, e);
+        }
+    }
+
+    static boolean isSegmentFile(Path path) {
+        return path.getFileName().toString().endsWith(".log");
+    }
+
+    /**
+     * Assigns the offset of the first record in this segment; called when the segment becomes active.
+     */
+    void activate(long baseOffset) {
+        if (this.baseOffset == UNASSIGNED) {
+            this.baseOffset = baseOffset;
+            buffer.putLong(BASE_OFFSET_POSITION, baseOffset);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Returns whether a record with these fields fits into an empty segment of the given size.
+     */
+    static boolean fitsEmpty(int size, byte[] room, byte[] sender, byte[] content) {
+        return HEADER_SIZE + FIXED_RECORD_SIZE + room.length + sender.length + (long) content.length <= size;
+    }
+
+    /**
+     * Appends a record. Must be called by one thread at a time.
+     *
+     * @return false if the record does not fit into the remaining space
+     */
+    boolean append(Message message, byte[] room, byte[] sender, byte[] content) {
+        int size = FIXED_RECORD_SIZE + room.length + sender.length + content.length;
+        if (writePosition + size > capacity) {
+            return false;
+        }
+        int start = writePosition;
+        int position = start + 4;
+        long timestampMillis = message.getTimestamp();
+        buffer.putLong(position, message.getId());
+        position += 8;
+        buffer.putLong(position, timestampMillis);
+        position += 8;
+        position = putBytes(position, room, true);
+        position = putBytes(position, sender, true);
+        position = putBytes(position, content, false);
+        buffer.putInt(position, crc(start + 4, position - start - 4));
+        position += 4;
+        // Keep an end marker after the new record, then make the record visible by writing its length
+        if (position + 4 <= capacity) {
+            buffer.putInt(position, 0);
+        }
+        buffer.putInt(start, size - 4);
+
+        if (bytesSinceIndex == 0 || bytesSinceIndex >= indexInterval) {
+            index.add(baseOffset + recordCount, message.getId(), start);
+            bytesSinceIndex = 0;
+        }
+        bytesSinceIndex += size;
+        writePosition = position;
+        maxId = Math.max(maxId, message.getId());
+        if (recordCount == 0) {
+            firstTimestampMillis = timestampMillis;
+        }
+        lastTimestampMillis = timestampMillis;
+        dirty = true;
+        recordCount = recordCount + 1;
+        committedPosition = position;
+        return true;
+    }
+
+    /**
+     * Visits the committed records starting at the first indexed record at or before {@code fromOffset}.
+     */
+    void scanFromOffset(long fromOffset, RecordVisitor visitor) {
+        SparseIndex.Entry entry = index.floorByOffset(fromOffset);
+        scan(entry != null ? entry.position() : HEADER_SIZE, entry != null ? entry.offset() : baseOffset, visitor);
+    }
+
+    /**
+     * Visits the committed records starting one index entry before the last one with an id at or below {@code id},
+     * which tolerates ids appended slightly out of order by concurrent publishers.
+     */
+    void scanFromId(long id, RecordVisitor visitor) {
+        SparseIndex.Entry entry = index.beforeId(id);
+        scan(entry != null ? entry.position() : HEADER_SIZE, entry != null ? entry.offset() : baseOffset, visitor);
+    }
+
+    /**
+     * Returns the number of chunks: the runs of records between consecutive sparse index entries.
+     * Range reads go through the segment one chunk at a time, in either direction.
+     */
+    int chunkCount() {
+        return index.size();
+    }
+
+    /**
+     * Returns the chunk that holds the first record with the given id or a greater one, give or take the
+     * slight reordering of concurrent appends; 0 if the id is below the segment's first record.
+     */
+    int chunkOfId(long id) {
+        return Math.max(0, index.floorIndexById(id));
+    }
+
+    /**
+     * Reads the committed records of one chunk, in log order.
+     */
+    List<Message> readChunk(int chunk) {
+        SparseIndex.Entry entry = index.entry(chunk);
+        int end = chunk + 1 < index.size() ? index.entry(chunk + 1).position() : committedPosition;
+        List<Message> records = new ArrayList<>();
+        scan(entry.position(), entry.offset(), end, (offset, message) -> records.add(message));
+        return records;
+    }
+
+    private void scan(int fromPosition, long fromOffset, RecordVisitor visitor) {
+        scan(fromPosition, fromOffset, committedPosition, visitor);
+    }
+
+    private void scan(int fromPosition, long fromOffset, int end, RecordVisitor visitor) {
+        int position = fromPosition;
+        long offset = fromOffset;
+        while (position < end) {
+            int length = buffer.getInt(position);
+            if (!visitor.visit(offset, decode(position + 4))) {
+                return;
+            }
+            position += 4 + length;
+            offset++;
+        }
+    }
+
+    void force() {
+        if (dirty) {
+            dirty = false;
+            buffer.force();
+        }
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close log segment " + path, e);
+        }
+    }
+
+    void delete() {
+        close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete log segment " + path, e);
+        }
+    }
+
+    long number() {
+        return number;
+    }
+
+    long baseOffset() {
+        return baseOffset;
+    }
+
+    long endOffset() {
+        return baseOffset + recordCount;
+    }
+
+    long recordCount() {
+        return recordCount;
+    }
+
+    long maxId() {
+        return maxId;
+    }
+
+    long firstTimestampMillis() {
+        return firstTimestampMillis;
+    }
+
+    long lastTimestampMillis() {
+        return lastTimestampMillis;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    private void recover() {
+        int position = HEADER_SIZE;
+        while (position + 4 <= capacity) {
+            int length = buffer.getInt(position);
+            if (length < FIXED_RECORD_SIZE - 4 || position + 4 + length > capacity
+                    || buffer.getInt(position + length) != crc(position + 4, length - 4)) {
+                break;
+            }
+            Message message = decode(position + 4);
+            if (bytesSinceIndex == 0 || bytesSinceIndex >= indexInterval) {
+                index.add(baseOffset + recordCount, message.getId(), position);
+                bytesSinceIndex = 0;
+            }
+            bytesSinceIndex += 4 + length;
+            maxId = Math.max(maxId, message.getId());
+            lastTimestampMillis = message.getTimestamp();
+            if (recordCount == 0) {
+                firstTimestampMillis = lastTimestampMillis;
+            }
+            recordCount++;
+            position += 4 + length;
+        }
+        if (position + 4 <= capacity) {
+            // Anything after the last valid record is a torn write; make sure it reads as the end of the log
+            buffer.putInt(position, 0);
+        }
+        writePosition = position;
+        committedPosition = position;
+    }
+
+    private Message decode(int position) {
+        long id = buffer.getLong(position);
+        long timestampMillis = buffer.getLong(position + 8);
+        int cursor = position + 16;
+        int roomLength = Short.toUnsignedInt(buffer.getShort(cursor));
+        String room = getString(cursor + 2, roomLength);
+        cursor += 2 + roomLength;
+        int senderLength = Short.toUnsignedInt(buffer.getShort(cursor));
+        String sender = getString(cursor + 2, senderLength);
+        cursor += 2 + senderLength;
+        int contentLength = buffer.getInt(cursor);
+        String content = getString(cursor + 4, contentLength);
+        return new Message(id, Names.intern(room), Names.intern(sender), content, timestampMillis);
+    }
+
+    private int putBytes(int position, byte[] bytes, boolean shortLength) {
+        if (shortLength) {
+            buffer.putShort(position, (short) bytes.length);
+            position += 2;
+        } else {
+            buffer.putInt(position, bytes.length);
+            position += 4;
+        }
+        buffer.put(position, bytes);
+        return position + bytes.length;
+    }
+
+    private String getString(int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int crc(int position, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position, length));
+        return (int) crc.getValue();
+    }
+
+    private static String fileName(long number) {
+        return String.format("%020d.log", number);
+    }
+
+    private static long parseNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - ".log".length()));
+    }
+
+    /**
+     * Receives records during a scan.
+     */
+    @FunctionalInterface
+    interface RecordVisitor {
+        /**
+         * @return false to stop the scan
+         */
+        boolean visit(long offset, Message message);
+    }
+}
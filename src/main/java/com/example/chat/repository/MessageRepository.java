@@ -4,9 +4,11 @@ import java.util.List;
 
 import com.example.chat.model.Message;
 
+import reactor.core.publisher.Flux;
+
 /**
  * Repository interface for message operations.
- * Provides in-memory storage for messages.
+ * Implemented by an in-memory store and by a durable segmented log, selected with chat.store.type.
  */
 public interface MessageRepository {
 
@@ -17,6 +19,13 @@ public interface MessageRepository {
      */
     void save(Message message);
 
+    /**
+     * Saves a batch of messages in order, amortizing per-write overhead across the batch.
+     *
+     * @param messages the messages to save
+     */
+    void saveAll(List<Message> messages);
+
     /**
      * Retrieves all messages from the repository.
      *
@@ -31,4 +40,50 @@ public interface MessageRepository {
      * @return a list of the most recent messages
      */
     List<Message> findLast(int limit);
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the last N messages posted to a room.
+     *
+     * @param room the room to read
+     * @param limit the maximum number of messages to retrieve
+     * @return a list of the most recent messages in the room
+     */
+    List<Message> findLast(String room, int limit);
+
+    /**
+     * Retrieves the retained messages of a room published after a sequence id.
+     *
+     * @param room the room to read
+     * @param afterId the sequence id to read after (exclusive)
+     * @return the matching messages, ordered by sequence id
+     */
+    List<Message> findAfter(String room, long afterId);
+
+    /**
+     * Streams a range of a room's stored messages. Messages are read from the store as the subscriber
+     * requests them, so a deep range is never copied onto the heap at once.
+     * Ids are stored in nearly increasing order; a message published concurrently with its neighbours
+     * may appear slightly out of order.
+     *
+     * @param query the room, cursor, filters and limit
+     * @return the matching messages, oldest first with an afterId cursor, newest first otherwise
+     */
+    Flux<Message> findRange(HistoryQuery query);
+
+    /**
+     * Returns the highest sequence id stored, used to continue the sequence after a restart.
+     *
+     * @return the highest stored id, or 0 if the repository is empty
+     */
+    long lastId();
+
+    /**
+     * Returns the error of the store's last failed background write, such as a flush. Stores keep retrying
+     * and clear the error once their writes succeed again.
+     *
+     * @return the error, or null while the store is healthy
+     */
+    default RuntimeException failure() {
+        return null;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.chat.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.example.chat.model.Message;
+
+/**
+ * Fixed-capacity, lock-free ring buffer of messages.
+ * Appends are O(1) and allocation-free; the oldest message is overwritten once the ring is full.
+ */
+final class MessageRing {
+
+    private final int capacity;
+    private final int mask;
+    private final Duration retention;
+    private final AtomicReferenceArray<Message> slots;
+    /** Sequence + 1 of the message stored in each slot; 0 while the slot is empty or being overwritten. */
+    private final AtomicLongArray published;
+    private final AtomicLong cursor = new AtomicLong();
+
+    MessageRing(int capacity, Duration retention) {
+        this.capacity = ceilingPowerOfTwo(capacity);
+        this.mask = this.capacity - 1;
+        this.retention = retention;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+        this.published = new AtomicLongArray(this.capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    void add(Message message) {
+        long sequence = cursor.getAndIncrement();
+        int index = (int) (sequence & mask);
+        // Invalidate first so readers never pair the old sequence with the new message
+        published.set(index, 0);
+        slots.set(index, message);
+        published.set(index, sequence + 1);
+    }
+
+    List<Message> last(int limit) {
+        return Collections.unmodifiableList(snapshot(limit, Long.MIN_VALUE));
+    }
+
+    /**
+     * Returns the retained messages with a sequence id greater than {@code afterId}, ordered by id.
+     * Concurrent publishers may append slightly out of id order, so the snapshot is sorted.
+     */
+    List<Message> after(long afterId) {
+        List<Message> result = snapshot(capacity, afterId);
+        result.sort(Comparator.comparingLong(Message::getId));
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Reads the retained messages in chunks, oldest or newest first; each chunk is ordered by id.
+     * The range is fixed when the reader is created, so messages added later are not returned.
+     */
+    RangeReads.ChunkReader chunks(boolean ascending, int chunkSize) {
+        long end = cursor.get();
+        long start = Math.max(0, end - capacity);
+        long cutoff = retentionCutoff();
+        Comparator<Message> order = ascending
+                ? Comparator.comparingLong(Message::getId)
+                : Comparator.comparingLong(Message::getId).reversed();
+        return new RangeReads.ChunkReader() {
+            private long next = ascending ? start : end - 1;
+
+            @Override
+            public List<Message> next() {
+                if (next < start || next >= end) {
+                    return null;
+                }
+                List<Message> chunk = new ArrayList<>(chunkSize);
+                for (int i = 0; i < chunkSize && next >= start && next < end; i++) {
+                    Message message = read(next);
+                    next += ascending ? 1 : -1;
+                    if (message != null && message.getTimestamp() >= cutoff) {
+                        chunk.add(message);
+                    }
+                }
+                chunk.sort(order);
+                return chunk;
+            }
+        };
+    }
+
+    /**
+     * Returns the oldest timestamp within the retention, or Long.MIN_VALUE if messages never expire.
+     */
+    private long retentionCutoff() {
+        return retention != null ? System.currentTimeMillis() - retention.toMillis() : Long.MIN_VALUE;
+    }
+
+    private List<Message> snapshot(int limit, long afterId) {
+        long end = cursor.get();
+        long start = Math.max(0, end - Math.min(limit, capacity));
+        long cutoff = retentionCutoff();
+
+        List<Message> result = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            Message message = read(sequence);
+            if (message != null && message.getId() > afterId
+                    && message.getTimestamp() >= cutoff) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the message stored for a sequence, or null if it was overwritten or is still being written.
+     */
+    private Message read(long sequence) {
+        int index = (int) (sequence & mask);
+        if (published.get(index) != sequence + 1) {
+            return null;
+        }
+        Message message = slots.get(index);
+        return published.get(index) == sequence + 1 ? message : null;
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        if (value <= 1) {
+            return 1;
+        }
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.chat.repository;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.example.chat.model.Message;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Streams a {@link HistoryQuery} from a store that can be read a chunk of records at a time.
+ *
+ * <p>Chunks are read on demand, one ahead at most, so however deep the range goes only the chunk being
+ * emitted is held on the heap. Reading stops as soon as the query's limit is reached or the subscriber cancels.
+ */
+final class RangeReads {
+
+    private RangeReads() {
+    }
+
+    static Flux<Message> stream(HistoryQuery query, Callable<ChunkReader> reader) {
+        return Flux.<List<Message>, ChunkReader>generate(reader, (chunks, sink) -> {
+                    List<Message> chunk = chunks.next();
+                    if (chunk == null) {
+                        sink.complete();
+                    } else {
+                        sink.next(chunk);
+                    }
+                    return chunks;
+                })
+                .concatMapIterable(chunk -> chunk, 1)
+                .filter(query::matches)
+                .take(query.limit(), true);
+    }
+
+    /**
+     * Reads consecutive chunks of stored messages in the query's order.
+     */
+    @FunctionalInterface
+    interface ChunkReader {
+        /**
+         * @return the next chunk, possibly empty, or null once the store is exhausted
+         */
+        List<Message> next();
+    }
+}
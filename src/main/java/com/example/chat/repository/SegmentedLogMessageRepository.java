@@ -0,0 +1,562 @@
+package com.example.chat.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.example.chat.config.ChatConstants;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.model.Message;
+import com.example.chat.scheduling.ChatSchedulers;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Durable implementation of MessageRepository backed by an append-only log of memory-mapped segment files.
+ *
+ * <p>Saving validates and queues the messages; a dedicated store thread copies them into the mapped segment in
+ * the order they were queued, and also rolls to the next segment, syncs to disk and enforces retention, so
+ * callers on the Reactor event loop never wait for a lock or for I/O. Reads include the queued messages not
+ * written yet; range reads run on the blocking scheduler of {@link ChatSchedulers}. How often data is synced is
+ * configured by chat.store.flush-interval and chat.store.flush-messages. A failure of the store thread's work is
+ * reported by {@link #failure()} until the next periodic maintenance succeeds; appends that could not be written
+ * stay queued until then.
+ */
+@Repository
+@ConditionalOnProperty(name = ChatConstants.CHAT_STORE_TYPE_KEY, havingValue = "log")
+@Slf4j
+public class SegmentedLogMessageRepository implements MessageRepository {
+
+    private static final int MAX_SHORT_FIELD = 0xFFFF;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final long retentionBytes;
+    private final Duration retentionAge;
+    private final int flushMessages;
+    private final int roomCapacity;
+    private final List<LogSegment> segments = new CopyOnWriteArrayList<>();
+    private final Queue<QueuedAppend> appends = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedAppends = new AtomicInteger();
+    private final AtomicReference<LogSegment> preallocated = new AtomicReference<>();
+    private final AtomicLong segmentNumbers = new AtomicLong();
+    private final AtomicLong lastId = new AtomicLong();
+    private final Scheduler storeScheduler;
+    private final Scheduler readScheduler;
+    private final Disposable maintenance;
+    private volatile RuntimeException failure;
+
+    // Only used on the store thread once the log is open
+    private LogSegment active;
+    private int unflushed;
+    private boolean appendsStalled;
+
+    public SegmentedLogMessageRepository(ChatProperties chatProperties, ChatSchedulers schedulers) {
+        ChatProperties.Store store = chatProperties.getStore();
+        this.directory = Paths.get(store.getPath());
+        this.segmentSize = Math.toIntExact(store.getSegmentSize().toBytes());
+        this.indexInterval = Math.toIntExact(store.getIndexInterval().toBytes());
+        this.retentionBytes = store.getRetentionSize().toBytes();
+        this.retentionAge = store.getRetentionAge();
+        this.flushMessages = store.getFlushMessages();
+        this.roomCapacity = chatProperties.getHistory().getRoomCapacity();
+
+        recover();
+
+        this.readScheduler = schedulers.blocking();
+        this.storeScheduler = ChatSchedulers.serial("chat-log");
+        long flushMillis = store.getFlushInterval().toMillis();
+        this.maintenance = storeScheduler.schedulePeriodically(this::maintain, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        storeScheduler.schedule(() -> recordingFailure(this::preallocate));
+        log.info("Message log opened at {} with {} segment(s), last id: {}, flush interval: {}, flush messages: {}",
+                directory.toAbsolutePath(), segments.size(), lastId.get(), store.getFlushInterval(), flushMessages);
+    }
+
+    @Override
+    public void save(Message message) {
+        QueuedAppend append = accept(message);
+        queue(append);
+        if (queuedAppends.getAndIncrement() == 0) {
+            storeScheduler.schedule(() -> recordingFailure(this::writeAppends));
+        }
+        log.debug("Message {} queued for the log from sender: {}", message.getId(), message.getSender());
+    }
+
+    @Override
+    public void saveAll(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        // Validate the whole batch before queueing any of it
+        List<QueuedAppend> accepted = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            accepted.add(accept(message));
+        }
+        accepted.forEach(this::queue);
+        if (queuedAppends.getAndAdd(accepted.size()) == 0) {
+            storeScheduler.schedule(() -> recordingFailure(this::writeAppends));
+        }
+        log.debug("Batch of {} messages queued for the log", messages.size());
+    }
+
+    @Override
+    public List<Message> findAll() {
+        List<Message> queued = queuedMessages();
+        List<Message> result = new ArrayList<>();
+        for (LogSegment segment : segments) {
+            segment.scanFromOffset(segment.baseOffset(), (offset, message) -> result.add(message));
+        }
+        return Collections.unmodifiableList(withQueued(result, queued));
+    }
+
+    @Override
+    public List<Message> findLast(int limit) {
+        List<Message> queued = queuedMessages();
+        List<LogSegment> snapshot = List.copyOf(segments);
+        long end = snapshot.get(snapshot.size() - 1).endOffset();
+        long from = Math.max(snapshot.get(0).baseOffset(), end - limit);
+
+        List<Message> result = new ArrayList<>((int) (end - from));
+        for (LogSegment segment : snapshot) {
+            if (segment.endOffset() <= from) {
+                continue;
+            }
+            segment.scanFromOffset(from, (offset, message) -> {
+                if (offset >= end) {
+                    return false;
+                }
+                if (offset >= from) {
+                    result.add(message);
+                }
+                return true;
+            });
+        }
+        List<Message> all = withQueued(result, queued);
+        return List.copyOf(all.subList(Math.max(0, all.size() - limit), all.size()));
+    }
+
+    @Override
+    public List<Message> findLast(String room, int limit) {
+        List<Message> queued = queuedMessages();
+        queued.removeIf(message -> !room.equals(message.getRoom()));
+        List<LogSegment> snapshot = List.copyOf(segments);
+        Deque<Message> result = new ArrayDeque<>();
+        // Walk segments newest first and stop as soon as enough of the room's messages were found
+        for (int i = snapshot.size() - 1; i >= 0 && result.size() < limit; i--) {
+            int needed = limit - result.size();
+            Deque<Message> chunk = new ArrayDeque<>();
+            LogSegment segment = snapshot.get(i);
+            segment.scanFromOffset(segment.baseOffset(), (offset, message) -> {
+                if (room.equals(message.getRoom())) {
+                    chunk.addLast(message);
+                    if (chunk.size() > needed) {
+                        chunk.pollFirst();
+                    }
+                }
+                return true;
+            });
+            while (!chunk.isEmpty()) {
+                result.addFirst(chunk.pollLast());
+            }
+        }
+        List<Message> all = withQueued(new ArrayList<>(result), queued);
+        return List.copyOf(all.subList(Math.max(0, all.size() - limit), all.size()));
+    }
+
+    @Override
+    public List<Message> findAfter(String room, long afterId) {
+        List<Message> queued = queuedMessages();
+        queued.removeIf(message -> message.getId() <= afterId || !room.equals(message.getRoom()));
+        List<LogSegment> snapshot = List.copyOf(segments);
+        List<Message> found = new ArrayList<>();
+        // Like the in-memory store, replay at most one room's worth of history, keeping the newest messages:
+        // walk the chunks of the sparse index newest first and stop once that many were found
+        for (int i = snapshot.size() - 1; i >= 0 && found.size() < roomCapacity; i--) {
+            LogSegment segment = snapshot.get(i);
+            if (segment.maxId() <= afterId) {
+                continue;
+            }
+            // One chunk of margin for ids appended slightly out of order
+            int firstChunk = Math.max(0, segment.chunkOfId(afterId) - 1);
+            for (int chunk = segment.chunkCount() - 1; chunk >= firstChunk && found.size() < roomCapacity; chunk--) {
+                List<Message> records = segment.readChunk(chunk);
+                for (int j = records.size() - 1; j >= 0; j--) {
+                    Message message = records.get(j);
+                    if (message.getId() > afterId && room.equals(message.getRoom())) {
+                        found.add(message);
+                    }
+                }
+            }
+        }
+        found = withQueued(found, queued);
+        found.sort(Comparator.comparingLong(Message::getId));
+        return List.copyOf(found.subList(Math.max(0, found.size() - roomCapacity), found.size()));
+    }
+
+    @Override
+    public Flux<Message> findRange(HistoryQuery query) {
+        // Reads page in mapped segment files, so keep them off the event loop
+        return RangeReads.stream(query, () -> new LogChunkReader(queuedMessages(), List.copyOf(segments), query))
+                .subscribeOn(readScheduler);
+    }
+
+    @Override
+    public RuntimeException failure() {
+        return failure;
+    }
+
+    @Override
+    public long lastId() {
+        return lastId.get();
+    }
+
+    @PreDestroy
+    void close() {
+        maintenance.dispose();
+        try {
+            // Queued behind the writes already scheduled, so every accepted append is stored before the files close
+            Mono.fromRunnable(this::closeSegments).subscribeOn(storeScheduler).block();
+        } finally {
+            storeScheduler.dispose();
+        }
+        log.info("Message log closed at {}", directory.toAbsolutePath());
+    }
+
+    private void closeSegments() {
+        if (appendsStalled) {
+            recordingFailure(this::writeAppends);
+            if (appendsStalled) {
+                log.error("Closing the message log with {} queued append(s) that could not be written", queuedAppends.get());
+            }
+        }
+        for (LogSegment segment : segments) {
+            segment.force();
+            segment.close();
+        }
+        LogSegment spare = preallocated.getAndSet(null);
+        if (spare != null) {
+            spare.delete();
+        }
+    }
+
+    /**
+     * Encodes a message for the log, rejecting it on the caller's thread if it can never be stored.
+     */
+    private QueuedAppend accept(Message message) {
+        byte[] room = message.getRoom().getBytes(StandardCharsets.UTF_8);
+        byte[] sender = message.getSender().getBytes(StandardCharsets.UTF_8);
+        byte[] content = message.getContent().getBytes(StandardCharsets.UTF_8);
+        if (room.length > MAX_SHORT_FIELD || sender.length > MAX_SHORT_FIELD) {
+            throw new IllegalArgumentException("Room or sender is too long to store");
+        }
+        if (!LogSegment.fitsEmpty(segmentSize, room, sender, content)) {
+            throw new IllegalArgumentException("Message does not fit into a log segment");
+        }
+        return new QueuedAppend(message, room, sender, content);
+    }
+
+    private void queue(QueuedAppend append) {
+        lastId.accumulateAndGet(append.message().getId(), Math::max);
+        appends.offer(append);
+    }
+
+    /**
+     * Writes the queued appends into the active segment in the order they were queued; runs on the store thread.
+     * If the log cannot roll to a new segment, the rest stay queued and the next maintenance resumes the writes.
+     */
+    private void writeAppends() {
+        appendsStalled = true;
+        // Every count was added after its append was queued, so there is an append to write for each
+        do {
+            QueuedAppend append = appends.peek();
+            if (!active.append(append.message(), append.room(), append.sender(), append.content())) {
+                roll();
+                if (!active.append(append.message(), append.room(), append.sender(), append.content())) {
+                    throw new IllegalStateException("Message " + append.message().getId() + " does not fit into a new log segment");
+                }
+            }
+            // Removed only once written, so a read finds each accepted message in the queue or in the segments
+            appends.poll();
+            unflushed++;
+        } while (queuedAppends.decrementAndGet() != 0);
+        appendsStalled = false;
+        if (flushMessages > 0 && unflushed >= flushMessages) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns the messages queued but maybe not written yet, oldest first. Taken before reading the segments,
+     * so a message written and dequeued in between is still found in them.
+     */
+    private List<Message> queuedMessages() {
+        List<Message> queued = new ArrayList<>();
+        for (QueuedAppend append : appends) {
+            queued.add(append.message());
+        }
+        return queued;
+    }
+
+    /**
+     * Appends the queued messages to those read from the segments, skipping any written while the read ran.
+     */
+    private static List<Message> withQueued(List<Message> stored, List<Message> queued) {
+        if (queued.isEmpty()) {
+            return stored;
+        }
+        Map<Long, Message> unwritten = new LinkedHashMap<>();
+        for (Message message : queued) {
+            unwritten.put(message.getId(), message);
+        }
+        for (Message message : stored) {
+            unwritten.remove(message.getId());
+        }
+        List<Message> all = new ArrayList<>(stored.size() + unwritten.size());
+        all.addAll(stored);
+        all.addAll(unwritten.values());
+        return all;
+    }
+
+    /**
+     * Switches to a new segment; runs on the store thread.
+     * Uses the segment preallocated in the background, so the switch normally creates no file.
+     */
+    private void roll() {
+        LogSegment previous = active;
+        LogSegment next = preallocated.getAndSet(null);
+        if (next == null) {
+            log.warn("No preallocated log segment ready, creating one before the next append");
+            next = LogSegment.create(directory, segmentNumbers.incrementAndGet(), segmentSize, indexInterval);
+        }
+        next.activate(previous.endOffset());
+        segments.add(next);
+        active = next;
+        log.info("Rolled message log to segment {} at offset {}", next.number(), next.baseOffset());
+        storeScheduler.schedule(() -> recordingFailure(() -> {
+            previous.force();
+            preallocate();
+        }));
+    }
+
+    private void preallocate() {
+        if (preallocated.get() != null) {
+            return;
+        }
+        LogSegment segment = LogSegment.create(directory, segmentNumbers.incrementAndGet(), segmentSize, indexInterval);
+        if (!preallocated.compareAndSet(null, segment)) {
+            segment.delete();
+        }
+    }
+
+    private void maintain() {
+        try {
+            flush();
+            enforceRetention();
+            // Retried until it succeeds, so a log that cannot prepare its next segment stays unhealthy
+            preallocate();
+            if (appendsStalled) {
+                writeAppends();
+            }
+            failure = null;
+        } catch (RuntimeException e) {
+            failure = e;
+            log.error("Message log maintenance failed", e);
+        }
+    }
+
+    /**
+     * Runs a background write outside the periodic maintenance; a failure is reported until maintenance succeeds.
+     */
+    private void recordingFailure(Runnable write) {
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            failure = e;
+            log.error("Message log write failed", e);
+        }
+    }
+
+    private void flush() {
+        unflushed = 0;
+        for (LogSegment segment : segments) {
+            segment.force();
+        }
+    }
+
+    private void enforceRetention() {
+        long cutoff = retentionAge != null ? System.currentTimeMillis() - retentionAge.toMillis() : Long.MIN_VALUE;
+        // The newest segment is the active one and is never deleted
+        while (segments.size() > 1) {
+            LogSegment oldest = segments.get(0);
+            boolean overSize = (long) segments.size() * segmentSize > retentionBytes;
+            boolean expired = oldest.lastTimestampMillis() < cutoff;
+            if (!overSize && !expired) {
+                return;
+            }
+            segments.remove(0);
+            oldest.delete();
+            log.info("Deleted log segment {} ({} records, {})", oldest.number(), oldest.recordCount(), overSize ? "size" : "age");
+        }
+    }
+
+    /**
+     * Walks the segments of a snapshot chunk by chunk in the query's direction. Segments that cannot hold
+     * a match by id or time are skipped without being read, and the walk starts at the chunk of the cursor.
+     */
+    private static final class LogChunkReader implements RangeReads.ChunkReader {
+        private List<Message> queued;
+        private final Set<Long> queuedIds = new HashSet<>();
+        private final List<LogSegment> snapshot;
+        private final HistoryQuery query;
+        private final boolean ascending;
+        private final long fromMillis;
+        private final long toMillis;
+        private int segmentIndex;
+        private LogSegment segment;
+        private int chunk;
+        private int lastChunk;
+
+        LogChunkReader(List<Message> queued, List<LogSegment> snapshot, HistoryQuery query) {
+            this.queued = queued;
+            queued.forEach(message -> queuedIds.add(message.getId()));
+            this.snapshot = snapshot;
+            this.query = query;
+            this.ascending = query.ascending();
+            this.fromMillis = query.from() != null ? query.from() : Long.MIN_VALUE;
+            this.toMillis = query.to() != null ? query.to() : Long.MAX_VALUE;
+            this.segmentIndex = ascending ? -1 : snapshot.size();
+        }
+
+        @Override
+        public List<Message> next() {
+            // The queued messages are the newest, so they come first when walking backwards and last otherwise
+            if (!ascending && queued != null) {
+                return sorted(takeQueued());
+            }
+            while (segment == null || (ascending ? chunk > lastChunk : chunk < 0)) {
+                if (!nextSegment()) {
+                    return ascending && queued != null ? sorted(takeQueued()) : null;
+                }
+            }
+            List<Message> records = segment.readChunk(chunk);
+            chunk += ascending ? 1 : -1;
+            if (!queuedIds.isEmpty()) {
+                // Written while this read ran, and already returned from the queue
+                records.removeIf(message -> queuedIds.contains(message.getId()));
+            }
+            return sorted(records);
+        }
+
+        private List<Message> takeQueued() {
+            List<Message> taken = queued;
+            queued = null;
+            return taken;
+        }
+
+        private List<Message> sorted(List<Message> records) {
+            records.sort(ascending
+                    ? Comparator.comparingLong(Message::getId)
+                    : Comparator.comparingLong(Message::getId).reversed());
+            return records;
+        }
+
+        private boolean nextSegment() {
+            segmentIndex += ascending ? 1 : -1;
+            segment = null;
+            if (segmentIndex < 0 || segmentIndex >= snapshot.size()) {
+                return false;
+            }
+            LogSegment candidate = snapshot.get(segmentIndex);
+            // Fixing the chunk count keeps a chunk from being read twice while the active segment grows
+            int chunks = candidate.chunkCount();
+            if (chunks == 0) {
+                return true;
+            }
+            if (ascending ? candidate.firstTimestampMillis() >= toMillis : candidate.lastTimestampMillis() < fromMillis) {
+                // Timestamps grow with the log, so no later segment in this direction can match either
+                segmentIndex = ascending ? snapshot.size() : -1;
+                return false;
+            }
+            if (candidate.lastTimestampMillis() < fromMillis || candidate.firstTimestampMillis() >= toMillis
+                    || (query.afterId() != null && candidate.maxId() <= query.afterId())) {
+                return true;
+            }
+            segment = candidate;
+            lastChunk = chunks - 1;
+            if (ascending) {
+                // One chunk of margin for ids appended slightly out of order
+                chunk = Math.max(0, candidate.chunkOfId(query.afterId()) - 1);
+            } else {
+                chunk = query.beforeId() != null ? Math.min(lastChunk, candidate.chunkOfId(query.beforeId()) + 1) : lastChunk;
+            }
+            return true;
+        }
+    }
+
+    private void recover() {
+        try {
+            Files.createDirectories(directory);
+            List<LogSegment> found = new ArrayList<>();
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(LogSegment::isSegmentFile).forEach(path -> found.add(LogSegment.open(path, indexInterval)));
+            }
+            for (LogSegment segment : found) {
+                segmentNumbers.accumulateAndGet(segment.number(), Math::max);
+                if (segment.baseOffset() < 0) {
+                    // Preallocated but never used
+                    segment.delete();
+                } else {
+                    segments.add(segment);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open message log at " + directory, e);
+        }
+
+        segments.sort(Comparator.comparingLong(LogSegment::baseOffset));
+        if (segments.isEmpty()) {
+            LogSegment first = LogSegment.create(directory, segmentNumbers.incrementAndGet(), segmentSize, indexInterval);
+            first.activate(0);
+            segments.add(first);
+        }
+        active = segments.get(segments.size() - 1);
+        lastId.set(segments.stream().mapToLong(LogSegment::maxId).max().orElse(0));
+    }
+
+    /**
+     * A message accepted for the log, with the encoded fields its record is written from.
+     */
+    private record QueuedAppend(Message message, byte[] room, byte[] sender, byte[] content) {
+    }
+}
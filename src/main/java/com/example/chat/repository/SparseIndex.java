@@ -0,0 +1,74 @@
+package com.example.chat.repository;
+
+import java.util.Arrays;
+
+/**
+ * Sparse index of a log segment: every few kilobytes, the offset, message id and file position of a record.
+ * Backed by primitive arrays; lookups are binary searches.
+ */
+final class SparseIndex {
+
+    private long[] offsets = new long[64];
+    private long[] ids = new long[64];
+    private int[] positions = new int[64];
+    private int size;
+
+    synchronized void add(long offset, long id, int position) {
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        offsets[size] = offset;
+        ids[size] = id;
+        positions[size] = position;
+        size++;
+    }
+
+    /**
+     * Returns the last entry with an offset at or below {@code offset}, or null if there is none.
+     */
+    synchronized Entry floorByOffset(long offset) {
+        int found = Arrays.binarySearch(offsets, 0, size, offset);
+        int index = found >= 0 ? found : -found - 2;
+        return index >= 0 ? entry(index) : null;
+    }
+
+    /**
+     * Returns the entry before the last one with an id at or below {@code id}, or null to scan from the start.
+     * Ids are only roughly ordered in the log, so the search steps back one entry as a safety margin.
+     */
+    synchronized Entry beforeId(long id) {
+        int index = floorIndexById(id) - 1;
+        return index >= 0 ? entry(index) : null;
+    }
+
+    /**
+     * Returns the index of the last entry with an id at or below {@code id}, or -1 if there is none.
+     */
+    synchronized int floorIndexById(long id) {
+        int low = 0;
+        int high = size - 1;
+        int match = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] <= id) {
+                match = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return match;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized Entry entry(int index) {
+        return new Entry(offsets[index], ids[index], positions[index]);
+    }
+
+    record Entry(long offset, long id, int position) {}
+}
@@ -0,0 +1,97 @@
+package com.example.chat.scheduling;
+
+import java.util.concurrent.Executors;
+
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatProperties;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The schedulers that take work off the event loops, configured by chat.execution.
+ *
+ * <p>{@link #blocking()} is for work that waits: file reads, locks held by slow writers, anything a
+ * BlockHound check would reject on an event loop. On virtual threads a waiting task costs no platform thread,
+ * so it needs no bound. {@link #cpu()} is for work that computes without waiting, bounded to the processors
+ * so it cannot crowd out the event loops. {@link #broadcast()} has one thread per broadcast shard, each draining
+ * the deliveries of the room subscribers assigned to it.
+ */
+@Component
+@Slf4j
+public class ChatSchedulers {
+
+    private final Scheduler blocking;
+    private final Scheduler cpu;
+    private final Scheduler broadcast;
+    private final int broadcastShards;
+
+    public ChatSchedulers(ChatProperties chatProperties) {
+        ChatProperties.Execution execution = chatProperties.getExecution();
+        this.blocking = execution.isVirtualThreads()
+                ? Schedulers.fromExecutorService(
+                        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chat-blocking-", 0).factory()),
+                        "chat-blocking")
+                : Schedulers.newBoundedElastic(Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE,
+                        Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "chat-blocking");
+        int parallelism = execution.getCpuParallelism() > 0
+                ? execution.getCpuParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.cpu = Schedulers.newParallel("chat-cpu", parallelism);
+        this.broadcastShards = execution.getBroadcastShards() > 0
+                ? execution.getBroadcastShards()
+                : Runtime.getRuntime().availableProcessors();
+        this.broadcast = Schedulers.newParallel("chat-broadcast", broadcastShards);
+        log.info("Blocking work runs on {}, CPU work on {} thread(s), broadcast on {} shard(s)",
+                execution.isVirtualThreads() ? "virtual threads" : "a bounded elastic pool", parallelism, broadcastShards);
+    }
+
+    /**
+     * Returns the scheduler for work that may block.
+     */
+    public Scheduler blocking() {
+        return blocking;
+    }
+
+    /**
+     * Returns the scheduler for CPU-bound work that never blocks.
+     */
+    public Scheduler cpu() {
+        return cpu;
+    }
+
+    /**
+     * Returns the scheduler that delivers broadcasts, with one thread per shard.
+     */
+    public Scheduler broadcast() {
+        return broadcast;
+    }
+
+    /**
+     * Returns the number of broadcast shards, the threads of {@link #broadcast()}.
+     */
+    public int broadcastShards() {
+        return broadcastShards;
+    }
+
+    /**
+     * Creates a scheduler that runs blocking tasks one at a time, in the order they were scheduled,
+     * for a component that owns a resource such as a file. The caller disposes it.
+     *
+     * @param name the thread name
+     * @return a new single-threaded scheduler on which blocking is allowed
+     */
+    public static Scheduler serial(String name) {
+        return Schedulers.newBoundedElastic(1, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, name);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        blocking.dispose();
+        cpu.dispose();
+        broadcast.dispose();
+    }
+}
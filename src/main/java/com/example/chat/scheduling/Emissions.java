@@ -0,0 +1,31 @@
+package com.example.chat.scheduling;
+
+import reactor.core.publisher.Sinks;
+
+/**
+ * Emits to sinks shared by several threads without dropping signals.
+ */
+public final class Emissions {
+
+    private Emissions() {
+        // Utility class
+    }
+
+    /**
+     * Emits a value, retrying at once while another thread is emitting to the same sink, like Reactor's
+     * busy-looping failure handler. That other emission only hands the value to subscribers that never block,
+     * so the retry is short and calls nothing that waits; callers may run on event loops.
+     *
+     * @param sink the sink to emit to
+     * @param value the value to emit
+     * @param <T> the type of the sink's values
+     * @return the final emit result, never {@link Sinks.EmitResult#FAIL_NON_SERIALIZED}
+     */
+    public static <T> Sinks.EmitResult emitNext(Sinks.Many<T> sink, T value) {
+        Sinks.EmitResult result;
+        do {
+            result = sink.tryEmitNext(value);
+        } while (result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+        return result;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.chat.search;
+
+import java.util.Arrays;
+
+/**
+ * The documents that contain one term, as parallel primitive arrays of document numbers and term frequencies.
+ *
+ * <p>Document numbers are assigned in increasing order and evicted oldest first, so entries are always sorted
+ * and the evicted ones always form a prefix. {@link #compact(long)} drops that prefix and shrinks the arrays.
+ */
+final class PostingList {
+
+    private long[] docs = new long[4];
+    private int[] freqs = new int[4];
+    private int size;
+
+    void add(long doc, int freq) {
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+            freqs = Arrays.copyOf(freqs, size * 2);
+        }
+        docs[size] = doc;
+        freqs[size] = freq;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long doc(int index) {
+        return docs[index];
+    }
+
+    int freq(int index) {
+        return freqs[index];
+    }
+
+    /**
+     * Returns the index of the first entry for a document at or after {@code oldestDoc}.
+     */
+    int firstLive(long oldestDoc) {
+        int found = Arrays.binarySearch(docs, 0, size, oldestDoc);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    /**
+     * Drops the entries of evicted documents.
+     *
+     * @param oldestDoc the oldest document still indexed
+     * @return the number of entries removed
+     */
+    int compact(long oldestDoc) {
+        int dead = firstLive(oldestDoc);
+        int live = size - dead;
+        int capacity = Math.max(4, Integer.highestOneBit(Math.max(1, live)) << 1);
+        if (dead == 0 && capacity >= docs.length) {
+            return 0;
+        }
+        long[] liveDocs = new long[capacity];
+        int[] liveFreqs = new int[capacity];
+        System.arraycopy(docs, dead, liveDocs, 0, live);
+        System.arraycopy(freqs, dead, liveFreqs, 0, live);
+        docs = liveDocs;
+        freqs = liveFreqs;
+        size = live;
+        return dead;
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.chat.search;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.model.Message;
+import com.example.chat.repository.MessageRepository;
+import com.example.chat.scheduling.ChatSchedulers;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Incremental inverted index over the content of recent messages, ranked with BM25.
+ *
+ * <p>Publishing only enqueues the message; tokenizing and indexing run in batches on a dedicated
+ * scheduler, so the publish path never waits for the index. Each indexed message gets a document number
+ * in a ring of chat.history.capacity slots, the same bound as the in-memory history: once the ring is full,
+ * the oldest document is evicted, as are documents older than chat.history.retention. Posting lists hold
+ * primitive document numbers and term frequencies; entries of evicted documents are skipped by queries and
+ * dropped by a periodic compaction, which also runs early once they outnumber the live ones.
+ */
+@Component
+@Slf4j
+public class SearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_DRAIN_BATCH = 1024;
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int mask;
+    private final Duration retention;
+    private final int queueCapacity;
+
+    // Written on the index scheduler under the write lock, read by queries under the read lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Message[] docs;
+    private final int[] docLengths;
+    private final int[] docTermCounts;
+    private final Map<String, PostingList> terms = new HashMap<>();
+    private long oldestDoc;
+    private long nextDoc;
+    private long totalLength;
+    private long livePostings;
+    private long postings;
+
+    private final Queue<Message> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Scheduler indexScheduler;
+    private final Disposable compaction;
+    private volatile int termCount;
+    private volatile long documentCount;
+    private volatile long postingCount;
+
+    public SearchIndex(ChatProperties chatProperties, MessageRepository messageRepository, ChatMetrics metrics) {
+        ChatProperties.Search search = chatProperties.getSearch();
+        this.enabled = search.isEnabled();
+        this.capacity = ceilingPowerOfTwo(chatProperties.getHistory().getCapacity());
+        this.mask = capacity - 1;
+        this.retention = chatProperties.getHistory().getRetention();
+        this.queueCapacity = search.getQueueCapacity();
+        this.docs = new Message[enabled ? capacity : 0];
+        this.docLengths = new int[enabled ? capacity : 0];
+        this.docTermCounts = new int[enabled ? capacity : 0];
+        // Indexing waits for searches holding the read lock, so it runs on a thread that may block
+        this.indexScheduler = ChatSchedulers.serial("chat-search");
+        long compactMillis = search.getCompactInterval().toMillis();
+        this.compaction = enabled
+                ? indexScheduler.schedulePeriodically(this::compact, compactMillis, compactMillis, TimeUnit.MILLISECONDS)
+                : Disposables.disposed();
+        metrics.trackSearch(this);
+        if (enabled) {
+            // Runs before any drain, so stored history is indexed ahead of newly published messages
+            indexScheduler.schedule(() -> index(messageRepository.findLast(capacity)));
+        }
+        log.info("Search index {} with capacity: {}, queue capacity: {}, compaction every {}",
+                enabled ? "enabled" : "disabled", capacity, queueCapacity, search.getCompactInterval());
+    }
+
+    /**
+     * Queues a published message for indexing. Never blocks; if the queue is full the message is not indexed.
+     *
+     * @param message the published message
+     */
+    public void submit(Message message) {
+        if (!enabled) {
+            return;
+        }
+        if (pendingCount.incrementAndGet() > queueCapacity) {
+            pendingCount.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        pending.offer(message);
+        scheduleDrain();
+    }
+
+    /**
+     * Queues a batch of published messages for indexing.
+     *
+     * @param messages the published messages
+     */
+    public void submitAll(List<Message> messages) {
+        for (Message message : messages) {
+            submit(message);
+        }
+    }
+
+    /**
+     * Finds the indexed messages that contain any of the query's terms, best match first.
+     * Messages matching more terms, rarer terms or a term more often rank higher.
+     *
+     * @param query the search text, tokenized like message content
+     * @param room only messages in this room, or null for all rooms
+     * @param offset the number of best matches to skip
+     * @param limit the maximum number of matches to return
+     * @return the total number of matches and the requested page
+     */
+    public SearchPage search(String query, String room, int offset, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>();
+        Tokenizer.tokenize(query, queryTerms::add);
+        int wanted = offset + limit;
+        // Min-heap of the best matches so far; ties go to the newer message
+        PriorityQueue<long[]> best = new PriorityQueue<>(Math.max(1, wanted), Comparator
+                .<long[]>comparingDouble(entry -> Double.longBitsToDouble(entry[1]))
+                .thenComparingLong(entry -> entry[0]));
+        long total = 0;
+        List<SearchPage.Match> matches = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            long documents = nextDoc - oldestDoc;
+            if (!enabled || documents == 0 || queryTerms.isEmpty()) {
+                return new SearchPage(0, List.of());
+            }
+            double averageLength = (double) totalLength / documents;
+            List<TermCursor> cursors = new ArrayList<>(queryTerms.size());
+            for (String term : queryTerms) {
+                PostingList postingList = terms.get(term);
+                if (postingList == null) {
+                    continue;
+                }
+                int first = postingList.firstLive(oldestDoc);
+                int documentFrequency = postingList.size() - first;
+                if (documentFrequency > 0) {
+                    double idf = Math.log(1 + (documents - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                    cursors.add(new TermCursor(postingList, first, idf));
+                }
+            }
+
+            // Posting lists are sorted by document, so a k-way merge visits each matching document once
+            while (true) {
+                long doc = Long.MAX_VALUE;
+                for (TermCursor cursor : cursors) {
+                    if (cursor.hasNext()) {
+                        doc = Math.min(doc, cursor.doc());
+                    }
+                }
+                if (doc == Long.MAX_VALUE) {
+                    break;
+                }
+                int slot = (int) (doc & mask);
+                double score = 0;
+                for (TermCursor cursor : cursors) {
+                    if (cursor.hasNext() && cursor.doc() == doc) {
+                        int frequency = cursor.freq();
+                        score += cursor.idf * frequency * (K1 + 1)
+                                / (frequency + K1 * (1 - B + B * docLengths[slot] / averageLength));
+                        cursor.advance();
+                    }
+                }
+                if (room != null && !room.equals(docs[slot].getRoom())) {
+                    continue;
+                }
+                total++;
+                long[] entry = {doc, Double.doubleToLongBits(score)};
+                if (best.size() < wanted) {
+                    best.offer(entry);
+                } else if (wanted > 0 && best.comparator().compare(entry, best.peek()) > 0) {
+                    best.poll();
+                    best.offer(entry);
+                }
+            }
+
+            List<long[]> ranked = new ArrayList<>(best);
+            ranked.sort(best.comparator().reversed());
+            for (int i = offset; i < ranked.size(); i++) {
+                long[] entry = ranked.get(i);
+                matches.add(new SearchPage.Match(docs[(int) (entry[0] & mask)], Double.longBitsToDouble(entry[1])));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new SearchPage(total, matches);
+    }
+
+    public long documentCount() {
+        return documentCount;
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    public long postingCount() {
+        return postingCount;
+    }
+
+    public int queued() {
+        return pendingCount.get();
+    }
+
+    public long droppedTotal() {
+        return dropped.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compaction.dispose();
+        indexScheduler.dispose();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            indexScheduler.schedule(this::drain);
+        }
+    }
+
+    private void drain() {
+        // Cleared before polling, so a message offered while this drain runs schedules the next one
+        drainScheduled.set(false);
+        List<Message> batch = new ArrayList<>();
+        Message message;
+        while (batch.size() < MAX_DRAIN_BATCH && (message = pending.poll()) != null) {
+            batch.add(message);
+        }
+        pendingCount.addAndGet(-batch.size());
+        try {
+            index(batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to index {} messages", batch.size(), e);
+        }
+        if (!pending.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private void index(List<Message> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Tokenize outside the lock; queries only wait for the posting list appends
+        List<Map<String, int[]>> frequencies = new ArrayList<>(batch.size());
+        int[] lengths = new int[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            Map<String, int[]> termFrequencies = new HashMap<>();
+            int[] length = new int[1];
+            Tokenizer.tokenize(batch.get(i).getContent(), term -> {
+                termFrequencies.computeIfAbsent(term, key -> new int[1])[0]++;
+                length[0]++;
+            });
+            frequencies.add(termFrequencies);
+            lengths[i] = length[0];
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                add(batch.get(i), frequencies.get(i), lengths[i]);
+            }
+            if (postings > 2 * livePostings + capacity) {
+                compactPostings();
+            }
+            updateStats();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Message message, Map<String, int[]> termFrequencies, int length) {
+        if (nextDoc - oldestDoc == capacity) {
+            evictOldest();
+        }
+        long doc = nextDoc++;
+        int slot = (int) (doc & mask);
+        docs[slot] = message;
+        docLengths[slot] = length;
+        docTermCounts[slot] = termFrequencies.size();
+        totalLength += length;
+        livePostings += termFrequencies.size();
+        postings += termFrequencies.size();
+        termFrequencies.forEach((term, frequency) -> terms.computeIfAbsent(term, key -> new PostingList()).add(doc, frequency[0]));
+    }
+
+    private void evictOldest() {
+        int slot = (int) (oldestDoc & mask);
+        totalLength -= docLengths[slot];
+        livePostings -= docTermCounts[slot];
+        docs[slot] = null;
+        oldestDoc++;
+    }
+
+    private void compact() {
+        lock.writeLock().lock();
+        try {
+            if (retention != null) {
+                long cutoff = System.currentTimeMillis() - retention.toMillis();
+                while (oldestDoc < nextDoc && docs[(int) (oldestDoc & mask)].getTimestamp() < cutoff) {
+                    evictOldest();
+                }
+            }
+            compactPostings();
+            updateStats();
+        } catch (RuntimeException e) {
+            log.error("Search index compaction failed", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops posting entries of evicted documents and the terms left without any; called with the write lock held.
+     */
+    private void compactPostings() {
+        long removed = 0;
+        Iterator<PostingList> lists = terms.values().iterator();
+        while (lists.hasNext()) {
+            PostingList postingList = lists.next();
+            removed += postingList.compact(oldestDoc);
+            if (postingList.size() == 0) {
+                lists.remove();
+            }
+        }
+        postings -= removed;
+        log.debug("Compacted search index: removed {} postings, {} terms left", removed, terms.size());
+    }
+
+    private void updateStats() {
+        documentCount = nextDoc - oldestDoc;
+        termCount = terms.size();
+        postingCount = postings;
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        if (value <= 1) {
+            return 1;
+        }
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Position of a query term in its posting list during the merge.
+     */
+    private static final class TermCursor {
+        private final PostingList postingList;
+        private final double idf;
+        private int index;
+
+        TermCursor(PostingList postingList, int first, double idf) {
+            this.postingList = postingList;
+            this.index = first;
+            this.idf = idf;
+        }
+
+        boolean hasNext() {
+            return index < postingList.size();
+        }
+
+        long doc() {
+            return postingList.doc(index);
+        }
+
+        int freq() {
+            return postingList.freq(index);
+        }
+
+        void advance() {
+            index++;
+        }
+    }
+}
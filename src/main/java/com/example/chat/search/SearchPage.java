@@ -0,0 +1,23 @@
+package com.example.chat.search;
+
+import java.util.List;
+
+import com.example.chat.model.Message;
+
+/**
+ * One page of ranked search results.
+ *
+ * @param total the number of indexed messages that match the query
+ * @param matches the requested page of matches, best first
+ */
+public record SearchPage(long total, List<Match> matches) {
+
+    /**
+     * A matching message and its BM25 relevance score.
+     *
+     * @param message the message
+     * @param score the relevance score; higher is better
+     */
+    public record Match(Message message, double score) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.chat.search;
+
+import java.util.function.Consumer;
+
+/**
+ * Splits text into search terms: maximal runs of letters and digits, lower-cased.
+ * Terms longer than {@link #MAX_TERM_LENGTH} characters are skipped; they are almost never searched for.
+ */
+final class Tokenizer {
+
+    static final int MAX_TERM_LENGTH = 40;
+
+    private Tokenizer() {
+    }
+
+    static void tokenize(String text, Consumer<String> terms) {
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start <= MAX_TERM_LENGTH) {
+                    terms.accept(text.substring(start, i).toLowerCase());
+                }
+                start = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.chat.service;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Exceptions;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.concurrent.Queues;
+
+/**
+ * One partition of the room subscribers, with the thread that delivers to them.
+ *
+ * <p>Publishers only append to the shard's queue; the first append to an empty queue schedules a drain on the
+ * shard's worker, which runs deliveries in the order they were queued until the queue is empty. A publish therefore
+ * costs one queue append per shard that has subscribers in the room, and the fan-out to those subscribers runs on
+ * as many threads as there are shards.
+ */
+@Slf4j
+final class BroadcastShard {
+
+    private final int index;
+    private final Scheduler.Worker worker;
+    private final Queue<Runnable> deliveries = Queues.<Runnable>unboundedMultiproducer().get();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    BroadcastShard(int index, Scheduler.Worker worker) {
+        this.index = index;
+        this.worker = worker;
+    }
+
+    int index() {
+        return index;
+    }
+
+    /**
+     * Queues a delivery to run on the shard's thread, after every delivery queued before it.
+     *
+     * @param delivery the delivery, which must not block
+     */
+    void execute(Runnable delivery) {
+        deliveries.offer(delivery);
+        if (pending.getAndIncrement() == 0) {
+            worker.schedule(this::drain);
+        }
+    }
+
+    void acquire() {
+        subscribers.incrementAndGet();
+    }
+
+    void release() {
+        subscribers.decrementAndGet();
+    }
+
+    int subscriberCount() {
+        return subscribers.get();
+    }
+
+    /**
+     * @return the deliveries waiting for the shard's thread
+     */
+    int queued() {
+        return pending.get();
+    }
+
+    void dispose() {
+        worker.dispose();
+        deliveries.clear();
+    }
+
+    private void drain() {
+        // Every count was added after its delivery was queued, so there is a delivery to poll for each
+        do {
+            try {
+                deliveries.poll().run();
+            } catch (Throwable e) {
+                // One failing delivery must not stall the rest of the shard
+                Exceptions.throwIfJvmFatal(e);
+                log.error("Broadcast delivery failed on shard {}", index, e);
+            }
+        } while (pending.decrementAndGet() != 0);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.chat.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.chat.codec.EncodedMessage;
+import com.example.chat.scheduling.Emissions;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Broadcast hub for a single chat room.
+ * Tracks its subscriber count so idle rooms can be evicted.
+ *
+ * <p>Subscribers are spread over the {@link BroadcastShard}s, each joining the shard with the fewest subscribers.
+ * The room's sink orders its messages and relays each one to every shard the room has subscribers on; the shard
+ * then emits it to its part of the room on its own thread. All subscribers see the messages in the same order.
+ */
+final class ChatRoom {
+
+    /**
+     * The subscribers of the room on one shard, and the relay that hands them the room's messages.
+     */
+    private record Part(BroadcastShard shard, Flux<EncodedMessage> flux, Disposable relay) {
+    }
+
+    private final String id;
+    private final BroadcastShard[] shards;
+    private final SubscriberQueues subscriberQueues;
+    private final Sinks.Many<EncodedMessage> sink;
+    private final Map<Integer, Part> parts = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private volatile long lastActiveNanos = System.nanoTime();
+
+    ChatRoom(String id, BroadcastShard[] shards, SubscriberQueues subscriberQueues) {
+        this.id = id;
+        this.shards = shards;
+        this.subscriberQueues = subscriberQueues;
+        // Best-effort multicast never waits for slow subscribers; each subscriber buffers in its own queue instead
+        this.sink = Sinks.many().multicast().directBestEffort();
+    }
+
+    String id() {
+        return id;
+    }
+
+    /**
+     * Returns the room's messages for one subscriber, delivered on the least loaded shard at subscription time.
+     */
+    Flux<EncodedMessage> flux() {
+        return Flux.defer(() -> {
+            BroadcastShard shard = leastLoaded();
+            shard.acquire();
+            return parts.computeIfAbsent(shard.index(), index -> part(shard)).flux()
+                    .doFinally(signal -> shard.release());
+        });
+    }
+
+    /**
+     * Emits a message to the room's current subscribers.
+     * Concurrent publishers that lose the race for the sink retry instead of dropping the message.
+     *
+     * @param message the message to emit, with its encodings shared by all subscribers
+     * @return the final emit result
+     */
+    Sinks.EmitResult emit(EncodedMessage message) {
+        return Emissions.emitNext(sink, message);
+    }
+
+    void acquire() {
+        subscribers.incrementAndGet();
+        lastActiveNanos = System.nanoTime();
+    }
+
+    void release() {
+        lastActiveNanos = System.nanoTime();
+        subscribers.decrementAndGet();
+    }
+
+    int subscriberCount() {
+        return subscribers.get();
+    }
+
+    boolean isIdle(long nowNanos, long idleTimeoutNanos) {
+        return subscribers.get() == 0 && nowNanos - lastActiveNanos >= idleTimeoutNanos;
+    }
+
+    /**
+     * Stops relaying to the shards, once the room is evicted.
+     */
+    void close() {
+        parts.values().forEach(part -> part.relay().dispose());
+    }
+
+    private Part part(BroadcastShard shard) {
+        Sinks.Many<EncodedMessage> shardSink = Sinks.many().multicast().directBestEffort();
+        // Only the shard's thread emits to its sink, so emissions never contend
+        Disposable relay = sink.asFlux()
+                .subscribe(message -> shard.execute(() -> shardSink.tryEmitNext(message)));
+        return new Part(shard, subscriberQueues.isolate(shardSink.asFlux(), "room:" + id), relay);
+    }
+
+    private BroadcastShard leastLoaded() {
+        BroadcastShard least = shards[0];
+        for (BroadcastShard shard : shards) {
+            if (shard.subscriberCount() < least.subscriberCount()) {
+                least = shard;
+            }
+        }
+        return least;
+    }
+}
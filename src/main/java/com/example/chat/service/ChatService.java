@@ -1,8 +1,15 @@
 package com.example.chat.service;
 
+import java.util.Collection;
+import java.util.List;
+
+import com.example.chat.codec.EncodedMessage;
 import com.example.chat.model.Message;
+import com.example.chat.repository.HistoryQuery;
+import com.example.chat.search.SearchPage;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * Service interface for chat operations.
@@ -11,16 +18,86 @@ import reactor.core.publisher.Flux;
 public interface ChatService {
 
     /**
-     * Publishes a message to the chat.
+     * Publishes a message to the subscribers of its room.
+     * With moderation stages configured, the message is published once it passes them, possibly rewritten,
+     * after the sender's earlier messages, and dropped if a stage rejects it.
      *
      * @param message the message to publish
      */
     void publish(Message message);
 
     /**
-     * Returns a Flux of messages for streaming.
+     * Publishes a stream of messages in micro-batches bounded by chat.batch.size and chat.batch.window.
+     * Messages pass the moderation stages first; rejected ones are not published or counted.
+     * Each batch is stored with one repository write and broadcast in arrival order,
+     * so messages from the same sender are never reordered.
+     *
+     * @param messages the messages to publish
+     * @return the number of messages published, once the stream completes
+     */
+    Mono<Long> publishAll(Flux<Message> messages);
+
+    /**
+     * Returns a Flux of the messages published to a room.
+     * Every subscriber receives the same EncodedMessage instance, so each message is serialized
+     * once per wire format no matter how many subscribers there are.
+     *
+     * @param room the room to subscribe to
+     * @return a Flux of published messages with their shared encodings
+     */
+    Flux<EncodedMessage> messages(String room);
+
+    /**
+     * Returns a Flux that first replays a room's stored messages after a sequence id
+     * and then continues with the live stream, without gaps or duplicates at the switch-over.
+     *
+     * @param room the room to subscribe to
+     * @param afterId the last sequence id the client has seen
+     * @return a Flux of published messages with their shared encodings
+     */
+    Flux<EncodedMessage> messages(String room, long afterId);
+
+    /**
+     * Returns the stored messages of a room published after a sequence id.
+     *
+     * @param room the room to read
+     * @param afterId the sequence id to read after (exclusive)
+     * @return the stored messages, ordered by sequence id
+     */
+    List<Message> history(String room, long afterId);
+
+    /**
+     * Streams a page of a room's stored history, read from the store as it is consumed.
+     *
+     * @param query the room, cursor, filters and page size
+     * @return the matching messages, oldest first with an afterId cursor, newest first otherwise
+     */
+    Flux<Message> history(HistoryQuery query);
+
+    /**
+     * Searches the content of recent messages, best match first.
+     * Only messages within the history capacity and retention are searchable, and a message becomes
+     * searchable shortly after it is published.
+     *
+     * @param query the search text
+     * @param room only messages in this room, or null for all rooms
+     * @param offset the number of best matches to skip
+     * @param limit the maximum number of matches to return
+     * @return the total number of matches and the requested page
+     */
+    Mono<SearchPage> search(String query, String room, int offset, int limit);
+
+    /**
+     * Returns per-subscriber delivery stats, including queue lag and dropped messages.
+     *
+     * @return the stats of every connected subscriber
+     */
+    Collection<SubscriberStats> subscriberStats();
+
+    /**
+     * Returns the number of rooms that currently hold a broadcast sink.
      *
-     * @return a Flux of Message entities
+     * @return the active room count
      */
-    Flux<Message> messages();
+    int activeRooms();
 }
@@ -1,53 +1,295 @@
 package com.example.chat.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.stereotype.Service;
 
+import com.example.chat.cluster.ChatBackplane;
+import com.example.chat.cluster.ClusterMessage;
+import com.example.chat.cluster.PeerSequences;
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.EncodedMessage;
 import com.example.chat.config.ChatProperties;
+import com.example.chat.metrics.ChatMetrics;
 import com.example.chat.model.Message;
+import com.example.chat.moderation.ModerationPipeline;
+import com.example.chat.repository.HistoryQuery;
 import com.example.chat.repository.MessageRepository;
+import com.example.chat.scheduling.ChatSchedulers;
+import com.example.chat.search.SearchIndex;
+import com.example.chat.search.SearchPage;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Implementation of ChatService using reactive Sinks for message broadcasting.
- * Provides in-memory message publishing and streaming.
+ * Each room has its own sink, created when the first subscriber joins and
+ * evicted after it has had no subscribers for the configured idle timeout,
+ * so delivery cost scales with the size of the room rather than the total number of connections.
+ * Publishing only hands a message to the {@link BroadcastShard}s its room has subscribers on; each shard delivers
+ * to its subscribers on its own thread, so the fan-out of a large room runs on every core instead of the publisher's.
+ *
+ * <p>Messages pass the {@link ModerationPipeline} first, when it has stages; each sender's messages are
+ * published in the order they were sent, and rejected ones are dropped.
+ * Every published message is also handed to the {@link ChatBackplane}, which forwards it to the other
+ * nodes of a cluster. Messages from other nodes are stored and broadcast like local ones, under an id from
+ * this node's sequence, so history and resume keep working per node; they are not forwarded again.
+ * Stored messages are queued for the {@link SearchIndex}, which indexes them in the background.
+ * Replaying history and scoring searches run on the {@link ChatSchedulers}, never on the caller's event loop.
  */
 @Service
 @Slf4j
 public class ChatServiceImpl implements ChatService {
-    private final Sinks.Many<Message> sink;
-    private final Flux<Message> flux;
+    private final Map<String, ChatRoom> rooms = new ConcurrentHashMap<>();
     private final MessageRepository messageRepository;
-    private final AtomicLong messageCounter = new AtomicLong(0);
+    private final SubscriberQueues subscriberQueues;
+    private final ChatFrameCodec frameCodec;
+    private final ChatMetrics metrics;
+    private final ChatBackplane backplane;
+    private final SearchIndex searchIndex;
+    private final ChatSchedulers schedulers;
+    private final ModerationPipeline moderation;
+    private final PeerSequences peerSequences = new PeerSequences();
+    private final BroadcastShard[] shards;
+    private final long idleTimeoutNanos;
+    private final Disposable roomEviction;
+    private final Disposable peerMessages;
+    private final AtomicLong messageCounter;
+    private final int batchSize;
+    private final Duration batchWindow;
 
-    public ChatServiceImpl(ChatProperties chatProperties, MessageRepository messageRepository) {
+    public ChatServiceImpl(ChatProperties chatProperties, MessageRepository messageRepository, SubscriberQueues subscriberQueues,
+                           ChatFrameCodec frameCodec, ChatMetrics metrics, ChatBackplane backplane,
+                           SearchIndex searchIndex, ChatSchedulers schedulers, ModerationPipeline moderation) {
         this.messageRepository = messageRepository;
-        int maxBufferSize = chatProperties.getMaxBufferSize();
-        // Multicast: varios subscriptores; onBackpressureBuffer para evitar drop cuando hay sobrecarga
-        this.sink = Sinks.many().multicast().onBackpressureBuffer(maxBufferSize);
-        this.flux = sink.asFlux();
-        log.info("ChatService initialized with max buffer size: {}", maxBufferSize);
+        this.subscriberQueues = subscriberQueues;
+        this.frameCodec = frameCodec;
+        this.metrics = metrics;
+        this.backplane = backplane;
+        this.searchIndex = searchIndex;
+        this.schedulers = schedulers;
+        this.moderation = moderation;
+        this.shards = new BroadcastShard[schedulers.broadcastShards()];
+        for (int i = 0; i < shards.length; i++) {
+            BroadcastShard shard = new BroadcastShard(i, schedulers.broadcast().createWorker());
+            shards[i] = shard;
+            metrics.trackBroadcastShard(i, shard::subscriberCount, shard::queued);
+        }
+        // Continue the sequence from a durable store so resume ids stay unique across restarts
+        this.messageCounter = new AtomicLong(messageRepository.lastId());
+        metrics.trackSequence(messageCounter);
+        this.batchSize = chatProperties.getBatch().getSize();
+        this.batchWindow = chatProperties.getBatch().getWindow();
+        Duration idleTimeout = chatProperties.getRooms().getIdleTimeout();
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        long sweepMillis = Math.max(1, idleTimeout.toMillis() / 2);
+        this.roomEviction = Schedulers.parallel()
+                .schedulePeriodically(this::evictIdleRooms, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+        this.peerMessages = backplane.inbound()
+                .subscribe(this::publishFromPeer, error -> log.error("Stopped receiving messages from the cluster", error));
+        log.info("ChatService initialized with per-room sinks on {} broadcast shard(s), room idle timeout: {}, node: {}",
+                shards.length, idleTimeout, backplane.nodeId());
     }
 
     @Override
     public void publish(Message message) {
-        messageRepository.save(message);
-        messageCounter.incrementAndGet();
-
-        Sinks.EmitResult result = sink.tryEmitNext(message);
-        if (result.isFailure()) {
-            log.error("Failed to emit message from sender: {}, reason: {}", message.getSender(), result);
+        if (moderation.isEmpty()) {
+            store(message);
         } else {
-            log.debug("Message published from sender: {}", message.getSender());
+            moderation.submit(message, this::store);
         }
     }
 
     @Override
-    public Flux<Message> messages() {
-        return flux;
+    public Mono<Long> publishAll(Flux<Message> messages) {
+        // Moderated a window at a time but kept in order, so batches are cut from the stream as it was sent
+        Flux<Message> moderated = moderation.isEmpty()
+                ? messages
+                : messages.flatMapSequential(moderation::moderate, moderation.parallelism());
+        // Batches are published strictly one after another, so every sender's messages keep their order
+        return moderated
+                .bufferTimeout(batchSize, batchWindow, true)
+                .map(this::publishBatch)
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public Flux<EncodedMessage> messages(String room) {
+        return Flux.defer(() -> {
+            ChatRoom chatRoom = acquire(room);
+            return chatRoom.flux().doFinally(signal -> chatRoom.release());
+        });
+    }
+
+    @Override
+    public Flux<EncodedMessage> messages(String room, long afterId) {
+        // Reading history may touch the disk, so subscribe off the caller's thread; requests stay on the caller's thread
+        return Replay.thenLive(afterId, messages(room), () -> encodedHistory(room, afterId), EncodedMessage::id)
+                .subscribeOn(schedulers.blocking(), false);
+    }
+
+    @Override
+    public List<Message> history(String room, long afterId) {
+        return messageRepository.findAfter(room, afterId);
+    }
+
+    @Override
+    public Flux<Message> history(HistoryQuery query) {
+        return messageRepository.findRange(query);
+    }
+
+    @Override
+    public Mono<SearchPage> search(String query, String room, int offset, int limit) {
+        // Queries wait for the index's read lock while a batch is being indexed, so keep them off the event loop
+        return Mono.fromCallable(() -> searchIndex.search(query, room, offset, limit))
+                .subscribeOn(schedulers.blocking());
+    }
+
+    @Override
+    public Collection<SubscriberStats> subscriberStats() {
+        return subscriberQueues.stats();
+    }
+
+    @Override
+    public int activeRooms() {
+        return rooms.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        roomEviction.dispose();
+        peerMessages.dispose();
+        for (BroadcastShard shard : shards) {
+            shard.dispose();
+        }
+    }
+
+    /**
+     * Stores and broadcasts a message that passed moderation.
+     */
+    private void store(Message message) {
+        long publishedNanos = System.nanoTime();
+        // Assign the sequence id before saving, so history always holds what live subscribers may have missed
+        Message published = message.withId(messageCounter.incrementAndGet());
+        messageRepository.save(published);
+        metrics.published(1);
+        emit(rooms.get(published.getRoom()), published, publishedNanos);
+        backplane.forward(published);
+        searchIndex.submit(published);
+    }
+
+    private ChatRoom acquire(String room) {
+        // compute() serializes with eviction, so a room is never evicted while a subscriber is joining it
+        return rooms.compute(room, (id, existing) -> {
+            ChatRoom chatRoom = existing != null ? existing : new ChatRoom(id, shards, subscriberQueues);
+            chatRoom.acquire();
+            return chatRoom;
+        });
+    }
+
+    private void evictIdleRooms() {
+        long now = System.nanoTime();
+        for (String id : rooms.keySet()) {
+            rooms.computeIfPresent(id, (key, room) -> {
+                if (room.isIdle(now, idleTimeoutNanos)) {
+                    log.debug("Evicting idle room: {}", key);
+                    room.close();
+                    return null;
+                }
+                return room;
+            });
+        }
+    }
+
+    private List<EncodedMessage> encodedHistory(String room, long afterId) {
+        return history(room, afterId).stream()
+                .map(message -> new EncodedMessage(message, frameCodec))
+                .toList();
+    }
+
+    /**
+     * Publishes a micro-batch: one id range, one repository write, then the emits in order.
+     *
+     * @param batch the messages to publish, in arrival order
+     * @return the number of messages published
+     */
+    private long publishBatch(List<Message> batch) {
+        long publishedNanos = System.nanoTime();
+        long id = messageCounter.getAndAdd(batch.size());
+        List<Message> published = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            published.add(message.withId(++id));
+        }
+        messageRepository.saveAll(published);
+        metrics.published(batch.size());
+
+        ChatRoom room = null;
+        String roomId = null;
+        for (Message message : published) {
+            if (!message.getRoom().equals(roomId)) {
+                roomId = message.getRoom();
+                room = rooms.get(roomId);
+            }
+            emit(room, message, publishedNanos);
+        }
+        backplane.forwardAll(published);
+        searchIndex.submitAll(published);
+        log.debug("Published batch of {} messages", batch.size());
+        return batch.size();
+    }
+
+    /**
+     * Stores and broadcasts a message published on another node, unless it was already delivered.
+     * Its origin id is replaced by the next id of this node's sequence.
+     */
+    private void publishFromPeer(ClusterMessage received) {
+        Message message = received.message();
+        if (!peerSequences.firstSeen(received.origin(), received.bootId(), message.getId())) {
+            metrics.peerDuplicate();
+            log.debug("Dropped duplicate message {} from node {}", message.getId(), received.origin());
+            return;
+        }
+        long publishedNanos = System.nanoTime();
+        message = message.withId(messageCounter.incrementAndGet());
+        try {
+            messageRepository.save(message);
+        } catch (RuntimeException e) {
+            // Keep the inbound stream alive; one unstorable message must not cut this node off the cluster
+            log.error("Failed to store message from node {}", received.origin(), e);
+            return;
+        }
+        metrics.peerReceived();
+        emit(rooms.get(message.getRoom()), message, publishedNanos);
+        searchIndex.submit(message);
+    }
+
+    private void emit(ChatRoom room, Message message, long publishedNanos) {
+        // A room without a sink has no subscribers, so there is nobody to deliver to
+        Sinks.EmitResult result = room != null
+                ? room.emit(new EncodedMessage(message, frameCodec, publishedNanos))
+                : Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER;
+        if (result.isFailure()) {
+            metrics.emitFailed(result);
+        }
+        if (result == Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            log.debug("Message from sender {} published to room {} with no subscribers", message.getSender(), message.getRoom());
+        } else if (result.isFailure()) {
+            log.error("Failed to emit message from sender: {}, room: {}, reason: {}", message.getSender(), message.getRoom(), result);
+        } else {
+            log.debug("Message published from sender: {} to room: {}", message.getSender(), message.getRoom());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,89 @@
+package com.example.chat.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Stitches stored history and a live stream together for resuming clients.
+ */
+public final class Replay {
+
+    private Replay() {
+        // Utility class
+    }
+
+    /**
+     * Replays everything after a sequence id from history, then switches to the live stream.
+     * The live stream is subscribed before history is read, so nothing published in between is lost, and what
+     * it delivers meanwhile is held until history has been emitted; live items already replayed from history
+     * are filtered out, so nothing is delivered twice.
+     *
+     * @param afterId the last sequence id the client has seen
+     * @param live the live stream, buffered from the moment of subscription
+     * @param history reads the stored items after {@code afterId}, in sequence order
+     * @param idOf extracts the sequence id of an item
+     * @return a gap-free, duplicate-free stream of items after {@code afterId}
+     */
+    public static <T> Flux<T> thenLive(long afterId, Flux<T> live, Supplier<List<T>> history, ToLongFunction<T> idOf) {
+        return Flux.defer(() -> {
+            Sinks.Empty<Void> connected = Sinks.empty();
+            Resume<T> resume = new Resume<>(afterId, idOf);
+            Flux<T> replayed = connected.asMono()
+                    .thenMany(Flux.defer(() -> Flux.fromIterable(resume.replay(history.get()))));
+
+            // Both are subscribed at once, in this order, and live items wait in the merge until history has completed.
+            // History is read only once subscribing to the live stream has returned: a subscriber's queue requests
+            // from the room after passing on its subscription, and the room drops what it emits before that request
+            Flux<Flux<T>> sources = Flux.just(replayed, live)
+                    .doOnComplete(connected::tryEmitEmpty);
+            return Flux.mergeSequential(sources)
+                    .filter(resume::isNew);
+        });
+    }
+
+    /**
+     * What one resuming subscriber was replayed, to tell the live items it has not seen yet.
+     * Only read and written by the serialized signals of the merged stream, after history has been read.
+     */
+    private static final class Resume<T> {
+
+        private final long afterId;
+        private final ToLongFunction<T> idOf;
+        private final Set<Long> replayedIds = new HashSet<>();
+        private long highWaterMark;
+        private int replaying;
+
+        Resume(long afterId, ToLongFunction<T> idOf) {
+            this.afterId = afterId;
+            this.idOf = idOf;
+            this.highWaterMark = afterId;
+        }
+
+        List<T> replay(List<T> items) {
+            for (T item : items) {
+                long id = idOf.applyAsLong(item);
+                replayedIds.add(id);
+                highWaterMark = Math.max(highWaterMark, id);
+            }
+            replaying = items.size();
+            return items;
+        }
+
+        boolean isNew(T item) {
+            // The merge emits every replayed item before the first live one
+            if (replaying > 0) {
+                replaying--;
+                return true;
+            }
+            long id = idOf.applyAsLong(item);
+            // Concurrent publishers may save out of order, so ids at or below the mark can still be new
+            return id > highWaterMark || (id > afterId && !replayedIds.contains(id));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.chat.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.config.OverflowPolicy;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+/**
+ * Gives every subscriber of a broadcast its own bounded queue.
+ * The queue always requests unbounded demand upstream, so a stalled subscriber
+ * only ever overflows its own queue and never throttles the publisher or other readers.
+ */
+@Component
+@Slf4j
+public class SubscriberQueues {
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong disconnectedTotal = new AtomicLong();
+    private final Map<Long, SubscriberStats> subscribers = new ConcurrentHashMap<>();
+
+    public SubscriberQueues(ChatProperties chatProperties) {
+        this.capacity = chatProperties.getMaxBufferSize();
+        this.overflowPolicy = chatProperties.getOverflowPolicy();
+        log.info("Subscriber queues initialized with capacity: {}, overflow policy: {}", capacity, overflowPolicy);
+    }
+
+    /**
+     * Wraps a hot source so each subscription gets a bounded queue with the configured overflow policy.
+     *
+     * @param source the shared source to subscribe to
+     * @param name a label identifying the kind of subscriber, used in logs and stats
+     * @return a Flux that isolates each of its subscribers
+     */
+    public <T> Flux<T> isolate(Flux<T> source, String name) {
+        return Flux.defer(() -> {
+            SubscriberStats stats = new SubscriberStats(subscriberIds.incrementAndGet(), name);
+            return source
+                    .doOnNext(item -> stats.onEnqueued())
+                    .onBackpressureBuffer(capacity, item -> onOverflow(stats), toStrategy(overflowPolicy))
+                    .doOnNext(item -> stats.onDelivered())
+                    .doOnError(Exceptions::isOverflow, error -> onDisconnect(stats))
+                    .doOnSubscribe(subscription -> subscribers.put(stats.getId(), stats))
+                    .doFinally(signal -> subscribers.remove(stats.getId()));
+        });
+    }
+
+    /**
+     * Returns the delivery counters of all currently connected subscribers.
+     *
+     * @return a live view of subscriber stats
+     */
+    public Collection<SubscriberStats> stats() {
+        return Collections.unmodifiableCollection(subscribers.values());
+    }
+
+    /**
+     * Returns the number of messages dropped by full queues since startup, including those of departed subscribers.
+     *
+     * @return the total dropped count
+     */
+    public long droppedTotal() {
+        return droppedTotal.get();
+    }
+
+    /**
+     * Returns the number of subscribers disconnected for overflowing their queue since startup.
+     *
+     * @return the total disconnect count
+     */
+    public long disconnectedTotal() {
+        return disconnectedTotal.get();
+    }
+
+    private void onDisconnect(SubscriberStats stats) {
+        disconnectedTotal.incrementAndGet();
+        log.warn("Disconnecting slow {} subscriber {}: queue of {} messages is full", stats.getName(), stats.getId(), capacity);
+    }
+
+    private void onOverflow(SubscriberStats stats) {
+        droppedTotal.incrementAndGet();
+        long dropped = stats.onDropped();
+        if (dropped == 1 || dropped % capacity == 0) {
+            log.warn("Slow {} subscriber {} has dropped {} messages ({})", stats.getName(), stats.getId(), dropped, overflowPolicy);
+        }
+    }
+
+    private static BufferOverflowStrategy toStrategy(OverflowPolicy policy) {
+        return switch (policy) {
+            case DROP_OLDEST -> BufferOverflowStrategy.DROP_OLDEST;
+            case DROP_LATEST -> BufferOverflowStrategy.DROP_LATEST;
+            case DISCONNECT -> BufferOverflowStrategy.ERROR;
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.chat.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivery counters for a single subscriber queue.
+ * Lag is the number of messages accepted into the queue but not yet consumed.
+ */
+public final class SubscriberStats {
+
+    private final long id;
+    private final String name;
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    SubscriberStats(long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    void onEnqueued() {
+        enqueued.incrementAndGet();
+    }
+
+    void onDelivered() {
+        delivered.incrementAndGet();
+    }
+
+    long onDropped() {
+        return dropped.incrementAndGet();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the number of messages waiting in this subscriber's queue.
+     *
+     * @return the current queue depth
+     */
+    public long getLag() {
+        return Math.max(0, enqueued.get() - delivered.get() - dropped.get());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.chat.session;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.server.RequestUpgradeStrategy;
+import org.springframework.web.reactive.socket.server.support.HandshakeWebSocketService;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.chat.config.ChatConstants;
+import com.example.chat.ratelimit.RateLimiter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Handshake service that turns clients away with 503 before upgrading the connection
+ * when the {@link SessionRegistry} would not admit them, so an overloaded node spends nothing on them.
+ */
+public class AdmissionWebSocketService extends HandshakeWebSocketService {
+
+    private final SessionRegistry sessionRegistry;
+
+    public AdmissionWebSocketService(SessionRegistry sessionRegistry, RequestUpgradeStrategy upgradeStrategy) {
+        super(upgradeStrategy);
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    @Override
+    public Mono<Void> handleRequest(ServerWebExchange exchange, WebSocketHandler handler) {
+        ConnectionLimit limit = sessionRegistry.check(RateLimiter.addressKey(exchange.getRequest().getRemoteAddress()));
+        if (limit != null) {
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER,
+                    Long.toString(ChatConstants.CONNECTION_RETRY_AFTER.toSeconds()));
+            return exchange.getResponse().setComplete();
+        }
+        return super.handleRequest(exchange, handler);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.chat.session;
+
+import com.example.chat.metrics.Transport;
+
+/**
+ * A connected WebSocket or SSE client, as tracked by the {@link SessionRegistry}.
+ * Inbound WebSocket frames, pongs included, mark the session as seen.
+ */
+public final class ClientSession {
+
+    private final String id;
+    private final Transport transport;
+    private final String address;
+    private final String room;
+    private final long connectedAt;
+    private volatile long lastSeenNanos;
+
+    ClientSession(String id, Transport transport, String address, String room) {
+        this.id = id;
+        this.transport = transport;
+        this.address = address;
+        this.room = room;
+        this.connectedAt = System.currentTimeMillis();
+        this.lastSeenNanos = System.nanoTime();
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public Transport transport() {
+        return transport;
+    }
+
+    public String address() {
+        return address;
+    }
+
+    public String room() {
+        return room;
+    }
+
+    /**
+     * @return when the client connected, in epoch milliseconds
+     */
+    public long connectedAt() {
+        return connectedAt;
+    }
+
+    /**
+     * Records that the client was heard from.
+     */
+    public void touch() {
+        lastSeenNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the nanoseconds since the client was last heard from
+     */
+    public long idleNanos() {
+        return System.nanoTime() - lastSeenNanos;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.chat.session;
+
+/**
+ * Which connection cap turned a client away, used as the "limit" meter tag.
+ */
+public enum ConnectionLimit {
+    /** chat.sessions.max-connections, across all clients. */
+    GLOBAL("global"),
+    /** chat.sessions.max-connections-per-address, per remote IP address. */
+    ADDRESS("address");
+
+    private final String tag;
+
+    ConnectionLimit(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.chat.session;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.lang.Nullable;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.server.RequestUpgradeStrategy;
+import org.springframework.web.reactive.socket.server.upgrade.ReactorNettyRequestUpgradeStrategy;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.chat.codec.WireFormat;
+import com.example.chat.config.ChatProperties;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionUtil;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.NettyPipeline;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+/**
+ * Reactor Netty upgrade strategy that negotiates the permessage-deflate extension (RFC 7692) itself, following
+ * chat.compression.
+ *
+ * <p>Reactor Netty's own negotiation always compresses at the default level and only drops the compression
+ * window when the client asks for it. Instead, the client's offers are answered here by a configured
+ * PerMessageDeflateServerExtensionHandshaker before the upgrade: the accepted extension goes into the handshake
+ * response headers, and its encoder and decoder are added to the pipeline once that response is written. It
+ * compresses at chat.compression.level, and without server-context-takeover server_no_context_takeover is added to
+ * every offer, so each session's compressor is reset after every message instead of carrying a window of history.
+ * Sessions on {@link WireFormat#JSON_DEFLATE_SUBPROTOCOL} already receive their large messages compressed and are
+ * upgraded without the extension, which would only compress them again.
+ */
+public class PerMessageDeflateUpgradeStrategy implements RequestUpgradeStrategy {
+
+    private static final String PER_MESSAGE_DEFLATE = "permessage-deflate";
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    private static final String HANDLER_NAME = "chat.perMessageDeflate";
+    private static final String ENCODER_NAME = "chat.perMessageDeflateEncoder";
+    private static final String DECODER_NAME = "chat.perMessageDeflateDecoder";
+
+    private final boolean perMessageDeflate;
+    private final WebSocketServerExtensionHandshaker handshaker;
+    private final RequestUpgradeStrategy delegate = new ReactorNettyRequestUpgradeStrategy();
+
+    public PerMessageDeflateUpgradeStrategy(ChatProperties chatProperties) {
+        ChatProperties.Compression compression = chatProperties.getCompression();
+        this.perMessageDeflate = compression.isPerMessageDeflate();
+        WebSocketServerExtensionHandshaker deflate = new PerMessageDeflateServerExtensionHandshaker(compression.getLevel(),
+                ZlibCodecFactory.isSupportingWindowSizeAndMemLevel(), PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE,
+                true, false);
+        this.handshaker = compression.isServerContextTakeover()
+                ? deflate
+                : offer -> deflate.handshakeExtension(withoutServerContextTakeover(offer));
+    }
+
+    @Override
+    public Mono<Void> upgrade(ServerWebExchange exchange, WebSocketHandler handler, @Nullable String subProtocol,
+                              Supplier<HandshakeInfo> handshakeInfoFactory) {
+        if (perMessageDeflate && !WireFormat.JSON_DEFLATE_SUBPROTOCOL.equals(subProtocol)) {
+            negotiate(exchange);
+        }
+        return delegate.upgrade(exchange, handler, subProtocol, handshakeInfoFactory);
+    }
+
+    /**
+     * Answers the first permessage-deflate offer the handshaker accepts, in the headers of the handshake response
+     * about to be sent, and prepares the connection to compress once that response is written.
+     */
+    private void negotiate(ServerWebExchange exchange) {
+        Object nativeRequest = ServerHttpRequestDecorator.getNativeRequest(exchange.getRequest());
+        if (!(nativeRequest instanceof HttpServerRequest request) || !(nativeRequest instanceof HttpServerResponse response)
+                || !(nativeRequest instanceof Connection connection)) {
+            return;
+        }
+        ChannelPipeline pipeline = connection.channel().pipeline();
+        ChannelHandlerContext codec = pipeline.context(NettyPipeline.HttpCodec);
+        String offers = request.requestHeaders().get(HttpHeaderNames.SEC_WEBSOCKET_EXTENSIONS);
+        if (codec == null || offers == null) {
+            // An HTTP/2 stream has no codec of its own to install the extension next to
+            return;
+        }
+        for (WebSocketExtensionData offer : WebSocketExtensionUtil.extractExtensions(offers)) {
+            WebSocketServerExtension extension = handshaker.handshakeExtension(offer);
+            if (extension != null) {
+                response.addHeader(HttpHeaderNames.SEC_WEBSOCKET_EXTENSIONS, format(extension.newReponseData()));
+                pipeline.addAfter(codec.name(), HANDLER_NAME, new ExtensionInstaller(extension));
+                return;
+            }
+        }
+    }
+
+    private static String format(WebSocketExtensionData data) {
+        StringBuilder value = new StringBuilder(data.name());
+        data.parameters().forEach((name, parameter) -> {
+            value.append("; ").append(name);
+            if (parameter != null) {
+                value.append('=').append(parameter);
+            }
+        });
+        return value.toString();
+    }
+
+    private static WebSocketExtensionData withoutServerContextTakeover(WebSocketExtensionData offer) {
+        if (!PER_MESSAGE_DEFLATE.equals(offer.name())) {
+            return offer;
+        }
+        Map<String, String> parameters = new HashMap<>(offer.parameters());
+        parameters.put(SERVER_NO_CONTEXT_TAKEOVER, null);
+        return new WebSocketExtensionData(offer.name(), parameters);
+    }
+
+    /**
+     * Adds the negotiated extension's encoder and decoder once the handshake response has been written, the way
+     * Netty's WebSocketServerExtensionHandler does, then leaves the pipeline; a refused upgrade only removes it.
+     */
+    private static final class ExtensionInstaller extends ChannelOutboundHandlerAdapter {
+
+        private final WebSocketServerExtension extension;
+
+        ExtensionInstaller(WebSocketServerExtension extension) {
+            this.extension = extension;
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            if (msg instanceof HttpResponse response) {
+                boolean upgraded = HttpResponseStatus.SWITCHING_PROTOCOLS.equals(response.status());
+                promise.addListener(future -> {
+                    if (upgraded && future.isSuccess()) {
+                        ctx.pipeline().addAfter(ctx.name(), DECODER_NAME, extension.newExtensionDecoder());
+                        ctx.pipeline().addAfter(ctx.name(), ENCODER_NAME, extension.newExtensionEncoder());
+                    }
+                    ctx.pipeline().remove(this);
+                });
+            }
+            ctx.write(msg, promise);
+        }
+    }
+}
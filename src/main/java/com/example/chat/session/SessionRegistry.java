@@ -0,0 +1,169 @@
+package com.example.chat.session;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.exception.ConnectionLimitExceededException;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.metrics.Transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The connected WebSocket and SSE clients, with admission control.
+ *
+ * <p>A client is admitted only while fewer than chat.sessions.max-connections clients are connected in
+ * total and fewer than chat.sessions.max-connections-per-address from its address; a limit of zero or
+ * less is not applied. Admission and release are lock-free apart from the per-address count update.
+ * The metrics layer reads the active sessions from here.
+ */
+@Component
+@Slf4j
+public class SessionRegistry {
+
+    private final int maxConnections;
+    private final int maxConnectionsPerAddress;
+    private final ChatMetrics metrics;
+    private final Set<ClientSession> sessions = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> addressCounts = new ConcurrentHashMap<>();
+    private final Map<Transport, AtomicInteger> transportCounts = new EnumMap<>(Transport.class);
+    private final AtomicInteger total = new AtomicInteger();
+
+    public SessionRegistry(ChatProperties chatProperties, ChatMetrics metrics) {
+        ChatProperties.Sessions settings = chatProperties.getSessions();
+        this.maxConnections = settings.getMaxConnections();
+        this.maxConnectionsPerAddress = settings.getMaxConnectionsPerAddress();
+        this.metrics = metrics;
+        for (Transport transport : Transport.values()) {
+            transportCounts.put(transport, new AtomicInteger());
+        }
+        metrics.trackSessions(this);
+        log.info("Session registry with max connections: {}, per address: {}, ping interval: {}, idle timeout: {}, SSE heartbeat: {}",
+                maxConnections, maxConnectionsPerAddress, settings.getPingInterval(), settings.getIdleTimeout(),
+                settings.getSseHeartbeatInterval());
+    }
+
+    /**
+     * Tells whether a client from an address would currently be admitted, without admitting it.
+     * Used to turn clients away before the WebSocket handshake; {@link #register} makes the final decision.
+     *
+     * @param address the rate-limit key of the client's address
+     * @return the limit the client would exceed, or null if it would be admitted
+     */
+    public ConnectionLimit check(String address) {
+        if (isFull()) {
+            return ConnectionLimit.GLOBAL;
+        }
+        if (maxConnectionsPerAddress > 0 && addressCounts.getOrDefault(address, 0) >= maxConnectionsPerAddress) {
+            return ConnectionLimit.ADDRESS;
+        }
+        return null;
+    }
+
+    /**
+     * Admits a client. Every admitted session must be passed to {@link #unregister} when it ends.
+     *
+     * @param id the WebSocket session or HTTP request id
+     * @param transport how the client receives the broadcast
+     * @param address the rate-limit key of the client's address
+     * @param room the room the client joined
+     * @return the registered session
+     * @throws ConnectionLimitExceededException if a connection limit is reached
+     */
+    public ClientSession register(String id, Transport transport, String address, String room) {
+        if (total.incrementAndGet() > maxConnections && maxConnections > 0) {
+            total.decrementAndGet();
+            throw rejected(ConnectionLimit.GLOBAL, address);
+        }
+        if (maxConnectionsPerAddress > 0) {
+            boolean[] admitted = new boolean[1];
+            addressCounts.compute(address, (key, count) -> {
+                int current = count == null ? 0 : count;
+                if (current >= maxConnectionsPerAddress) {
+                    return count;
+                }
+                admitted[0] = true;
+                return current + 1;
+            });
+            if (!admitted[0]) {
+                total.decrementAndGet();
+                throw rejected(ConnectionLimit.ADDRESS, address);
+            }
+        }
+        ClientSession session = new ClientSession(id, transport, address, room);
+        sessions.add(session);
+        transportCounts.get(transport).incrementAndGet();
+        return session;
+    }
+
+    /**
+     * Releases an admitted session.
+     *
+     * @param session the session that ended
+     */
+    public void unregister(ClientSession session) {
+        if (!sessions.remove(session)) {
+            return;
+        }
+        transportCounts.get(session.transport()).decrementAndGet();
+        if (maxConnectionsPerAddress > 0) {
+            addressCounts.computeIfPresent(session.address(), (key, count) -> count > 1 ? count - 1 : null);
+        }
+        total.decrementAndGet();
+    }
+
+    /**
+     * Records that a session was closed for not answering pings within chat.sessions.idle-timeout.
+     *
+     * @param session the evicted session
+     * @param idle how long it had been silent
+     */
+    public void evicted(ClientSession session, Duration idle) {
+        metrics.sessionEvicted(session.transport());
+        log.info("Closing {} session {} from {}: silent for {}", session.transport().tag(), session.id(), session.address(), idle);
+    }
+
+    /**
+     * @param transport a transport
+     * @return the number of connected clients using it
+     */
+    public int active(Transport transport) {
+        return transportCounts.get(transport).get();
+    }
+
+    /**
+     * @return whether the global connection limit is reached, so that no new client would be admitted
+     */
+    public boolean isFull() {
+        return maxConnections > 0 && total.get() >= maxConnections;
+    }
+
+    /**
+     * @return the number of connected clients
+     */
+    public int size() {
+        return total.get();
+    }
+
+    /**
+     * @return a live view of the connected clients
+     */
+    public Collection<ClientSession> sessions() {
+        return Collections.unmodifiableCollection(sessions);
+    }
+
+    private ConnectionLimitExceededException rejected(ConnectionLimit limit, String address) {
+        metrics.connectionRejected(limit);
+        log.debug("Rejected connection from {}: {} connection limit reached", address, limit.tag());
+        return new ConnectionLimitExceededException(limit);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.chat;
+
+import org.junit.platform.launcher.LauncherSession;
+import org.junit.platform.launcher.LauncherSessionListener;
+
+import reactor.blockhound.BlockHound;
+
+/**
+ * Installs BlockHound before any test runs, so every test fails with a BlockingOperationError when it blocks
+ * a thread that must not block: Reactor's parallel and single schedulers and the Netty event loops.
+ * Registered through META-INF/services.
+ */
+public class BlockingCallDetector implements LauncherSessionListener {
+
+    @Override
+    public void launcherSessionOpened(LauncherSession session) {
+        BlockHound.install(builder -> builder
+                // Jackson locks once per type while it builds a deserializer, then reads from its cache
+                .allowBlockingCallsInside("com.fasterxml.jackson.databind.deser.DeserializerCache", "_createAndCacheValueDeserializer"));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.chat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Runs {@link NonBlockingEndpointsTest} against the segmented log store, whose appends, rolls, syncs and reads
+ * touch mapped files.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"chat.rate-limit.enabled=false", "chat.store.type=log"})
+class LogStoreNonBlockingEndpointsTest extends NonBlockingEndpointsTest {
+
+    @DynamicPropertySource
+    static void storePath(DynamicPropertyRegistry registry) {
+        // A fresh log for every run, so the endpoints see only the messages this test sends
+        registry.add("chat.store.path", () -> {
+            try {
+                return Files.createTempDirectory("chat-log").toString();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.chat;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.scheduling.ChatSchedulers;
+
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * Drives every HTTP endpoint through a running server with BlockHound installed by {@link BlockingCallDetector},
+ * so blocking on a non-blocking thread anywhere on those paths fails the request.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "chat.rate-limit.enabled=false")
+class NonBlockingEndpointsTest {
+
+    private static final String ROOM = "blockhound";
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ChatSchedulers schedulers;
+
+    @Test
+    void detectorRejectsBlockingOnNonBlockingThreads() {
+        StepVerifier.create(Mono.fromRunnable(() -> LockSupport.parkNanos(1_000)).subscribeOn(schedulers.cpu()))
+                .expectError(BlockingOperationError.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void endpointsDoNotBlock() {
+        for (int i = 0; i < 3; i++) {
+            client.post().uri("/chat/send")
+                    .bodyValue(new MessageRequest("alice", "blocking check " + i, ROOM))
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+
+        client.get().uri("/chat")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_HTML);
+
+        client.get().uri("/chat/history?room={room}", ROOM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(3);
+
+        client.get().uri("/chat/search?q=blocking&room={room}", ROOM)
+                .exchange()
+                .expectStatus().isOk();
+
+        // Resuming replays stored history on the blocking scheduler before going live
+        StepVerifier.create(client.get().uri("/chat/stream?room={room}&since=0", ROOM)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .returnResult(String.class)
+                        .getResponseBody())
+                .expectNextCount(3)
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+}
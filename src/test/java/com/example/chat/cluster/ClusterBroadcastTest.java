@@ -0,0 +1,180 @@
+package com.example.chat.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.chat.ChatApplication;
+import com.example.chat.model.Message;
+import com.example.chat.service.ChatService;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+
+/**
+ * Multi-node test for the cluster backplane.
+ * Starts several application contexts in one JVM, publishes on every node and checks that every node
+ * broadcasts every message exactly once, reporting cross-node delivery latency percentiles.
+ */
+@Slf4j
+class ClusterBroadcastTest {
+
+    private static final int NODES = 3;
+    private static final int MESSAGES = 100;
+    private static final String ROOM = "cluster";
+    private static final String WARMUP = "warmup";
+    private static final String LOAD_PREFIX = "load:";
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private final List<Disposable> subscriptions = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        subscriptions.forEach(Disposable::dispose);
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void loopbackClusterDeliversEveryMessageToEveryNode() throws Exception {
+        String cluster = "test-" + UUID.randomUUID();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(start(i, "chat.cluster.type=loopback", "chat.cluster.name=" + cluster));
+        }
+        assertEveryNodeReceivesEveryMessage("loopback");
+    }
+
+    @Test
+    void tcpClusterDeliversEveryMessageToEveryNode() throws Exception {
+        int[] ports = freePorts(NODES);
+        for (int i = 0; i < NODES; i++) {
+            int self = i;
+            String peers = IntStream.range(0, NODES)
+                    .filter(peer -> peer != self)
+                    .mapToObj(peer -> "localhost:" + ports[peer])
+                    .collect(Collectors.joining(","));
+            nodes.add(start(i, "chat.cluster.type=tcp", "chat.cluster.host=localhost",
+                    "chat.cluster.port=" + ports[i], "chat.cluster.peers=" + peers));
+        }
+        assertEveryNodeReceivesEveryMessage("tcp");
+    }
+
+    private void assertEveryNodeReceivesEveryMessage(String transport) throws InterruptedException {
+        List<ChatService> services = nodes.stream().map(node -> node.getBean(ChatService.class)).toList();
+        List<Map<String, AtomicInteger>> received = new ArrayList<>();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger warmups = new AtomicInteger();
+
+        for (int node = 0; node < NODES; node++) {
+            int receiver = node;
+            Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+            received.add(counts);
+            subscriptions.add(services.get(node).messages(ROOM).subscribe(encoded -> {
+                String content = encoded.message().getContent();
+                if (content.equals(WARMUP)) {
+                    warmups.incrementAndGet();
+                    return;
+                }
+                counts.computeIfAbsent(content, key -> new AtomicInteger()).incrementAndGet();
+                // load:<publishing node>:<seq>:<nanos>
+                String[] parts = content.split(":");
+                if (Integer.parseInt(parts[1]) != receiver) {
+                    latencies.add(System.nanoTime() - Long.parseLong(parts[3]));
+                }
+            }));
+        }
+
+        // Keep publishing warm-up messages from every node until every node has heard from every other one
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        int published = 0;
+        while (warmups.get() < published * NODES || published == 0) {
+            assertThat(System.nanoTime()).as("cluster connected").isLessThan(deadline);
+            warmups.set(0);
+            published = 0;
+            for (ChatService service : services) {
+                service.publish(message(WARMUP));
+                published++;
+            }
+            Thread.sleep(200);
+        }
+
+        for (int i = 0; i < MESSAGES; i++) {
+            int origin = i % NODES;
+            services.get(origin).publish(message(LOAD_PREFIX + origin + ":" + i + ":" + System.nanoTime()));
+        }
+
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received.stream().anyMatch(counts -> counts.size() < MESSAGES) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(200);
+
+        for (Map<String, AtomicInteger> counts : received) {
+            assertThat(counts).hasSize(MESSAGES);
+            assertThat(counts.values()).allMatch(count -> count.get() == 1);
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        log.info("Cross-node delivery over {} ({} nodes, {} remote deliveries): p50={}µs p90={}µs p99={}µs max={}µs",
+                transport, NODES, sorted.size(), percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                sorted.get(sorted.size() - 1) / 1000);
+        assertThat(sorted).hasSize(MESSAGES * (NODES - 1));
+    }
+
+    private static ConfigurableApplicationContext start(int node, String... clusterProperties) {
+        // Passed as command line arguments, so they take precedence over application.properties
+        List<String> args = new ArrayList<>(List.of("--server.port=0", "--debug=false",
+                "--logging.level.root=INFO", "--logging.level.org.springframework=INFO", "--chat.cluster.node-id=node-" + node));
+        for (String property : clusterProperties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(ChatApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private static Message message(String content) {
+        return Message.builder()
+                .room(ROOM)
+                .sender("tester")
+                .content(content)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1000;
+    }
+
+    private static int[] freePorts(int count) throws IOException {
+        int[] ports = new int[count];
+        List<ServerSocket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                ServerSocket socket = new ServerSocket(0);
+                sockets.add(socket);
+                ports[i] = socket.getLocalPort();
+            }
+        } finally {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+        }
+        return ports;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.chat.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class PeerSequencesTest {
+
+    private static final long BOOT = 1;
+    private static final int WINDOW = PeerSequences.WINDOW;
+
+    private final PeerSequences sequences = new PeerSequences();
+
+    @Test
+    void eachIdIsFirstSeenOncePerOrigin() {
+        assertThat(sequences.firstSeen("a", BOOT, 1)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, 2)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, 1)).isFalse();
+        assertThat(sequences.firstSeen("a", BOOT, 2)).isFalse();
+
+        // Origins number their messages independently
+        assertThat(sequences.firstSeen("b", BOOT, 1)).isTrue();
+    }
+
+    @Test
+    void idsArrivingOutOfOrderInsideTheWindowAreFirstSeenOnce() {
+        assertThat(sequences.firstSeen("a", BOOT, 10)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, 7)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, 9)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, 7)).isFalse();
+        assertThat(sequences.firstSeen("a", BOOT, 8)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, 11)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, 9)).isFalse();
+    }
+
+    @Test
+    void idsOlderThanTheWindowAreTreatedAsDuplicates() {
+        long highest = 2L * WINDOW;
+        assertThat(sequences.firstSeen("a", BOOT, highest)).isTrue();
+
+        assertThat(sequences.firstSeen("a", BOOT, highest - WINDOW)).isFalse();
+        assertThat(sequences.firstSeen("a", BOOT, 1)).isFalse();
+        // The oldest id the window still tracks
+        assertThat(sequences.firstSeen("a", BOOT, highest - WINDOW + 1)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, highest - WINDOW + 1)).isFalse();
+    }
+
+    @Test
+    void slidingTheWindowForgetsTheIdsThatShareABitWithNewOnes() {
+        for (long id = 1; id <= WINDOW; id++) {
+            assertThat(sequences.firstSeen("a", BOOT, id)).isTrue();
+        }
+
+        // Each id of the next window maps to the bit of an id seen in the previous one
+        for (long id = WINDOW + 1; id <= 2L * WINDOW; id += 3) {
+            assertThat(sequences.firstSeen("a", BOOT, id)).as("id %d", id).isTrue();
+        }
+        // Skipped over by the slide, and still not seen
+        assertThat(sequences.firstSeen("a", BOOT, WINDOW + 2)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, WINDOW + 2)).isFalse();
+    }
+
+    @Test
+    void aLargeJumpClearsTheWholeWindow() {
+        for (long id = 1; id <= 100; id++) {
+            sequences.firstSeen("a", BOOT, id);
+        }
+        long jump = 1_000L * WINDOW + 50;
+
+        assertThat(sequences.firstSeen("a", BOOT, jump)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, jump - WINDOW)).isFalse();
+        // Shares its bit with id 100, which was seen before the jump
+        assertThat(sequences.firstSeen("a", BOOT, jump - WINDOW + 50)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, jump - 1)).isTrue();
+        assertThat(sequences.firstSeen("a", BOOT, 50)).isFalse();
+    }
+
+    @Test
+    void aRestartedOriginIsRecognizedByItsBootId() {
+        for (long id = 1; id <= 100; id++) {
+            sequences.firstSeen("a", BOOT, id);
+        }
+
+        // Restarted with the same node id and an empty store, so its ids begin at 1 again
+        for (long id = 1; id <= 100; id++) {
+            assertThat(sequences.firstSeen("a", BOOT + 1, id)).as("id %d", id).isTrue();
+        }
+        assertThat(sequences.firstSeen("a", BOOT + 1, 1)).isFalse();
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.chat.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.model.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+class ChatFrameCodecTest {
+
+    private static final long TIMESTAMP = 1_700_000_000_000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CBORMapper cborMapper = new CBORMapper();
+    private final ChatFrameCodec codec = new ChatFrameCodec(objectMapper, new FrameCompressor(new ChatProperties()));
+
+    @Test
+    void decodesAChatMessageIntoTheSessionsRoom() throws IOException {
+        InboundFrame frame = decode("{\"sender\":\"alice\",\"content\":\"hello\",\"room\":\"elsewhere\"}");
+
+        assertThat(frame).isEqualTo(new InboundFrame.Chat(new MessageRequest("alice", "hello", "lobby")));
+    }
+
+    @Test
+    void decodesATypingIndicator() throws IOException {
+        assertThat(decode("{\"typing\":true}")).isEqualTo(new InboundFrame.Typing(true));
+        assertThat(decode("{\"typing\":false}")).isEqualTo(new InboundFrame.Typing(false));
+    }
+
+    @Test
+    void skipsUnknownFieldsAndNestedValues() throws IOException {
+        InboundFrame frame = decode("{\"meta\":{\"sender\":\"mallory\",\"tags\":[1,{\"content\":\"x\"}]},"
+                + "\"sender\":\"alice\",\"extra\":42,\"content\":\"hello\",\"list\":[\"content\"]}");
+
+        assertThat(frame).isEqualTo(new InboundFrame.Chat(new MessageRequest("alice", "hello", "lobby")));
+    }
+
+    @Test
+    void returnsNullForFramesThatAreNeitherMessagesNorTypingIndicators() throws IOException {
+        assertThat(decode("{\"sender\":\"alice\"}")).isNull();
+        assertThat(decode("{\"typing\":\"yes\"}")).isNull();
+        assertThat(decode("[{\"sender\":\"alice\",\"content\":\"hello\"}]")).isNull();
+        assertThat(decode("\"hello\"")).isNull();
+        assertThat(codec.decodeRequest(buffer("{\"typing\":true}"), WireFormat.JSON, "lobby")).isNull();
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        assertThatThrownBy(() -> decode("{\"sender\":\"alice\",\"content\":")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("{\"sender\" \"alice\"}")).isInstanceOf(JsonProcessingException.class);
+        assertThatThrownBy(() -> decode("not json")).isInstanceOf(JsonProcessingException.class);
+    }
+
+    @Test
+    void decodesAFrameSpreadOverSeveralBuffers() throws IOException {
+        byte[] json = "{\"sender\":\"alice\",\"content\":\"héllo wörld\"}".getBytes(StandardCharsets.UTF_8);
+        NettyDataBufferFactory factory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+        // Split inside the multi-byte é so the parser has to carry a partial character across buffers
+        int split = indexOf(json, (byte) 0xC3) + 1;
+        DataBuffer joined = factory.join(List.of(
+                factory.wrap(Arrays.copyOfRange(json, 0, 5)),
+                factory.wrap(Arrays.copyOfRange(json, 5, split)),
+                factory.wrap(Arrays.copyOfRange(json, split, json.length))));
+        try {
+            assertThat(codec.decodeFrame(joined, WireFormat.JSON, "lobby"))
+                    .isEqualTo(new InboundFrame.Chat(new MessageRequest("alice", "héllo wörld", "lobby")));
+        } finally {
+            DataBufferUtils.release(joined);
+        }
+    }
+
+    @Test
+    void encodesTheMessageResponseLayout() throws IOException {
+        JsonNode json = objectMapper.readTree(codec.encodeMessage(message(7, "say \"hi\"\n"), WireFormat.JSON));
+
+        assertThat(json.get("id").asLong()).isEqualTo(7);
+        assertThat(json.get("room").asText()).isEqualTo("lobby");
+        assertThat(json.get("sender").asText()).isEqualTo("alice");
+        assertThat(json.get("content").asText()).isEqualTo("say \"hi\"\n");
+        assertThat(json.get("timestamp").asText())
+                .isEqualTo(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(MessageMapper.toLocalDateTime(TIMESTAMP)));
+        assertThat(codec.encodeCount(WireFormat.JSON)).isEqualTo(1);
+    }
+
+    @Test
+    void encodingsDoNotShareTheReusedOutputBuffer() throws IOException {
+        byte[] first = codec.encodeMessage(message(1, "first"), WireFormat.JSON);
+        byte[] second = codec.encodeMessage(message(2, "second, and longer than the first"), WireFormat.JSON);
+
+        assertThat(objectMapper.readTree(first).get("content").asText()).isEqualTo("first");
+        assertThat(objectMapper.readTree(second).get("content").asText()).isEqualTo("second, and longer than the first");
+    }
+
+    @Test
+    void encodedMessagesDecodeBackIntoTheSameRequest() throws IOException {
+        byte[] frame = codec.encodeMessage(message(3, "round trip ✓"), WireFormat.JSON);
+
+        assertThat(codec.decodeRequest(DefaultDataBufferFactory.sharedInstance.wrap(frame), WireFormat.JSON, "lobby"))
+                .isEqualTo(new MessageRequest("alice", "round trip ✓", "lobby"));
+    }
+
+    @Test
+    void cborMessagesCarryEpochMillisecondTimestamps() throws IOException {
+        byte[] frame = codec.encodeMessage(message(9, "binary"), WireFormat.CBOR);
+        JsonNode cbor = cborMapper.readTree(frame);
+
+        assertThat(cbor.get("id").asLong()).isEqualTo(9);
+        assertThat(cbor.get("room").asText()).isEqualTo("lobby");
+        assertThat(cbor.get("sender").asText()).isEqualTo("alice");
+        assertThat(cbor.get("content").asText()).isEqualTo("binary");
+        assertThat(cbor.get("timestamp").isIntegralNumber()).isTrue();
+        assertThat(cbor.get("timestamp").asLong()).isEqualTo(TIMESTAMP);
+        assertThat(codec.encodeCount(WireFormat.CBOR)).isEqualTo(1);
+        assertThat(codec.encodeCount(WireFormat.JSON)).isZero();
+    }
+
+    @Test
+    void decodesCborFramesAndSkipsUnknownFields() throws IOException {
+        byte[] chat = cborMapper.writeValueAsBytes(Map.of("sender", "alice", "content", "hello", "meta", Map.of("content", "x")));
+        byte[] typing = cborMapper.writeValueAsBytes(Map.of("typing", true));
+
+        assertThat(codec.decodeFrame(DefaultDataBufferFactory.sharedInstance.wrap(chat), WireFormat.CBOR, "lobby"))
+                .isEqualTo(new InboundFrame.Chat(new MessageRequest("alice", "hello", "lobby")));
+        assertThat(codec.decodeFrame(DefaultDataBufferFactory.sharedInstance.wrap(typing), WireFormat.CBOR, "lobby"))
+                .isEqualTo(new InboundFrame.Typing(true));
+    }
+
+    @Test
+    void cborEncodingsDecodeBackIntoTheSameRequest() throws IOException {
+        byte[] frame = codec.encodeMessage(message(3, "round trip ✓"), WireFormat.CBOR);
+
+        assertThat(codec.decodeRequest(DefaultDataBufferFactory.sharedInstance.wrap(frame), WireFormat.CBOR, "lobby"))
+                .isEqualTo(new MessageRequest("alice", "round trip ✓", "lobby"));
+    }
+
+    @Test
+    void rejectsTruncatedCbor() throws IOException {
+        byte[] frame = cborMapper.writeValueAsBytes(Map.of("sender", "alice", "content", "hello"));
+        DataBuffer truncated = DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOf(frame, frame.length - 3));
+
+        assertThatThrownBy(() -> codec.decodeFrame(truncated, WireFormat.CBOR, "lobby")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void errorFramesArePrecomputedOncePerFormat() throws IOException {
+        for (FrameError error : FrameError.values()) {
+            byte[] json = codec.errorFrame(error, WireFormat.JSON);
+            byte[] cbor = codec.errorFrame(error, WireFormat.CBOR);
+
+            assertThat(objectMapper.readTree(json)).isEqualTo(objectMapper.createObjectNode().put("error", error.message()));
+            assertThat(cborMapper.readTree(cbor)).isEqualTo(cborMapper.createObjectNode().put("error", error.message()));
+            assertThat(codec.errorFrame(error, WireFormat.JSON)).isSameAs(json);
+            assertThat(codec.errorFrame(error, WireFormat.CBOR)).isSameAs(cbor);
+        }
+    }
+
+    private InboundFrame decode(String json) throws IOException {
+        return codec.decodeFrame(buffer(json), WireFormat.JSON, "lobby");
+    }
+
+    private static DataBuffer buffer(String json) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Message message(long id, String content) {
+        return new Message(id, "lobby", "alice", content, TIMESTAMP);
+    }
+
+    private static int indexOf(byte[] bytes, byte value) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Byte not found");
+    }
+}
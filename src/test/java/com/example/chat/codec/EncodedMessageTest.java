@@ -0,0 +1,60 @@
+package com.example.chat.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Inflater;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.model.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class EncodedMessageTest {
+
+    private final ChatFrameCodec codec = new ChatFrameCodec(new ObjectMapper(), new FrameCompressor(new ChatProperties()));
+
+    @Test
+    void encodesOncePerFormatHoweverManySubscribersAsk() {
+        EncodedMessage message = new EncodedMessage(message(7, "hello"), codec);
+
+        byte[] frame = message.frame(WireFormat.JSON);
+
+        assertThat(message.frame(WireFormat.JSON)).isSameAs(frame);
+        assertThat(message.sseEvent()).isSameAs(message.sseEvent());
+        assertThat(codec.encodeCount(WireFormat.JSON)).isEqualTo(1);
+        assertThat(codec.encodeCount(WireFormat.CBOR)).isZero();
+    }
+
+    @Test
+    void sseEventWrapsTheJsonFrame() {
+        EncodedMessage message = new EncodedMessage(message(42, "hello"), codec);
+
+        String frame = new String(message.frame(WireFormat.JSON), StandardCharsets.UTF_8);
+
+        assertThat(new String(message.sseEvent(), StandardCharsets.UTF_8)).isEqualTo("id:42\ndata:" + frame + "\n\n");
+        assertThat(message.id()).isEqualTo(42);
+        assertThat(message.publishedNanos()).isZero();
+    }
+
+    @Test
+    void deflatesOnlyFramesWorthCompressing() throws Exception {
+        assertThat(new EncodedMessage(message(1, "hi"), codec).deflatedFrame()).isNull();
+
+        EncodedMessage large = new EncodedMessage(message(2, "the quick brown fox ".repeat(40)), codec);
+        byte[] frame = large.frame(WireFormat.JSON);
+        byte[] deflated = large.deflatedFrame();
+
+        assertThat(deflated).isNotNull().hasSizeLessThan(frame.length).isSameAs(large.deflatedFrame());
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(deflated);
+        byte[] inflated = new byte[frame.length];
+        assertThat(inflater.inflate(inflated)).isEqualTo(frame.length);
+        assertThat(inflated).isEqualTo(frame);
+    }
+
+    private static Message message(long id, String content) {
+        return new Message(id, "lobby", "alice", content, 1_700_000_000_000L);
+    }
+}
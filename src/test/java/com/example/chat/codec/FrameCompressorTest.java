@@ -0,0 +1,81 @@
+package com.example.chat.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.chat.config.ChatProperties;
+
+class FrameCompressorTest {
+
+    private final FrameCompressor compressor = new FrameCompressor(new ChatProperties());
+
+    @Test
+    void deflatedFramesInflateOnTheirOwn() throws Exception {
+        byte[] frame = payload(40);
+
+        byte[] deflated = compressor.deflate(frame);
+
+        assertThat(deflated).isNotNull().hasSizeLessThan(frame.length);
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(deflated);
+        byte[] inflated = new byte[frame.length];
+        assertThat(inflater.inflate(inflated)).isEqualTo(frame.length);
+        assertThat(inflater.finished()).isTrue();
+        assertThat(inflated).isEqualTo(frame);
+    }
+
+    @Test
+    void smallFramesAreNotCompressed() {
+        assertThat(compressor.deflate("{\"content\":\"hi\"}".getBytes(StandardCharsets.UTF_8))).isNull();
+        assertThat(compressor.skipped()).isEqualTo(1);
+    }
+
+    @Test
+    void sharedBlocksFormOneGzipStreamInAnyOrder() throws Exception {
+        byte[] first = payload(20);
+        byte[] small = ":\n\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] second = payload(60);
+        byte[] firstBlock = compressor.deflateBlock(first);
+        byte[] smallBlock = compressor.deflateBlock(small);
+        byte[] secondBlock = compressor.deflateBlock(second);
+
+        // Two streams splice the same blocks in different orders and each decodes to what it was sent
+        assertThat(gunzip(first, firstBlock, small, smallBlock, second, secondBlock))
+                .isEqualTo(concat(first, small, second));
+        assertThat(gunzip(second, secondBlock, first, firstBlock))
+                .isEqualTo(concat(second, first));
+    }
+
+    private static byte[] gunzip(byte[]... dataAndBlocks) throws Exception {
+        GzipStream gzip = new GzipStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(GzipStream.header());
+        for (int i = 0; i < dataAndBlocks.length; i += 2) {
+            body.write(gzip.append(dataAndBlocks[i], dataAndBlocks[i + 1]));
+        }
+        body.write(gzip.trailer());
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static byte[] payload(int repeats) {
+        return ("{\"sender\":\"alice\",\"content\":\"" + "the quick brown fox ".repeat(repeats) + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            output.writeBytes(part);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.chat.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+
+class WireFormatTest {
+
+    @Test
+    void resolvesTheNegotiatedSubprotocol() {
+        assertThat(WireFormat.fromSubProtocol("chat.cbor")).isEqualTo(WireFormat.CBOR);
+        assertThat(WireFormat.fromSubProtocol("chat.json")).isEqualTo(WireFormat.JSON);
+        assertThat(WireFormat.fromSubProtocol(WireFormat.JSON_DEFLATE_SUBPROTOCOL)).isEqualTo(WireFormat.JSON);
+        assertThat(WireFormat.fromSubProtocol(null)).isEqualTo(WireFormat.JSON);
+        assertThat(WireFormat.fromSubProtocol("chat.xml")).isEqualTo(WireFormat.JSON);
+    }
+
+    @Test
+    void offersTheDeflateSubprotocolOnlyWhenEnabled() {
+        assertThat(WireFormat.subProtocols(false)).containsExactly("chat.json", "chat.cbor");
+        assertThat(WireFormat.subProtocols(true)).containsExactly("chat.json", "chat.cbor", WireFormat.JSON_DEFLATE_SUBPROTOCOL);
+    }
+
+    @Test
+    void cborTravelsInBinaryFrames() {
+        assertThat(WireFormat.JSON.frameType()).isEqualTo(WebSocketMessage.Type.TEXT);
+        assertThat(WireFormat.CBOR.frameType()).isEqualTo(WebSocketMessage.Type.BINARY);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.chat.component;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.chat.metrics.Transport;
+import com.example.chat.session.ClientSession;
+import com.example.chat.session.SessionRegistry;
+
+/**
+ * Checks that the readiness probe follows the session limit through a running server.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "chat.rate-limit.enabled=false",
+        "chat.sessions.max-connections=1"})
+class ChatHealthIndicatorTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private SessionRegistry sessionRegistry;
+
+    @Test
+    void readinessIsOutOfServiceWhileTheSessionLimitIsReached() {
+        expectReadiness(HttpStatus.OK, "UP");
+
+        ClientSession session = sessionRegistry.register("health", Transport.SSE, "10.2.0.1", "general");
+        try {
+            expectReadiness(HttpStatus.SERVICE_UNAVAILABLE, "OUT_OF_SERVICE")
+                    .jsonPath("$.components.chat.details.sessions").isEqualTo(1)
+                    .jsonPath("$.components.chat.details.maxSessions").isEqualTo(1);
+        } finally {
+            sessionRegistry.unregister(session);
+        }
+
+        expectReadiness(HttpStatus.OK, "UP");
+    }
+
+    private WebTestClient.BodyContentSpec expectReadiness(HttpStatus status, String health) {
+        return client.get().uri("/actuator/health/readiness")
+                .exchange()
+                .expectStatus().isEqualTo(status)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(health)
+                .jsonPath("$.components.chat.status").isEqualTo(health);
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.chat.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.chat.config.ChatConstants;
+import com.example.chat.dto.BatchResponse;
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.dto.MessageResponse;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.model.Message;
+import com.example.chat.service.ChatService;
+
+import reactor.test.StepVerifier;
+
+/**
+ * Drives the chat REST endpoints through a running server.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "chat.rate-limit.enabled=false")
+class ChatControllerTest {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE = new ParameterizedTypeReference<>() {
+    };
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Test
+    void streamResumesAfterLastEventIdThenGoesLive() {
+        String room = "sse-resume";
+        List<Long> ids = publish(room, 5);
+
+        StepVerifier.create(client.get().uri("/chat/stream?room={room}", room)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header(ChatConstants.LAST_EVENT_ID_HEADER, Long.toString(ids.get(1)))
+                        .exchange()
+                        .expectStatus().isOk()
+                        .returnResult(SSE)
+                        .getResponseBody()
+                        // Heartbeats are comment-only events
+                        .filter(event -> event.id() != null)
+                        .map(event -> Long.parseLong(event.id())))
+                .expectNext(ids.get(2), ids.get(3), ids.get(4))
+                .then(() -> publish(room, 1))
+                .expectNextMatches(id -> id > ids.get(4))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void streamPrefersLastEventIdOverSince() {
+        String room = "sse-last-event-id";
+        List<Long> ids = publish(room, 3);
+
+        StepVerifier.create(client.get().uri("/chat/stream?room={room}&since=0", room)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header(ChatConstants.LAST_EVENT_ID_HEADER, Long.toString(ids.get(1)))
+                        .exchange()
+                        .expectStatus().isOk()
+                        .returnResult(SSE)
+                        .getResponseBody()
+                        .filter(event -> event.id() != null)
+                        .map(event -> Long.parseLong(event.id())))
+                .expectNext(ids.get(2))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void batchPublishesAJsonArrayAndCountsRejectedEntries() {
+        String room = "batch-json";
+        List<MessageRequest> requests = List.of(
+                new MessageRequest("alice", "one", room),
+                new MessageRequest("", "no sender", room),
+                new MessageRequest("bob", "two", room),
+                new MessageRequest("alice", " ", room),
+                new MessageRequest("alice", "three", room));
+
+        client.post().uri("/chat/send/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requests)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BatchResponse.class).isEqualTo(new BatchResponse(3, 2));
+
+        assertThat(chatService.history(room, 0)).extracting(Message::getContent).containsExactly("one", "two", "three");
+    }
+
+    @Test
+    void batchPublishesNdjsonLineByLine() {
+        String room = "batch-ndjson";
+        String body = "{\"sender\":\"alice\",\"content\":\"one\",\"room\":\"" + room + "\"}\n"
+                + "{\"sender\":\"alice\",\"room\":\"" + room + "\"}\n"
+                + "{\"sender\":\"bob\",\"content\":\"two\",\"room\":\"" + room + "\"}\n";
+
+        client.post().uri("/chat/send/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BatchResponse.class).isEqualTo(new BatchResponse(2, 1));
+
+        assertThat(chatService.history(room, 0)).extracting(Message::getContent).containsExactly("one", "two");
+    }
+
+    @Test
+    void historyPagesBackwardsWithTheBeforeCursor() {
+        String room = "history-before";
+        List<Long> ids = publish(room, 7);
+
+        List<Long> paged = new ArrayList<>();
+        String uri = "/chat/history?room=" + room + "&limit=3";
+        List<MessageResponse> page = history(uri);
+        while (!page.isEmpty()) {
+            assertThat(page).hasSizeLessThanOrEqualTo(3);
+            page.forEach(message -> paged.add(message.id()));
+            // The id of the last message received is the cursor of the next, older page
+            page = history(uri + "&before=" + page.get(page.size() - 1).id());
+        }
+
+        assertThat(paged).containsExactlyElementsOf(ids.reversed());
+    }
+
+    @Test
+    void historyCatchesUpOldestFirstWithTheAfterCursor() {
+        String room = "history-after";
+        List<Long> ids = publish(room, 5);
+
+        assertThat(history("/chat/history?room=" + room + "&after=" + ids.get(1) + "&limit=2"))
+                .extracting(MessageResponse::id)
+                .containsExactly(ids.get(2), ids.get(3));
+        assertThat(history("/chat/history?room=" + room + "&after=" + ids.get(4))).isEmpty();
+    }
+
+    @Test
+    void historyFiltersByTimeRangeAndSender() {
+        String room = "history-range";
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 12, 0);
+        for (int i = 0; i < 6; i++) {
+            chatService.publish(Message.builder().room(room).sender(i % 2 == 0 ? "alice" : "bob").content("minute " + i)
+                    .timestamp(MessageMapper.toEpochMillis(start.plusMinutes(i))).build());
+        }
+
+        // From is included and to is not
+        assertThat(history("/chat/history?room=" + room + "&from=" + start.plusMinutes(1) + "&to=" + start.plusMinutes(4)))
+                .extracting(MessageResponse::content)
+                .containsExactly("minute 3", "minute 2", "minute 1");
+        assertThat(history("/chat/history?room=" + room + "&sender=alice"))
+                .extracting(MessageResponse::content)
+                .containsExactly("minute 4", "minute 2", "minute 0");
+        assertThat(history("/chat/history?room=" + room + "&sender=bob&from=" + start.plusMinutes(2)))
+                .extracting(MessageResponse::content)
+                .containsExactly("minute 5", "minute 3");
+    }
+
+    @Test
+    void historyRejectsLimitsOutOfRange() {
+        client.get().uri("/chat/history?limit=0").exchange().expectStatus().isBadRequest();
+        client.get().uri("/chat/history?limit=" + (ChatConstants.MAX_HISTORY_PAGE_SIZE + 1)).exchange().expectStatus().isBadRequest();
+        client.get().uri("/chat/history?limit=" + ChatConstants.MAX_HISTORY_PAGE_SIZE).exchange().expectStatus().isOk();
+    }
+
+    @Test
+    void searchRanksFiltersAndPagesMessages() {
+        chatService.publish(MessageMapper.toEntity(new MessageRequest("alice", "quarterly report draft", "search-a")));
+        chatService.publish(MessageMapper.toEntity(new MessageRequest("bob", "report is late", "search-a")));
+        chatService.publish(MessageMapper.toEntity(new MessageRequest("carol", "quarterly report final", "search-b")));
+        // Indexing runs behind publishing
+        awaitSearchable("final", "search-b");
+
+        client.get().uri("/chat/search?q=quarterly report&room=search-a")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.total").isEqualTo(2)
+                .jsonPath("$.hits.length()").isEqualTo(2)
+                .jsonPath("$.hits[0].message.sender").isEqualTo("alice")
+                .jsonPath("$.hits[0].message.room").isEqualTo("search-a")
+                .jsonPath("$.hits[1].message.sender").isEqualTo("bob");
+
+        client.get().uri("/chat/search?q=quarterly report&room=search-a&offset=1&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.total").isEqualTo(2)
+                .jsonPath("$.offset").isEqualTo(1)
+                .jsonPath("$.limit").isEqualTo(1)
+                .jsonPath("$.hits.length()").isEqualTo(1)
+                .jsonPath("$.hits[0].message.sender").isEqualTo("bob");
+    }
+
+    @Test
+    void searchRejectsInvalidParameters() {
+        client.get().uri("/chat/search?q= ").exchange().expectStatus().isBadRequest();
+        client.get().uri("/chat/search?q=report&limit=0").exchange().expectStatus().isBadRequest();
+        client.get().uri("/chat/search?q=report&limit=101").exchange().expectStatus().isBadRequest();
+        client.get().uri("/chat/search?q=report&offset=-1").exchange().expectStatus().isBadRequest();
+        client.get().uri("/chat/search").exchange().expectStatus().isBadRequest();
+    }
+
+    private List<MessageResponse> history(String uri) {
+        return client.get().uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MessageResponse.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private void awaitSearchable(String query, String room) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (chatService.search(query, room, 0, 1).block(Duration.ofSeconds(5)).total() == 0) {
+            assertThat(System.nanoTime()).as("indexed in time").isLessThan(deadline);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private List<Long> publish(String room, int count) {
+        for (int i = 0; i < count; i++) {
+            chatService.publish(MessageMapper.toEntity(new MessageRequest("alice", "message " + i, room)));
+        }
+        List<Message> stored = chatService.history(room, 0);
+        return stored.subList(stored.size() - count, stored.size()).stream().map(Message::getId).toList();
+    }
+}
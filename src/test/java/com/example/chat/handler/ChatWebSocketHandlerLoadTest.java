@@ -0,0 +1,112 @@
+package com.example.chat.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.service.ChatService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+
+/**
+ * Load test for the WebSocket fan-out.
+ * Opens N local WebSocket clients, publishes a burst of messages and reports
+ * publish-to-receive latency percentiles across all deliveries.
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"debug=false", "logging.level.root=INFO", "logging.level.org.springframework=INFO"})
+class ChatWebSocketHandlerLoadTest {
+
+    private static final int CLIENTS = 50;
+    private static final int MESSAGES = 200;
+    private static final String LOAD_PREFIX = "load:";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ChatService chatService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void everyClientReceivesEveryBroadcast() throws Exception {
+        ReactorNettyWebSocketClient client = new ReactorNettyWebSocketClient();
+        URI uri = URI.create("ws://localhost:" + port + "/ws/chat");
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>(CLIENTS * MESSAGES));
+        CountDownLatch warmedUp = new CountDownLatch(CLIENTS);
+        CountDownLatch finished = new CountDownLatch(CLIENTS);
+        List<Disposable> connections = new ArrayList<>();
+
+        for (int i = 0; i < CLIENTS; i++) {
+            connections.add(client.execute(uri, session -> {
+                CountDownLatch firstFrame = new CountDownLatch(1);
+                return session.receive()
+                        .map(WebSocketMessage::getPayloadAsText)
+                        .doOnNext(payload -> {
+                            if (firstFrame.getCount() > 0) {
+                                firstFrame.countDown();
+                                warmedUp.countDown();
+                            }
+                        })
+                        .map(this::contentOf)
+                        .filter(content -> content.startsWith(LOAD_PREFIX))
+                        .doOnNext(content -> latencies.add(System.nanoTime() - Long.parseLong(content.substring(LOAD_PREFIX.length()))))
+                        .take(MESSAGES)
+                        .then();
+            }).doFinally(signal -> finished.countDown()).subscribe());
+        }
+
+        // Keep publishing warm-up messages until every client is attached to the broadcast
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        do {
+            chatService.publish(MessageMapper.toEntity(new MessageRequest("warmup", "warmup")));
+        } while (!warmedUp.await(50, TimeUnit.MILLISECONDS) && System.nanoTime() < deadline);
+        assertThat(warmedUp.getCount()).isZero();
+
+        for (int i = 0; i < MESSAGES; i++) {
+            chatService.publish(MessageMapper.toEntity(new MessageRequest("load", LOAD_PREFIX + System.nanoTime())));
+        }
+
+        assertThat(finished.await(30, TimeUnit.SECONDS)).isTrue();
+        connections.forEach(Disposable::dispose);
+
+        assertThat(latencies).hasSize(CLIENTS * MESSAGES);
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        log.info("Fan-out latency for {} clients x {} messages: p50={}us p90={}us p99={}us max={}us",
+                CLIENTS, MESSAGES,
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), sorted.get(sorted.size() - 1) / 1_000);
+    }
+
+    private String contentOf(String payload) {
+        try {
+            return objectMapper.readTree(payload).path("content").asText();
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1_000;
+    }
+}
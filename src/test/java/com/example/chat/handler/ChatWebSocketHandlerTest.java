@@ -0,0 +1,184 @@
+package com.example.chat.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.time.Duration;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+
+import com.example.chat.codec.FrameError;
+import com.example.chat.codec.WireFormat;
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.model.Message;
+import com.example.chat.service.ChatService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Drives the chat WebSocket endpoint through a running server.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "chat.rate-limit.enabled=false")
+class ChatWebSocketHandlerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ChatService chatService;
+
+    private final ReactorNettyWebSocketClient client = new ReactorNettyWebSocketClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CBORMapper cborMapper = new CBORMapper();
+
+    @Test
+    void sessionResumesAfterSinceThenGoesLive() {
+        String room = "ws-resume";
+        List<Long> ids = publish(room, 5);
+        List<Long> resumed = new CopyOnWriteArrayList<>();
+
+        client.execute(uri("?room=" + room + "&since=" + ids.get(1)), session -> session.receive()
+                        .map(WebSocketMessage::getPayloadAsText)
+                        .map(this::idOf)
+                        .doOnNext(id -> {
+                            resumed.add(id);
+                            // Everything missed has been replayed, so the next message can only arrive live
+                            if (id.equals(ids.get(4))) {
+                                publish(room, 1);
+                            }
+                        })
+                        .take(4)
+                        .then())
+                .block(Duration.ofSeconds(10));
+
+        assertThat(resumed).hasSize(4).startsWith(ids.get(2), ids.get(3), ids.get(4));
+        assertThat(resumed.get(3)).isGreaterThan(ids.get(4));
+    }
+
+    @Test
+    void cborSubprotocolSelectsBinaryFramesBothWays() {
+        String room = "ws-cbor";
+        AtomicReference<String> negotiated = new AtomicReference<>();
+        List<WebSocketMessage.Type> types = new CopyOnWriteArrayList<>();
+        List<JsonNode> received = new CopyOnWriteArrayList<>();
+
+        // Resuming from 0 replays anything published before the session's live subscription started
+        client.execute(uri("?room=" + room + "&since=0"), withSubProtocol(WireFormat.CBOR.subProtocol(), session -> {
+                    negotiated.set(session.getHandshakeInfo().getSubProtocol());
+                    Flux<WebSocketMessage> frames = Flux.just(
+                            Map.of("sender", "alice"),
+                            Map.of("sender", "alice", "content", "over cbor"))
+                            .map(frame -> session.binaryMessage(factory -> factory.wrap(cbor(frame))));
+                    Mono<Void> replies = session.receive()
+                            .doOnNext(message -> {
+                                types.add(message.getType());
+                                received.add(readCbor(message));
+                            })
+                            .take(2)
+                            .then();
+                    return Mono.when(session.send(frames), replies);
+                }))
+                .block(Duration.ofSeconds(10));
+
+        assertThat(negotiated.get()).isEqualTo(WireFormat.CBOR.subProtocol());
+        assertThat(types).containsOnly(WebSocketMessage.Type.BINARY);
+        assertThat(received).anySatisfy(frame -> assertThat(frame.path("error").asText())
+                .isEqualTo(FrameError.INVALID_FORMAT.message()));
+        assertThat(received).anySatisfy(frame -> {
+            assertThat(frame.path("content").asText()).isEqualTo("over cbor");
+            assertThat(frame.path("timestamp").isIntegralNumber()).isTrue();
+        });
+    }
+
+    @Test
+    void sessionsWithoutASubprotocolReceiveJsonText() {
+        String room = "ws-json";
+        List<WebSocketMessage> received = new CopyOnWriteArrayList<>();
+
+        client.execute(uri("?room=" + room + "&since=0"), session -> {
+                    publish(room, 1);
+                    return session.receive()
+                            .doOnNext(message -> {
+                                assertThat(session.getHandshakeInfo().getSubProtocol()).isNull();
+                                assertThat(message.getType()).isEqualTo(WebSocketMessage.Type.TEXT);
+                                assertThat(message.getPayloadAsText()).contains("\"content\":\"message 0\"", "\"timestamp\":\"");
+                                received.add(message);
+                            })
+                            .take(1)
+                            .then();
+                })
+                .block(Duration.ofSeconds(10));
+
+        assertThat(received).hasSize(1);
+    }
+
+    private byte[] cbor(Object value) {
+        try {
+            return cborMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private JsonNode readCbor(WebSocketMessage message) {
+        try (InputStream input = message.getPayload().asInputStream()) {
+            return cborMapper.readTree(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static WebSocketHandler withSubProtocol(String subProtocol, WebSocketHandler handler) {
+        return new WebSocketHandler() {
+            @Override
+            public List<String> getSubProtocols() {
+                return List.of(subProtocol);
+            }
+
+            @Override
+            public Mono<Void> handle(WebSocketSession session) {
+                return handler.handle(session);
+            }
+        };
+    }
+
+    private long idOf(String frame) {
+        try {
+            return objectMapper.readTree(frame).path("id").asLong();
+        } catch (Exception e) {
+            throw new IllegalStateException("Not a message frame: " + frame, e);
+        }
+    }
+
+    private URI uri(String query) {
+        return URI.create("ws://localhost:" + port + "/ws/chat" + query);
+    }
+
+    private List<Long> publish(String room, int count) {
+        for (int i = 0; i < count; i++) {
+            chatService.publish(MessageMapper.toEntity(new MessageRequest("alice", "message " + i, room)));
+        }
+        List<Message> stored = chatService.history(room, 0);
+        return stored.subList(stored.size() - count, stored.size()).stream().map(Message::getId).toList();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.chat.moderation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.model.Message;
+import com.example.chat.scheduling.ChatSchedulers;
+import com.example.chat.service.SubscriberQueues;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class ModerationPipelineTest {
+
+    private static final int SENDERS = 4;
+    private static final int MESSAGES = 50;
+
+    private final ChatProperties properties = new ChatProperties();
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final ChatMetrics metrics = new ChatMetrics(registry, new SubscriberQueues(properties),
+            new ChatFrameCodec(new ObjectMapper(), new FrameCompressor(properties)));
+    private final ChatSchedulers schedulers = new ChatSchedulers(properties);
+    private final List<ModerationPipeline> pipelines = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        pipelines.forEach(ModerationPipeline::shutdown);
+        schedulers.shutdown();
+    }
+
+    @Test
+    void asyncStagesRunConcurrentlyButEachSenderStaysInOrder() throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ModerationPipeline pipeline = pipeline(stage("link-expansion", StageMode.ASYNC, false, message -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return Mono.delay(Duration.ofMillis(ThreadLocalRandom.current().nextInt(1, 10)))
+                    .map(tick -> {
+                        inFlight.decrementAndGet();
+                        return StageResult.pass(message.getContent() + "!");
+                    });
+        }));
+        Map<String, List<String>> published = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(SENDERS * MESSAGES);
+
+        for (int i = 0; i < MESSAGES; i++) {
+            for (int sender = 0; sender < SENDERS; sender++) {
+                pipeline.submit(message("user-" + sender, Integer.toString(i)), moderated -> {
+                    published.computeIfAbsent(moderated.getSender(), key -> new CopyOnWriteArrayList<>()).add(moderated.getContent());
+                    done.countDown();
+                });
+            }
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            expected.add(i + "!");
+        }
+        assertThat(published).hasSize(SENDERS).allSatisfy((sender, contents) -> assertThat(contents).isEqualTo(expected));
+        // Senders overlap, a sender never overlaps itself
+        assertThat(maxInFlight.get()).isBetween(2, SENDERS);
+        assertThat(registry.get("chat.moderation.latency").tag("stage", "link-expansion").timer().count())
+                .isEqualTo(SENDERS * MESSAGES);
+    }
+
+    @Test
+    void cachesResultsByContentAndStopsAtTheFirstRejection() {
+        properties.getModeration().setBlockedWords(List.of("darn"));
+        AtomicInteger scored = new AtomicInteger();
+        ModerationPipeline pipeline = pipeline(
+                new BlockedWordsStage(properties),
+                stage("spam-score", StageMode.CPU, true, message -> {
+                    scored.incrementAndGet();
+                    return Mono.just(message.getContent().contains("buy now")
+                            ? StageResult.reject("spam")
+                            : StageResult.pass(message.getContent()));
+                }));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(pipeline.moderate(message("alice", "Darn, it rains")).block())
+                    .extracting(Message::getContent).isEqualTo("****, it rains");
+            assertThat(pipeline.moderate(message("bob", "buy now")).blockOptional()).isEmpty();
+        }
+
+        assertThat(scored).hasValue(2);
+        assertThat(registry.get("chat.moderation.rejected").tag("stage", "spam-score").counter().count()).isEqualTo(10);
+        assertThat(registry.get("cache.gets").tag("cache", "moderation").tag("stage", "spam-score").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(18);
+    }
+
+    @Test
+    void skipsAStageThatTimesOut() {
+        properties.getModeration().setTimeout(Duration.ofMillis(50));
+        ModerationPipeline pipeline = pipeline(stage("slow", StageMode.ASYNC, false, message -> Mono.never()));
+
+        assertThat(pipeline.moderate(message("alice", "hello")).block(Duration.ofSeconds(5)))
+                .extracting(Message::getContent).isEqualTo("hello");
+        assertThat(registry.get("chat.moderation.failures").tag("stage", "slow").counter().count()).isEqualTo(1);
+    }
+
+    private ModerationPipeline pipeline(MessageStage... stages) {
+        ModerationPipeline pipeline = new ModerationPipeline(properties, List.of(stages), metrics, schedulers);
+        pipelines.add(pipeline);
+        return pipeline;
+    }
+
+    private static Message message(String sender, String content) {
+        return MessageMapper.toEntity(new MessageRequest(sender, content));
+    }
+
+    private static MessageStage stage(String name, StageMode mode, boolean cacheable,
+                                      Function<Message, Mono<StageResult>> apply) {
+        return new MessageStage() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public StageMode mode() {
+                return mode;
+            }
+
+            @Override
+            public boolean cacheable() {
+                return cacheable;
+            }
+
+            @Override
+            public Mono<StageResult> apply(Message message) {
+                return apply.apply(message);
+            }
+        };
+    }
+}
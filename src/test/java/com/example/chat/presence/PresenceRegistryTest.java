@@ -0,0 +1,135 @@
+package com.example.chat.presence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.codec.WireFormat;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.scheduling.ChatSchedulers;
+import com.example.chat.service.SubscriberQueues;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.test.StepVerifier;
+
+class PresenceRegistryTest {
+
+    private static final String ROOM = "general";
+    private static final Duration WINDOW = Duration.ofMillis(20);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChatProperties properties = new ChatProperties();
+    private final ChatFrameCodec codec = new ChatFrameCodec(objectMapper, new FrameCompressor(properties));
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final ChatMetrics metrics = new ChatMetrics(registry, new SubscriberQueues(properties), codec);
+    private final ChatSchedulers schedulers = new ChatSchedulers(properties);
+    private final PresenceRegistry presence;
+
+    PresenceRegistryTest() {
+        properties.getPresence().setWindow(WINDOW);
+        properties.getPresence().setTypingTimeout(Duration.ofMillis(300));
+        presence = new PresenceRegistry(properties, codec, metrics, schedulers);
+    }
+
+    @AfterEach
+    void tearDown() {
+        presence.shutdown();
+        schedulers.shutdown();
+    }
+
+    @Test
+    void coalescesAStormIntoTheLatestStatePerUser() {
+        List<Map<String, String>> frames = new ArrayList<>();
+        presence.join(ROOM, "alice");
+
+        StepVerifier.create(presence.updates(ROOM, WireFormat.JSON))
+                .then(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        presence.typing(ROOM, "alice", i % 2 == 1);
+                    }
+                })
+                .thenConsumeWhile(frame -> {
+                    frames.add(states(frame));
+                    return !"typing".equals(states(frame).get("alice"));
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        // The storm crossed a handful of windows at most
+        assertThat(frames).hasSizeLessThan(20);
+        assertThat(registry.get("chat.presence.coalesced").counter().count()).isGreaterThan(9_000);
+    }
+
+    @Test
+    void slowSessionSkipsStaleBatchesAndCatchesUpWithTheLatestState() {
+        presence.join(ROOM, "alice");
+        presence.join(ROOM, "bob");
+
+        StepVerifier.create(presence.updates(ROOM, WireFormat.JSON), 1)
+                .assertNext(frame -> assertThat(states(frame)).containsOnlyKeys("alice", "bob"))
+                .then(() -> {
+                    presence.typing(ROOM, "alice", true);
+                    pause();
+                    presence.leave(ROOM, "bob");
+                    pause();
+                    presence.join(ROOM, "carol");
+                    pause();
+                })
+                // A session that asks only now gets one frame with everything, not the batches it missed
+                .thenRequest(1)
+                .assertNext(frame -> assertThat(states(frame))
+                        .containsEntry("alice", "typing")
+                        .containsEntry("bob", "offline")
+                        .containsEntry("carol", "online"))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(registry.get("chat.presence.skipped").counter().count()).isPositive();
+    }
+
+    @Test
+    void typingEndsWhenNotRenewed() {
+        presence.join(ROOM, "alice");
+
+        StepVerifier.create(presence.updates(ROOM, WireFormat.JSON))
+                .then(() -> presence.typing(ROOM, "alice", true))
+                .thenConsumeWhile(frame -> !"typing".equals(states(frame).get("alice")))
+                .assertNext(frame -> assertThat(states(frame)).containsEntry("alice", "typing"))
+                .assertNext(frame -> assertThat(states(frame)).containsEntry("alice", "online"))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private Map<String, String> states(byte[] frame) {
+        try {
+            Map<String, String> states = new HashMap<>();
+            for (JsonNode change : objectMapper.readTree(frame).path("presence")) {
+                states.put(change.path("user").asText(), change.path("state").asText());
+            }
+            return states;
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(WINDOW.multipliedBy(3).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
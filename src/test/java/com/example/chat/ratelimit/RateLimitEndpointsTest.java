@@ -0,0 +1,125 @@
+package com.example.chat.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+
+import com.example.chat.config.ChatConstants;
+import com.example.chat.dto.BatchResponse;
+import com.example.chat.dto.MessageRequest;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Checks how the endpoints answer clients over their rate limits. Each test sends from its own address,
+ * taken from X-Forwarded-For, so the tests do not share address buckets.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.forward-headers-strategy=framework",
+        "chat.rate-limit.sender.rate=0.1", "chat.rate-limit.sender.burst=3",
+        "chat.rate-limit.session.rate=0.1", "chat.rate-limit.session.burst=2",
+        "chat.rate-limit.address.rate=0.1", "chat.rate-limit.address.burst=5"})
+class RateLimitEndpointsTest {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    void sendAnswers429WithRetryAfterOverTheSenderLimit() {
+        for (int i = 0; i < 3; i++) {
+            send("10.0.0.1", "alice").expectStatus().isOk();
+        }
+
+        send("10.0.0.1", "alice")
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(429)
+                .jsonPath("$.message").isEqualTo(ChatConstants.RATE_LIMITED_MESSAGE);
+        // Another sender from another address is not affected
+        send("10.0.0.9", "bob").expectStatus().isOk();
+    }
+
+    @Test
+    void sendAnswers429OverTheAddressLimit() {
+        for (int i = 0; i < 5; i++) {
+            send("10.0.0.2", "sender-" + i).expectStatus().isOk();
+        }
+
+        send("10.0.0.2", "sender-5").expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void batchChargesTheAddressForEveryEntry() {
+        // Distinct senders, so only the address limit applies
+        List<MessageRequest> entries = IntStream.range(0, 8)
+                .mapToObj(i -> new MessageRequest("batch-" + i, "entry " + i, "limits"))
+                .toList();
+
+        client.post().uri("/chat/send/batch")
+                .header(FORWARDED_FOR, "10.0.0.3")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(entries)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BatchResponse.class).isEqualTo(new BatchResponse(5, 3));
+
+        // The address has no token left, so the next batch is turned away before its body is read
+        client.post().uri("/chat/send/batch")
+                .header(FORWARDED_FOR, "10.0.0.3")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(entries)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void webSocketAnswersRateLimitedFramesWithAnErrorFrame() {
+        List<String> errors = new CopyOnWriteArrayList<>();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(FORWARDED_FOR, "10.0.0.4");
+
+        new ReactorNettyWebSocketClient().execute(URI.create("ws://localhost:" + port + "/ws/chat?room=limits-ws"), headers,
+                        session -> session.send(Flux.range(0, 4)
+                                        .map(i -> session.textMessage("{\"sender\":\"ws-" + i + "\",\"content\":\"frame " + i + "\"}")))
+                                .thenMany(session.receive()
+                                        .map(WebSocketMessage::getPayloadAsText)
+                                        .filter(payload -> payload.contains("\"error\""))
+                                        .doOnNext(errors::add)
+                                        .take(2))
+                                .then())
+                .block(Duration.ofSeconds(10));
+
+        // The session's burst of two lets the first frames through; the others are answered, not dropped
+        assertThat(errors).containsExactly(
+                "{\"error\":\"" + ChatConstants.RATE_LIMITED_MESSAGE + "\"}",
+                "{\"error\":\"" + ChatConstants.RATE_LIMITED_MESSAGE + "\"}");
+    }
+
+    private WebTestClient.ResponseSpec send(String address, String sender) {
+        return client.post().uri("/chat/send")
+                .header(FORWARDED_FOR, address)
+                .bodyValue(new MessageRequest(sender, "hello", "limits"))
+                .exchange();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.chat.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.exception.RateLimitExceededException;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.service.SubscriberQueues;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RateLimiterTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void limitsEachKeyToItsBurst() {
+        RateLimiter rateLimiter = rateLimiter(properties());
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.tryAcquire(LimitScope.SENDER, "alice")).isZero();
+        }
+        // Refilling one token at 1/s takes up to a second
+        assertThat(rateLimiter.tryAcquire(LimitScope.SENDER, "alice")).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(1).toNanos());
+        assertThat(rateLimiter.tryAcquire(LimitScope.SENDER, "bob")).isZero();
+        assertThat(registry.counter("chat.ratelimit.rejected", "scope", LimitScope.SENDER.tag()).count()).isEqualTo(1);
+    }
+
+    @Test
+    void acquireFailsWithTheTimeUntilTheNextToken() {
+        RateLimiter rateLimiter = rateLimiter(properties());
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.acquire(LimitScope.SENDER, "alice");
+        }
+
+        assertThatThrownBy(() -> rateLimiter.acquire(LimitScope.SENDER, "alice"))
+                .isInstanceOfSatisfying(RateLimitExceededException.class, error -> {
+                    assertThat(error.getScope()).isEqualTo(LimitScope.SENDER);
+                    assertThat(error.getRetryAfter()).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(1));
+                });
+    }
+
+    @Test
+    void releasedKeyStartsWithAFullBucket() {
+        RateLimiter rateLimiter = rateLimiter(properties());
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire(LimitScope.SENDER, "alice");
+        }
+
+        rateLimiter.release(LimitScope.SENDER, "alice");
+
+        assertThat(rateLimiter.tryAcquire(LimitScope.SENDER, "alice")).isZero();
+    }
+
+    @Test
+    void scopesWithoutARateAndDisabledLimitsAllowEverything() {
+        ChatProperties properties = properties();
+        properties.getRateLimit().getSession().setRate(0);
+        RateLimiter partial = rateLimiter(properties);
+        properties.getRateLimit().setEnabled(false);
+        RateLimiter disabled = rateLimiter(properties);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(partial.tryAcquire(LimitScope.SESSION, "session")).isZero();
+            assertThat(disabled.tryAcquire(LimitScope.SENDER, "alice")).isZero();
+        }
+    }
+
+    private RateLimiter rateLimiter(ChatProperties properties) {
+        ChatFrameCodec codec = new ChatFrameCodec(new ObjectMapper(), new FrameCompressor(properties));
+        return new RateLimiter(properties, new ChatMetrics(registry, new SubscriberQueues(properties), codec));
+    }
+
+    private static ChatProperties properties() {
+        ChatProperties properties = new ChatProperties();
+        properties.getRateLimit().getSender().setRate(1);
+        properties.getRateLimit().getSender().setBurst(3);
+        return properties;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.chat.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+    private static final long INTERVAL = 100;
+    private static final int BURST = 3;
+    private static final long TOLERANCE = INTERVAL * BURST;
+    private static final long START = 1_000_000;
+
+    private final TokenBucket bucket = new TokenBucket(START);
+
+    @Test
+    void allowsABurstThenAsksToWaitOneInterval() {
+        for (int i = 0; i < BURST; i++) {
+            assertThat(bucket.tryAcquire(START, INTERVAL, TOLERANCE)).isZero();
+        }
+
+        assertThat(bucket.tryAcquire(START, INTERVAL, TOLERANCE)).isEqualTo(INTERVAL);
+        // A rejected attempt takes no token, so the wait only shrinks with time
+        assertThat(bucket.tryAcquire(START + 40, INTERVAL, TOLERANCE)).isEqualTo(INTERVAL - 40);
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        for (int i = 0; i < BURST; i++) {
+            bucket.tryAcquire(START, INTERVAL, TOLERANCE);
+        }
+
+        long later = START + 2 * INTERVAL;
+        assertThat(bucket.tryAcquire(later, INTERVAL, TOLERANCE)).isZero();
+        assertThat(bucket.tryAcquire(later, INTERVAL, TOLERANCE)).isZero();
+        assertThat(bucket.tryAcquire(later, INTERVAL, TOLERANCE)).isPositive();
+    }
+
+    @Test
+    void idleTimeDoesNotSaveUpMoreThanTheBurst() {
+        long muchLater = START + 1_000 * INTERVAL;
+        for (int i = 0; i < BURST; i++) {
+            assertThat(bucket.tryAcquire(muchLater, INTERVAL, TOLERANCE)).isZero();
+        }
+
+        assertThat(bucket.tryAcquire(muchLater, INTERVAL, TOLERANCE)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void sustainedRateAtTheIntervalIsNeverLimited() {
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(bucket.tryAcquire(START + i * INTERVAL, INTERVAL, TOLERANCE)).isZero();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.chat.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.model.Message;
+
+class InMemoryMessageRepositoryTest {
+
+    @Test
+    void boundsTheRoomsThatKeepAHistory() {
+        ChatProperties properties = new ChatProperties();
+        properties.getHistory().setMaxRooms(10);
+        InMemoryMessageRepository repository = new InMemoryMessageRepository(properties);
+
+        for (int i = 1; i <= 1000; i++) {
+            repository.save(Message.builder().id(i).room("room-" + i).sender("alice").content("hi")
+                    .timestamp(System.currentTimeMillis()).build());
+        }
+
+        assertThat(repository.roomCount()).isLessThanOrEqualTo(10);
+        assertThat(repository.findLast(1000)).hasSize(1000);
+    }
+
+    @Test
+    void roomThatKeepsReceivingMessagesOutlivesTheRetention() {
+        ChatProperties properties = new ChatProperties();
+        properties.getHistory().setRetention(Duration.ofSeconds(1));
+        InMemoryMessageRepository repository = new InMemoryMessageRepository(properties);
+        long started = System.nanoTime();
+        repository.save(message(0, "idle"));
+        repository.save(message(1, "busy"));
+
+        long id = 1;
+        while (System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(800)) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+            repository.save(message(++id, "busy"));
+        }
+        long recent = id;
+        LockSupport.parkNanos(started + TimeUnit.MILLISECONDS.toNanos(1_200) - System.nanoTime());
+        repository.save(message(++id, "busy"));
+
+        // The ring was created more than a retention ago; had it expired, only the last message would be left
+        assertThat(repository.findLast("busy", 100)).extracting(Message::getId).contains(recent, id);
+        assertThat(repository.findLast("idle", 1)).isEmpty();
+        assertThat(repository.roomCount()).isEqualTo(1);
+    }
+
+    private static Message message(long id, String room) {
+        return Message.builder().id(id).room(room).sender("alice").content("hi").timestamp(System.currentTimeMillis()).build();
+    }
+}
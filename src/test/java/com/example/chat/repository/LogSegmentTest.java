@@ -0,0 +1,162 @@
+package com.example.chat.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.chat.model.Message;
+
+class LogSegmentTest {
+
+    private static final int SIZE = 4096;
+    private static final int INDEX_INTERVAL = 256;
+    private static final int HEADER_SIZE = 16;
+    private static final int FIXED_RECORD_SIZE = 32;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void reopenedSegmentReadsBackItsRecords() {
+        LogSegment segment = activeSegment();
+        for (int i = 1; i <= 20; i++) {
+            append(segment, message(i));
+        }
+        segment.force();
+        segment.close();
+
+        LogSegment reopened = LogSegment.open(file(), INDEX_INTERVAL);
+        assertThat(reopened.baseOffset()).isZero();
+        assertThat(reopened.recordCount()).isEqualTo(20);
+        assertThat(reopened.maxId()).isEqualTo(20);
+        assertThat(records(reopened)).extracting(Message::getId).containsExactlyElementsOf(ids(1, 20));
+        assertThat(records(reopened).get(4)).isEqualTo(message(5));
+        reopened.close();
+    }
+
+    @Test
+    void refusesRecordsOnceFull() {
+        LogSegment segment = activeSegment();
+        int appended = 0;
+        while (segment.append(message(appended + 1), bytes("room"), bytes("alice"), bytes(content(appended + 1)))) {
+            appended++;
+        }
+
+        assertThat(appended).isPositive();
+        assertThat(segment.recordCount()).isEqualTo(appended);
+        // Index entries every few records split the segment into chunks
+        assertThat(segment.chunkCount()).isGreaterThan(1);
+        assertThat(segment.chunkOfId(1)).isZero();
+        List<Long> read = new ArrayList<>();
+        for (int chunk = 0; chunk < segment.chunkCount(); chunk++) {
+            segment.readChunk(chunk).forEach(message -> read.add(message.getId()));
+        }
+        assertThat(read).containsExactlyElementsOf(ids(1, appended));
+        segment.close();
+    }
+
+    @Test
+    void recoveryStopsAtACorruptRecord() throws IOException {
+        LogSegment segment = activeSegment();
+        for (int i = 1; i <= 3; i++) {
+            append(segment, message(i));
+        }
+        segment.force();
+        segment.close();
+        // Flip a content byte of the third record, so its checksum no longer matches
+        write(positionOf(3) + FIXED_RECORD_SIZE - 4 + bytes("room").length + bytes("alice").length, new byte[] {'X'});
+
+        LogSegment reopened = LogSegment.open(file(), INDEX_INTERVAL);
+        assertThat(reopened.recordCount()).isEqualTo(2);
+        assertThat(reopened.maxId()).isEqualTo(2);
+
+        // The corrupt record is overwritten by the next append
+        append(reopened, message(4));
+        assertThat(records(reopened)).extracting(Message::getId).containsExactly(1L, 2L, 4L);
+        reopened.close();
+    }
+
+    @Test
+    void recoveryIgnoresATornTail() throws IOException {
+        LogSegment segment = activeSegment();
+        for (int i = 1; i <= 3; i++) {
+            append(segment, message(i));
+        }
+        segment.force();
+        segment.close();
+        // A crash left the length of a fourth record behind, but not the record it describes
+        write(positionOf(4), ByteBuffer.allocate(12).putInt(200).putLong(4).array());
+
+        LogSegment reopened = LogSegment.open(file(), INDEX_INTERVAL);
+        assertThat(reopened.recordCount()).isEqualTo(3);
+        append(reopened, message(4));
+        assertThat(records(reopened)).extracting(Message::getId).containsExactlyElementsOf(ids(1, 4));
+        reopened.close();
+
+        assertThat(records(LogSegment.open(file(), INDEX_INTERVAL))).hasSize(4);
+    }
+
+    private LogSegment activeSegment() {
+        LogSegment segment = LogSegment.create(directory, 1, SIZE, INDEX_INTERVAL);
+        segment.activate(0);
+        return segment;
+    }
+
+    private Path file() {
+        return directory.resolve(String.format("%020d.log", 1));
+    }
+
+    private void write(long position, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+
+    /**
+     * Returns the file position of the record with the given id, for records appended in id order from 1.
+     */
+    private static int positionOf(long id) {
+        int position = HEADER_SIZE;
+        for (long i = 1; i < id; i++) {
+            position += FIXED_RECORD_SIZE + bytes("room").length + bytes("alice").length + bytes(content(i)).length;
+        }
+        return position;
+    }
+
+    private static void append(LogSegment segment, Message message) {
+        assertThat(segment.append(message, bytes(message.getRoom()), bytes(message.getSender()), bytes(message.getContent()))).isTrue();
+    }
+
+    private static List<Message> records(LogSegment segment) {
+        List<Message> records = new ArrayList<>();
+        segment.scanFromOffset(segment.baseOffset(), (offset, message) -> records.add(message));
+        return records;
+    }
+
+    private static Message message(long id) {
+        return new Message(id, "room", "alice", content(id), 1_700_000_000_000L + id);
+    }
+
+    private static String content(long id) {
+        return "message number " + id;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<Long> ids(long first, long last) {
+        return LongStream.rangeClosed(first, last).boxed().toList();
+    }
+}
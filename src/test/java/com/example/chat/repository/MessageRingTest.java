@@ -0,0 +1,85 @@
+package com.example.chat.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.chat.model.Message;
+
+class MessageRingTest {
+
+    private static final String ROOM = "general";
+
+    @Test
+    void keepsTheNewestMessagesOnceItWrapsAround() {
+        MessageRing ring = new MessageRing(6, null);
+        for (long id = 1; id <= 20; id++) {
+            ring.add(message(id, System.currentTimeMillis()));
+        }
+
+        // The capacity is rounded up to a power of two
+        assertThat(ring.capacity()).isEqualTo(8);
+        assertThat(ids(ring.last(100))).containsExactly(13L, 14L, 15L, 16L, 17L, 18L, 19L, 20L);
+        assertThat(ids(ring.last(3))).containsExactly(18L, 19L, 20L);
+    }
+
+    @Test
+    void returnsOnlyTheRetainedMessagesAfterAnId() {
+        MessageRing ring = new MessageRing(8, null);
+        for (long id = 1; id <= 12; id++) {
+            ring.add(message(id, System.currentTimeMillis()));
+        }
+
+        assertThat(ids(ring.after(9))).containsExactly(10L, 11L, 12L);
+        assertThat(ids(ring.after(0))).containsExactly(5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L);
+        assertThat(ring.after(12)).isEmpty();
+    }
+
+    @Test
+    void leavesOutMessagesOlderThanTheRetention() {
+        MessageRing ring = new MessageRing(8, Duration.ofMinutes(1));
+        long now = System.currentTimeMillis();
+        ring.add(message(1, now - Duration.ofMinutes(5).toMillis()));
+        ring.add(message(2, now - Duration.ofMinutes(2).toMillis()));
+        ring.add(message(3, now));
+
+        assertThat(ids(ring.last(8))).containsExactly(3L);
+        assertThat(ids(ring.after(0))).containsExactly(3L);
+        assertThat(ids(ring.chunks(true, 8).next())).containsExactly(3L);
+    }
+
+    @Test
+    void keepsEveryMessageAddedConcurrently() throws InterruptedException {
+        int threads = 4;
+        int perThread = 1000;
+        MessageRing ring = new MessageRing(threads * perThread, null);
+        AtomicLong ids = new AtomicLong();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            writers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    ring.add(message(ids.incrementAndGet(), System.currentTimeMillis()));
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertThat(ids(ring.after(0))).containsExactlyElementsOf(LongStream.rangeClosed(1, threads * perThread).boxed().toList());
+    }
+
+    private static Message message(long id, long timestamp) {
+        return Message.builder().id(id).room(ROOM).sender("alice").content("message " + id).timestamp(timestamp).build();
+    }
+
+    private static List<Long> ids(List<Message> messages) {
+        return messages.stream().map(Message::getId).toList();
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.chat.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.model.Message;
+import com.example.chat.scheduling.ChatSchedulers;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+class SegmentedLogMessageRepositoryTest {
+
+    private static final int ROOM_CAPACITY = 20;
+
+    @TempDir
+    private Path directory;
+
+    private final ChatProperties properties = new ChatProperties();
+    private final List<ChatSchedulers> schedulers = new ArrayList<>();
+    private SegmentedLogMessageRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.close();
+        }
+        schedulers.forEach(ChatSchedulers::shutdown);
+    }
+
+    @Test
+    void reopenedLogReadsBackItsMessagesAndContinuesTheSequence() {
+        repository = open();
+        saveAll(1, 50);
+        repository.close();
+
+        repository = open();
+        assertThat(repository.lastId()).isEqualTo(50);
+        assertThat(repository.findAll()).containsExactlyElementsOf(messages(1, 50));
+
+        // A restarted node continues the sequence where the log ended
+        repository.save(message(repository.lastId() + 1));
+        assertThat(repository.lastId()).isEqualTo(51);
+    }
+
+    @Test
+    void rollsToANewSegmentWhenTheActiveOneIsFull() throws IOException {
+        repository = open();
+        saveAll(1, 300);
+
+        await("segments rolled", () -> segmentFiles().size() > 3);
+        assertThat(repository.findAll()).containsExactlyElementsOf(messages(1, 300));
+        assertThat(repository.findLast(5)).containsExactlyElementsOf(messages(296, 300));
+
+        repository.close();
+        repository = open();
+        assertThat(repository.findAll()).containsExactlyElementsOf(messages(1, 300));
+    }
+
+    @Test
+    void recoveryTruncatesACorruptTail() throws IOException {
+        repository = open();
+        saveAll(1, 10);
+        repository.close();
+        corrupt(content(10));
+
+        repository = open();
+        assertThat(repository.lastId()).isEqualTo(9);
+        assertThat(repository.findAll()).containsExactlyElementsOf(messages(1, 9));
+
+        // The next append takes the place of the lost record
+        Message replacement = message(10).withContent("replacement");
+        repository.save(replacement);
+        assertThat(repository.findLast(1)).containsExactly(replacement);
+    }
+
+    @Test
+    void retentionDeletesTheOldestSegments() throws IOException {
+        properties.getStore().setRetentionSize(DataSize.ofKilobytes(8));
+        properties.getStore().setFlushInterval(Duration.ofMillis(10));
+        repository = open();
+        saveAll(1, 300);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (repository.findAll().get(0).getId() == 1 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        List<Message> retained = repository.findAll();
+        assertThat(retained.get(0).getId()).isGreaterThan(1);
+        // What is left is the newest part of the log, without gaps
+        assertThat(retained).containsExactlyElementsOf(messages(retained.get(0).getId(), 300));
+        // Two segments fit into the retention size, next to the preallocated spare
+        assertThat(segmentFiles()).hasSizeLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void findAfterReturnsTheNewestRoomCapacityMessagesAcrossSegments() {
+        repository = open();
+        saveAll(1, 300);
+
+        // Odd ids went to room "a", even ones to room "b"
+        assertThat(ids(repository.findAfter("a", 0))).containsExactlyElementsOf(odd(261, 299));
+        assertThat(ids(repository.findAfter("b", 270))).containsExactlyElementsOf(even(272, 300));
+        assertThat(ids(repository.findAfter("a", 290))).containsExactly(291L, 293L, 295L, 297L, 299L);
+        assertThat(repository.findAfter("a", 300)).isEmpty();
+        assertThat(repository.findAfter("c", 0)).isEmpty();
+    }
+
+    @Test
+    void findRangePagesAcrossSegments() {
+        repository = open();
+        saveAll(1, 300);
+
+        List<Long> ascending = new ArrayList<>();
+        long cursor = 0;
+        for (List<Message> page = range(null, cursor); !page.isEmpty(); page = range(null, cursor)) {
+            assertThat(page).hasSizeLessThanOrEqualTo(25);
+            page.forEach(message -> ascending.add(message.getId()));
+            cursor = page.get(page.size() - 1).getId();
+        }
+        assertThat(ascending).containsExactlyElementsOf(odd(1, 299));
+
+        List<Long> descending = new ArrayList<>();
+        Long before = null;
+        for (List<Message> page = range(before, null); !page.isEmpty(); page = range(before, null)) {
+            page.forEach(message -> descending.add(message.getId()));
+            before = page.get(page.size() - 1).getId();
+        }
+        assertThat(descending).containsExactlyElementsOf(odd(1, 299).reversed());
+    }
+
+    @Test
+    void concurrentAppendsOnNonBlockingThreadsNeverPark() {
+        repository = open();
+        Scheduler parallel = Schedulers.newParallel("append", 4);
+        try {
+            // BlockHound fails an append that parks a parallel thread while other threads append
+            Flux.range(0, 4)
+                    .flatMap(thread -> Mono.fromRunnable(() -> saveAll(thread * 1_000L + 1, thread * 1_000L + 1_000))
+                            .subscribeOn(parallel))
+                    .blockLast(Duration.ofSeconds(30));
+        } finally {
+            parallel.dispose();
+        }
+
+        assertThat(repository.findAll()).hasSize(4_000);
+    }
+
+    @Test
+    void readsFindEveryAcceptedMessageOnceWhileTheStoreThreadWritesThem() {
+        repository = open();
+        AtomicLong accepted = new AtomicLong();
+        Scheduler writer = Schedulers.newSingle("writer");
+        try {
+            Mono<Void> writes = Mono.<Void>fromRunnable(() -> {
+                for (long id = 1; id <= 2_000; id++) {
+                    repository.save(message(id));
+                    accepted.set(id);
+                }
+            }).subscribeOn(writer).cache();
+            writes.subscribe();
+            while (accepted.get() < 2_000) {
+                long before = accepted.get();
+                List<Message> all = repository.findAll();
+                // Queued or written, each accepted message is read exactly once and in order
+                assertThat(all).hasSizeGreaterThanOrEqualTo((int) before);
+                assertThat(all).containsExactlyElementsOf(messages(1, all.size()));
+            }
+            writes.block(Duration.ofSeconds(30));
+        } finally {
+            writer.dispose();
+        }
+
+        assertThat(repository.findLast(3)).containsExactlyElementsOf(messages(1_998, 2_000));
+        assertThat(ids(repository.findAfter("a", 1_990))).containsExactly(1_991L, 1_993L, 1_995L, 1_997L, 1_999L);
+    }
+
+    @Test
+    void appendsThatCannotRollStayQueuedUntilTheLogRecovers() throws IOException {
+        properties.getStore().setFlushInterval(Duration.ofMillis(50));
+        // The test timestamps are long past any retention age
+        properties.getStore().setRetentionAge(null);
+        repository = open();
+        await("next segment preallocated", () -> segmentFiles().size() == 2);
+        deleteDirectory();
+
+        // The first roll takes the preallocated segment, the second cannot create one without the directory
+        saveAll(1, 100);
+        await("failure reported", () -> repository.failure() != null);
+        assertThat(repository.findAll()).containsExactlyElementsOf(messages(1, 100));
+        assertThat(ids(repository.findAfter("b", 90))).containsExactly(92L, 94L, 96L, 98L, 100L);
+
+        Files.createDirectories(directory);
+        await("failure cleared", () -> repository.failure() == null);
+        assertThat(repository.findAll()).containsExactlyElementsOf(messages(1, 100));
+
+        // The appends that waited were written to the segments created after the directory came back
+        repository.close();
+        repository = open();
+        List<Message> recovered = repository.findAll();
+        assertThat(recovered).isNotEmpty();
+        assertThat(recovered).containsExactlyElementsOf(messages(recovered.get(0).getId(), 100));
+    }
+
+    @Test
+    void failedBackgroundWritesAreReportedUntilMaintenanceSucceeds() throws IOException {
+        properties.getStore().setFlushInterval(Duration.ofMillis(50));
+        repository = open();
+        await("next segment preallocated", () -> segmentFiles().size() == 2);
+        deleteDirectory();
+
+        // Rolling takes the preallocated segment; preparing the one after it fails without the directory
+        saveAll(1, 50);
+        await("failure reported", () -> repository.failure() != null);
+        assertThat(repository.failure()).isInstanceOf(UncheckedIOException.class);
+        assertThat(repository.findAll()).containsExactlyElementsOf(messages(1, 50));
+
+        Files.createDirectories(directory);
+        await("failure cleared", () -> repository.failure() == null);
+        assertThat(segmentFiles()).hasSize(1);
+    }
+
+    private void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private void await(String condition, Callable<Boolean> check) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        try {
+            while (!check.call()) {
+                assertThat(System.nanoTime()).as(condition).isLessThan(deadline);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private SegmentedLogMessageRepository open() {
+        ChatProperties.Store store = properties.getStore();
+        store.setPath(directory.toString());
+        store.setSegmentSize(DataSize.ofKilobytes(4));
+        store.setIndexInterval(DataSize.ofBytes(256));
+        properties.getHistory().setRoomCapacity(ROOM_CAPACITY);
+        ChatSchedulers chatSchedulers = new ChatSchedulers(properties);
+        schedulers.add(chatSchedulers);
+        return new SegmentedLogMessageRepository(properties, chatSchedulers);
+    }
+
+    private List<Message> range(Long beforeId, Long afterId) {
+        return repository.findRange(new HistoryQuery("a", beforeId, afterId, null, null, null, 25))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+    }
+
+    private void saveAll(long first, long last) {
+        for (long id = first; id <= last; id++) {
+            repository.save(message(id));
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(LogSegment::isSegmentFile).toList();
+        }
+    }
+
+    /**
+     * Overwrites the first byte of a stored content in whichever segment file holds it.
+     */
+    private void corrupt(String content) throws IOException {
+        byte[] needle = content.getBytes(StandardCharsets.UTF_8);
+        for (Path file : segmentFiles()) {
+            byte[] bytes = Files.readAllBytes(file);
+            for (int i = 0; i + needle.length <= bytes.length; i++) {
+                if (Arrays.equals(bytes, i, i + needle.length, needle, 0, needle.length)) {
+                    bytes[i] = 'X';
+                    Files.write(file, bytes);
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("Content not found in the log: " + content);
+    }
+
+    private static Message message(long id) {
+        return new Message(id, id % 2 == 1 ? "a" : "b", "alice", content(id), 1_700_000_000_000L + id);
+    }
+
+    private static String content(long id) {
+        return "message number " + id + " with some padding to fill the segments sooner";
+    }
+
+    private static List<Message> messages(long first, long last) {
+        return LongStream.rangeClosed(first, last).mapToObj(SegmentedLogMessageRepositoryTest::message).toList();
+    }
+
+    private static List<Long> ids(List<Message> messages) {
+        return messages.stream().map(Message::getId).toList();
+    }
+
+    private static List<Long> odd(long first, long last) {
+        return LongStream.rangeClosed(first, last).filter(id -> id % 2 == 1).boxed().toList();
+    }
+
+    private static List<Long> even(long first, long last) {
+        return LongStream.rangeClosed(first, last).filter(id -> id % 2 == 0).boxed().toList();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.chat.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class SparseIndexTest {
+
+    private final SparseIndex index = new SparseIndex();
+
+    @Test
+    void findsTheFloorEntryByOffset() {
+        // Every tenth record, at offsets 0, 10, 20, ... with ids 1, 11, 21, ...
+        for (int i = 0; i < 200; i++) {
+            index.add(i * 10L, i * 10L + 1, 16 + i * 100);
+        }
+
+        assertThat(index.size()).isEqualTo(200);
+        assertThat(index.floorByOffset(0)).isEqualTo(new SparseIndex.Entry(0, 1, 16));
+        assertThat(index.floorByOffset(15)).isEqualTo(new SparseIndex.Entry(10, 11, 116));
+        assertThat(index.floorByOffset(10_000)).isEqualTo(index.entry(199));
+    }
+
+    @Test
+    void findsEntriesByIdWithOneEntryOfMargin() {
+        for (int i = 0; i < 5; i++) {
+            index.add(i * 10L, i * 10L + 1, 16 + i * 100);
+        }
+
+        assertThat(index.floorIndexById(0)).isEqualTo(-1);
+        assertThat(index.floorIndexById(1)).isZero();
+        assertThat(index.floorIndexById(25)).isEqualTo(2);
+        assertThat(index.floorIndexById(1_000)).isEqualTo(4);
+        // The entry before the floor, in case ids were appended slightly out of order
+        assertThat(index.beforeId(25)).isEqualTo(index.entry(1));
+        assertThat(index.beforeId(5)).isNull();
+    }
+
+    @Test
+    void emptyIndexHasNoEntries() {
+        assertThat(index.size()).isZero();
+        assertThat(index.floorByOffset(100)).isNull();
+        assertThat(index.floorIndexById(100)).isEqualTo(-1);
+        assertThat(index.beforeId(100)).isNull();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.chat.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.model.Message;
+import com.example.chat.repository.InMemoryMessageRepository;
+import com.example.chat.service.SubscriberQueues;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SearchIndexTest {
+
+    private static final int CAPACITY = 16;
+
+    private final List<SearchIndex> indexes = new ArrayList<>();
+    private long nextId;
+
+    @AfterEach
+    void tearDown() {
+        indexes.forEach(SearchIndex::shutdown);
+    }
+
+    @Test
+    void rareTermsOutrankCommonOnes() {
+        SearchIndex index = index();
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            messages.add(message("general", "banana smoothie"));
+        }
+        Message rare = message("general", "apple pie");
+        messages.add(rare);
+        indexAll(index, messages);
+
+        SearchPage page = index.search("apple banana", null, 0, 3);
+
+        assertThat(page.total()).isEqualTo(11);
+        assertThat(page.matches().get(0).message()).isEqualTo(rare);
+        assertThat(page.matches().get(0).score()).isGreaterThan(page.matches().get(1).score());
+    }
+
+    @Test
+    void messagesMatchingMoreTermsRankHigher() {
+        SearchIndex index = index();
+        Message one = message("general", "deploy failed");
+        Message both = message("general", "deploy failed on staging");
+        Message other = message("general", "lunch on staging");
+        indexAll(index, List.of(one, both, other));
+
+        List<Message> ranked = messages(index.search("failed staging", null, 0, 10));
+
+        assertThat(ranked).first().isEqualTo(both);
+        assertThat(ranked).containsExactlyInAnyOrder(one, both, other);
+    }
+
+    @Test
+    void filtersByRoom() {
+        SearchIndex index = index();
+        Message inRoom = message("ops", "server restarted");
+        indexAll(index, List.of(message("general", "server restarted"), inRoom, message("random", "server down")));
+
+        SearchPage page = index.search("server", "ops", 0, 10);
+
+        assertThat(page.total()).isEqualTo(1);
+        assertThat(messages(page)).containsExactly(inRoom);
+    }
+
+    @Test
+    void pagesWithOffsetAndLimit() {
+        SearchIndex index = index();
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            messages.add(message("general", "status update " + i));
+        }
+        indexAll(index, messages);
+
+        List<Message> all = messages(index.search("status", null, 0, 10));
+        List<Message> paged = new ArrayList<>();
+        for (int offset = 0; offset < 10; offset += 3) {
+            SearchPage page = index.search("status", null, offset, 3);
+            assertThat(page.total()).isEqualTo(10);
+            paged.addAll(messages(page));
+        }
+
+        // Equal scores go to the newer message first
+        assertThat(all).containsExactlyElementsOf(messages.reversed());
+        assertThat(paged).containsExactlyElementsOf(all);
+        assertThat(index.search("status", null, 10, 3).matches()).isEmpty();
+    }
+
+    @Test
+    void evictedMessagesNeverMatch() {
+        SearchIndex index = index();
+        List<Message> messages = new ArrayList<>();
+        messages.add(message("general", "forgotten password"));
+        for (int i = 0; i < CAPACITY; i++) {
+            messages.add(message("general", "filler " + i));
+        }
+        indexAll(index, messages);
+
+        assertThat(index.documentCount()).isEqualTo(CAPACITY);
+        assertThat(index.search("forgotten", null, 0, 10).total()).isZero();
+        assertThat(index.search("filler", null, 0, 100).total()).isEqualTo(CAPACITY);
+    }
+
+    @Test
+    void compactionKeepsTheResults() {
+        SearchIndex index = index();
+        // Two terms per message, with its id: indexing compacts the postings once the entries of evicted
+        // messages outnumber the live ones by the capacity, which the 41st message tips over
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            messages.add(message("general", "common"));
+        }
+        indexAll(index, messages);
+        long postingsBefore = index.postingCount();
+        List<Message> before = messages(index.search("common", null, 0, 100));
+
+        indexAll(index, List.of(message("general", "unrelated")));
+
+        assertThat(index.postingCount()).isLessThan(postingsBefore);
+        // Only the message evicted by the last one is gone
+        assertThat(messages(index.search("common", null, 0, 100))).containsExactlyElementsOf(before.subList(0, before.size() - 1));
+        assertThat(index.search("id40", null, 0, 10).total()).isEqualTo(1);
+        assertThat(index.search("id25", null, 0, 10).total()).isZero();
+    }
+
+    private SearchIndex index() {
+        ChatProperties properties = new ChatProperties();
+        properties.getHistory().setCapacity(CAPACITY);
+        // Only the compaction that indexing triggers itself runs during a test
+        properties.getSearch().setCompactInterval(Duration.ofHours(1));
+        ChatFrameCodec codec = new ChatFrameCodec(new ObjectMapper(), new FrameCompressor(properties));
+        ChatMetrics metrics = new ChatMetrics(new SimpleMeterRegistry(), new SubscriberQueues(properties), codec);
+        SearchIndex index = new SearchIndex(properties, new InMemoryMessageRepository(properties), metrics);
+        indexes.add(index);
+        return index;
+    }
+
+    /**
+     * Submits the messages and waits until the last of them is searchable; indexing is asynchronous.
+     */
+    private void indexAll(SearchIndex index, List<Message> messages) {
+        index.submitAll(messages);
+        long last = messages.get(messages.size() - 1).getId();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (index.search("id" + last, null, 0, 1).total() == 0) {
+            assertThat(System.nanoTime()).as("indexed in time").isLessThan(deadline);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+    }
+
+    private Message message(String room, String content) {
+        long id = ++nextId;
+        // Every message carries a term of its own, so a test can wait until it is searchable
+        return new Message(id, room, "alice", content + " id" + id, System.currentTimeMillis());
+    }
+
+    private static List<Message> messages(SearchPage page) {
+        return page.matches().stream().map(SearchPage.Match::message).toList();
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.chat.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.chat.cluster.StandaloneBackplane;
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.EncodedMessage;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.codec.WireFormat;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.model.Message;
+import com.example.chat.moderation.ModerationPipeline;
+import com.example.chat.repository.InMemoryMessageRepository;
+import com.example.chat.scheduling.ChatSchedulers;
+import com.example.chat.search.SearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+class ChatServiceImplTest {
+
+    private static final String ROOM = "general";
+    private static final int SUBSCRIBERS = 200;
+    private static final int MESSAGES = 50;
+    private static final int SHARDS = 4;
+    private static final int BATCH_SIZE = 4;
+
+    private final ChatProperties properties = properties();
+    private final SubscriberQueues subscriberQueues = new SubscriberQueues(properties);
+    private final ChatFrameCodec codec = new ChatFrameCodec(new ObjectMapper().findAndRegisterModules(), new FrameCompressor(new ChatProperties()));
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final InMemoryMessageRepository repository = new InMemoryMessageRepository(properties);
+    private final ChatMetrics metrics = new ChatMetrics(registry, subscriberQueues, codec);
+    private final SearchIndex searchIndex = new SearchIndex(properties, repository, metrics);
+    private final ChatSchedulers schedulers = new ChatSchedulers(properties);
+    private final ChatServiceImpl chatService = new ChatServiceImpl(properties, repository,
+            subscriberQueues, codec, metrics, new StandaloneBackplane(properties), searchIndex, schedulers,
+            new ModerationPipeline(properties, List.of(), metrics, schedulers));
+    private final List<Disposable> subscriptions = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        subscriptions.forEach(Disposable::dispose);
+        chatService.shutdown();
+        searchIndex.shutdown();
+        schedulers.shutdown();
+    }
+
+    @Test
+    void encodesEachMessageOncePerFormatRegardlessOfSubscribers() throws InterruptedException {
+        CountDownLatch delivered = new CountDownLatch(SUBSCRIBERS * MESSAGES);
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            // A mix of JSON and CBOR WebSocket sessions and SSE streams, like a busy room
+            int kind = i % 3;
+            subscriptions.add(chatService.messages(ROOM).subscribe(message -> {
+                byte[] payload = switch (kind) {
+                    case 0 -> message.frame(WireFormat.JSON);
+                    case 1 -> message.frame(WireFormat.CBOR);
+                    default -> message.sseEvent();
+                };
+                assertThat(payload).isNotEmpty();
+                delivered.countDown();
+            }));
+        }
+
+        for (int i = 0; i < MESSAGES; i++) {
+            chatService.publish(MessageMapper.toEntity(new MessageRequest("alice", "message " + i, ROOM)));
+        }
+
+        assertThat(delivered.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(codec.encodeCount(WireFormat.JSON)).isEqualTo(MESSAGES);
+        assertThat(codec.encodeCount(WireFormat.CBOR)).isEqualTo(MESSAGES);
+        assertThat(registry.get("chat.messages.encoded").tag("format", "json").functionCounter().count()).isEqualTo(MESSAGES);
+        assertThat(registry.get("chat.messages.published").counter().count()).isEqualTo(MESSAGES);
+    }
+
+    @Test
+    void publishAllKeepsEachSendersOrderAcrossBatches() throws InterruptedException {
+        List<String> senders = List.of("alice", "bob", "carol");
+        int total = 30;
+        List<Message> received = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(total);
+        subscriptions.add(chatService.messages(ROOM).subscribe(message -> {
+            received.add(message.message());
+            delivered.countDown();
+        }));
+
+        // Bursts of 7 with pauses longer than the window, so batches are cut both when full and when the window ends
+        Flux<Message> messages = Flux.range(0, total)
+                .map(i -> MessageMapper.toEntity(new MessageRequest(senders.get(i % senders.size()), Integer.toString(i), ROOM)))
+                .buffer(7)
+                .delayElements(properties.getBatch().getWindow().multipliedBy(3))
+                .flatMapIterable(burst -> burst);
+
+        assertThat(chatService.publishAll(messages).block(Duration.ofSeconds(10))).isEqualTo(total);
+        assertThat(delivered.await(10, TimeUnit.SECONDS)).isTrue();
+        for (List<Message> seen : List.of(chatService.history(ROOM, 0), received)) {
+            assertThat(seen).extracting(Message::getId).isSorted().doesNotHaveDuplicates();
+            for (String sender : senders) {
+                assertThat(seen).filteredOn(message -> message.getSender().equals(sender))
+                        .extracting(message -> Integer.valueOf(message.getContent()))
+                        .hasSize(total / senders.size())
+                        .isSorted();
+            }
+        }
+    }
+
+    @Test
+    void spreadsSubscribersOverShardsAndKeepsOneOrderForAll() throws InterruptedException {
+        int perPublisher = MESSAGES / SHARDS;
+        List<List<Long>> received = new ArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(SUBSCRIBERS * perPublisher * SHARDS);
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            List<Long> ids = new CopyOnWriteArrayList<>();
+            received.add(ids);
+            subscriptions.add(chatService.messages(ROOM).subscribe(message -> {
+                ids.add(message.id());
+                delivered.countDown();
+            }));
+        }
+
+        // Publishers race each other, yet every shard must relay the room's messages in the order the room emitted them
+        List<Thread> publishers = new ArrayList<>();
+        for (int p = 0; p < SHARDS; p++) {
+            publishers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perPublisher; i++) {
+                    chatService.publish(MessageMapper.toEntity(new MessageRequest("alice", "message", ROOM)));
+                }
+            }));
+        }
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+
+        assertThat(delivered.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertThat(registry.get("chat.broadcast.subscribers").tag("shard", Integer.toString(shard)).gauge().value())
+                    .isEqualTo(SUBSCRIBERS / SHARDS);
+        }
+        assertThat(received).allSatisfy(ids -> assertThat(ids).isEqualTo(received.get(0)));
+    }
+
+    @Test
+    void resumesFromHistoryIntoLiveWithoutGapsOrDuplicatesWhilePublishing() throws Exception {
+        int stored = 100;
+        int total = 600;
+        for (int i = 0; i < stored; i++) {
+            chatService.publish(MessageMapper.toEntity(new MessageRequest("alice", "message " + i, ROOM)));
+        }
+        Thread publisher = Thread.ofPlatform().start(() -> {
+            for (int i = stored; i < total; i++) {
+                chatService.publish(MessageMapper.toEntity(new MessageRequest("alice", "message " + i, ROOM)));
+                LockSupport.parkNanos(50_000);
+            }
+        });
+
+        // Resume repeatedly while messages are being published, so the switch from history to live races the publisher
+        List<Long> resumedAfter = new ArrayList<>();
+        List<CompletableFuture<List<Long>>> resumed = new ArrayList<>();
+        while (publisher.isAlive() && resumed.size() < 20) {
+            long afterId = Math.max(0, repository.lastId() - 10);
+            resumedAfter.add(afterId);
+            resumed.add(chatService.messages(ROOM, afterId)
+                    .map(EncodedMessage::id)
+                    .takeUntil(id -> id >= total)
+                    .collectList()
+                    .toFuture());
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        publisher.join();
+
+        assertThat(resumed).isNotEmpty();
+        for (int i = 0; i < resumed.size(); i++) {
+            assertThat(resumed.get(i).get(10, TimeUnit.SECONDS))
+                    .containsExactlyElementsOf(LongStream.rangeClosed(resumedAfter.get(i) + 1, total).boxed().toList());
+        }
+    }
+
+    private static ChatProperties properties() {
+        ChatProperties properties = new ChatProperties();
+        properties.getExecution().setBroadcastShards(SHARDS);
+        properties.getBatch().setSize(BATCH_SIZE);
+        properties.getBatch().setWindow(Duration.ofMillis(20));
+        return properties;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.chat.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.chat.config.ChatProperties;
+import com.example.chat.config.OverflowPolicy;
+
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class SubscriberQueuesTest {
+
+    private static final int CAPACITY = 3;
+    private static final int MESSAGES = 10;
+
+    private final Sinks.Many<Integer> sink = Sinks.many().multicast().directBestEffort();
+
+    @Test
+    void dropOldestKeepsTheNewestMessagesOfAStalledSubscriber() {
+        SubscriberQueues queues = queues(OverflowPolicy.DROP_OLDEST);
+
+        StepVerifier.create(queues.isolate(sink.asFlux(), "test"), 0)
+                .then(this::emitAll)
+                .thenRequest(CAPACITY)
+                .expectNext(8, 9, 10)
+                .thenCancel()
+                .verify();
+        assertThat(queues.droppedTotal()).isEqualTo(MESSAGES - CAPACITY);
+    }
+
+    @Test
+    void dropLatestKeepsTheOldestMessagesOfAStalledSubscriber() {
+        SubscriberQueues queues = queues(OverflowPolicy.DROP_LATEST);
+
+        StepVerifier.create(queues.isolate(sink.asFlux(), "test"), 0)
+                .then(this::emitAll)
+                .thenRequest(CAPACITY)
+                .expectNext(1, 2, 3)
+                .thenCancel()
+                .verify();
+        assertThat(queues.droppedTotal()).isEqualTo(MESSAGES - CAPACITY);
+    }
+
+    @Test
+    void disconnectTerminatesAStalledSubscriberWithAnOverflowError() {
+        SubscriberQueues queues = queues(OverflowPolicy.DISCONNECT);
+
+        StepVerifier.create(queues.isolate(sink.asFlux(), "test"), 0)
+                .then(this::emitAll)
+                .thenRequest(Long.MAX_VALUE)
+                .expectNext(1, 2, 3)
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify();
+        assertThat(queues.disconnectedTotal()).isEqualTo(1);
+        assertThat(queues.stats()).isEmpty();
+    }
+
+    @Test
+    void stalledSubscriberDoesNotHoldBackTheOthers() {
+        SubscriberQueues queues = queues(OverflowPolicy.DROP_OLDEST);
+        Flux<Integer> room = queues.isolate(sink.asFlux(), "room");
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        Disposable fast = room.subscribe(received::add);
+
+        StepVerifier.create(room, 0)
+                .then(() -> {
+                    emitAll();
+                    // Everything reached the other subscriber while this one requested nothing
+                    assertThat(received).containsExactlyElementsOf(IntStream.rangeClosed(1, MESSAGES).boxed().toList());
+                    assertThat(queues.stats()).anySatisfy(stats -> assertThat(stats.getDropped()).isEqualTo(MESSAGES - CAPACITY));
+                })
+                .thenRequest(1)
+                .expectNext(8)
+                .thenCancel()
+                .verify();
+        fast.dispose();
+    }
+
+    private void emitAll() {
+        for (int i = 1; i <= MESSAGES; i++) {
+            // Once the only subscriber is disconnected the sink has no one left to emit to
+            sink.tryEmitNext(i);
+        }
+    }
+
+    private static SubscriberQueues queues(OverflowPolicy policy) {
+        ChatProperties properties = new ChatProperties();
+        properties.setMaxBufferSize(CAPACITY);
+        properties.setOverflowPolicy(policy);
+        return new SubscriberQueues(properties);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.chat.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+
+import com.example.chat.codec.WireFormat;
+import com.example.chat.dto.MessageRequest;
+import com.example.chat.mapper.MessageMapper;
+import com.example.chat.service.ChatService;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+
+/**
+ * Negotiates permessage-deflate through a running server, with the compression window dropped after every message.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "chat.rate-limit.enabled=false",
+        "chat.compression.level=9",
+        "chat.compression.server-context-takeover=false"})
+class PerMessageDeflateEndpointsTest {
+
+    private static final String EXTENSIONS = "Sec-WebSocket-Extensions";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ChatService chatService;
+
+    private final ReactorNettyWebSocketClient client = new ReactorNettyWebSocketClient(HttpClient.create(),
+            () -> WebsocketClientSpec.builder().compress(true));
+
+    @Test
+    void offeredExtensionIsAcceptedWithoutServerContextTakeover() {
+        String room = "deflate-offered";
+        String content = "the quick brown fox ".repeat(100);
+        AtomicReference<String> extensions = new AtomicReference<>();
+        AtomicReference<String> received = new AtomicReference<>();
+
+        // Resuming from 0 replays anything published before the session's live subscription started
+        client.execute(uri(room), session -> {
+                    extensions.set(session.getHandshakeInfo().getHeaders().getFirst(EXTENSIONS));
+                    publish(room, content);
+                    return session.receive()
+                            .next()
+                            .map(WebSocketMessage::getPayloadAsText)
+                            .doOnNext(received::set)
+                            .then();
+                })
+                .block(Duration.ofSeconds(10));
+
+        assertThat(extensions.get()).contains("permessage-deflate", "server_no_context_takeover");
+        assertThat(received.get()).contains("\"content\":\"" + content + "\"");
+    }
+
+    @Test
+    void compressedFramesFromTheClientAreDecoded() {
+        String room = "deflate-sent";
+        String content = "jumps over the lazy dog ".repeat(100);
+        AtomicReference<String> received = new AtomicReference<>();
+
+        client.execute(uri(room), session -> session.send(Mono.just(session.textMessage(
+                                "{\"sender\":\"alice\",\"content\":\"" + content + "\"}")))
+                        .thenMany(session.receive().take(1))
+                        .map(WebSocketMessage::getPayloadAsText)
+                        .doOnNext(received::set)
+                        .then())
+                .block(Duration.ofSeconds(10));
+
+        assertThat(received.get()).contains("\"content\":\"" + content + "\"");
+    }
+
+    @Test
+    void deflateSubprotocolSessionsAreUpgradedWithoutTheExtension() {
+        String room = "deflate-subprotocol";
+        AtomicReference<String> subProtocol = new AtomicReference<>();
+        AtomicReference<String> extensions = new AtomicReference<>();
+
+        client.execute(uri(room), new WebSocketHandler() {
+                    @Override
+                    public List<String> getSubProtocols() {
+                        return List.of(WireFormat.JSON_DEFLATE_SUBPROTOCOL);
+                    }
+
+                    @Override
+                    public Mono<Void> handle(WebSocketSession session) {
+                        subProtocol.set(session.getHandshakeInfo().getSubProtocol());
+                        extensions.set(session.getHandshakeInfo().getHeaders().getFirst(EXTENSIONS));
+                        return session.close();
+                    }
+                })
+                .block(Duration.ofSeconds(10));
+
+        assertThat(subProtocol.get()).isEqualTo(WireFormat.JSON_DEFLATE_SUBPROTOCOL);
+        assertThat(extensions.get()).isNull();
+    }
+
+    private void publish(String room, String content) {
+        chatService.publish(MessageMapper.toEntity(new MessageRequest("alice", content, room)));
+    }
+
+    private URI uri(String room) {
+        return URI.create("ws://localhost:" + port + "/ws/chat?room=" + room + "&since=0");
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.chat.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+
+import com.example.chat.config.ChatConstants;
+
+import reactor.core.Disposable;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+
+/**
+ * Checks connection admission and idle eviction through a running server. Each test connects from its own
+ * address, taken from X-Forwarded-For, so the per-address limit of one test does not affect another.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "chat.rate-limit.enabled=false",
+        "server.forward-headers-strategy=framework",
+        "chat.sessions.max-connections-per-address=2",
+        "chat.sessions.ping-interval=100ms",
+        "chat.sessions.idle-timeout=500ms"})
+class SessionLimitsEndpointsTest {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private SessionRegistry sessionRegistry;
+
+    private final List<Disposable> connections = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        connections.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void handshakeOverTheAddressLimitIsAnswered503BeforeUpgrading() {
+        String address = "10.1.0.1";
+        connect(address);
+        connect(address);
+        awaitSessions(address, 2);
+
+        // Turned away before the upgrade, so a plain GET gets the same answer as a handshake
+        client.get().uri("/ws/chat")
+                .header(FORWARDED_FOR, address)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, Long.toString(ChatConstants.CONNECTION_RETRY_AFTER.toSeconds()));
+        // The stream endpoint applies the same limit
+        client.get().uri("/chat/stream")
+                .header(FORWARDED_FOR, address)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER);
+        // Other addresses are still admitted; a plain GET then fails the upgrade instead
+        client.get().uri("/ws/chat")
+                .header(FORWARDED_FOR, "10.1.0.2")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void sessionThatStopsAnsweringPingsIsClosed() {
+        String address = "10.1.0.3";
+        // Handing pings to the session instead of answering them makes the client look dead to the server
+        ReactorNettyWebSocketClient silent = new ReactorNettyWebSocketClient(HttpClient.create(),
+                () -> WebsocketClientSpec.builder().handlePing(true));
+
+        AtomicReference<CloseStatus> closed = new AtomicReference<>();
+        long started = System.nanoTime();
+        silent.execute(uri(), headers(address), session -> session.closeStatus()
+                        .doOnNext(closed::set)
+                        .and(session.receive()))
+                .block(Duration.ofSeconds(10));
+
+        assertThat(closed.get()).isEqualTo(CloseStatus.GOING_AWAY);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(500));
+        awaitSessions(address, 0);
+    }
+
+    private void connect(String address) {
+        connections.add(new ReactorNettyWebSocketClient()
+                .execute(uri(), headers(address), session -> session.receive().then())
+                .subscribe());
+    }
+
+    private void awaitSessions(String address, int expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sessionRegistry.sessions().stream().filter(session -> session.address().equals(address)).count() != expected) {
+            assertThat(System.nanoTime()).as("sessions from %s", address).isLessThan(deadline);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private URI uri() {
+        return URI.create("ws://localhost:" + port + "/ws/chat");
+    }
+
+    private static HttpHeaders headers(String address) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(FORWARDED_FOR, address);
+        return headers;
+    }
+}
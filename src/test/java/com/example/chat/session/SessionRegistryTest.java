@@ -0,0 +1,85 @@
+package com.example.chat.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.chat.codec.ChatFrameCodec;
+import com.example.chat.codec.FrameCompressor;
+import com.example.chat.config.ChatProperties;
+import com.example.chat.exception.ConnectionLimitExceededException;
+import com.example.chat.metrics.ChatMetrics;
+import com.example.chat.metrics.Transport;
+import com.example.chat.service.SubscriberQueues;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SessionRegistryTest {
+
+    private final SessionRegistry registry = registry(3, 2);
+
+    @Test
+    void admitsUpToTheGlobalLimit() {
+        registry.register("1", Transport.WEBSOCKET, "10.0.0.1", "general");
+        registry.register("2", Transport.SSE, "10.0.0.2", "general");
+        registry.register("3", Transport.WEBSOCKET, "10.0.0.3", "general");
+
+        assertThat(registry.check("10.0.0.4")).isEqualTo(ConnectionLimit.GLOBAL);
+        assertThatThrownBy(() -> registry.register("4", Transport.WEBSOCKET, "10.0.0.4", "general"))
+                .isInstanceOfSatisfying(ConnectionLimitExceededException.class,
+                        error -> assertThat(error.getLimit()).isEqualTo(ConnectionLimit.GLOBAL));
+        assertThat(registry.size()).isEqualTo(3);
+        assertThat(registry.active(Transport.WEBSOCKET)).isEqualTo(2);
+        assertThat(registry.active(Transport.SSE)).isEqualTo(1);
+    }
+
+    @Test
+    void admitsUpToTheLimitPerAddress() {
+        registry.register("1", Transport.WEBSOCKET, "10.0.0.1", "general");
+        registry.register("2", Transport.SSE, "10.0.0.1", "general");
+
+        assertThat(registry.check("10.0.0.1")).isEqualTo(ConnectionLimit.ADDRESS);
+        assertThatThrownBy(() -> registry.register("3", Transport.WEBSOCKET, "10.0.0.1", "general"))
+                .isInstanceOfSatisfying(ConnectionLimitExceededException.class,
+                        error -> assertThat(error.getLimit()).isEqualTo(ConnectionLimit.ADDRESS));
+        // A rejected client does not hold on to a global slot
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(registry.check("10.0.0.2")).isNull();
+    }
+
+    @Test
+    void unregisteringFreesTheSlotsOnce() {
+        ClientSession first = registry.register("1", Transport.WEBSOCKET, "10.0.0.1", "general");
+        registry.register("2", Transport.WEBSOCKET, "10.0.0.1", "general");
+
+        registry.unregister(first);
+        registry.unregister(first);
+
+        assertThat(registry.size()).isEqualTo(1);
+        assertThat(registry.active(Transport.WEBSOCKET)).isEqualTo(1);
+        assertThat(registry.check("10.0.0.1")).isNull();
+        registry.register("3", Transport.WEBSOCKET, "10.0.0.1", "general");
+        assertThat(registry.sessions()).extracting(ClientSession::id).containsExactlyInAnyOrder("2", "3");
+    }
+
+    @Test
+    void limitsOfZeroAreNotApplied() {
+        SessionRegistry unlimited = registry(0, 0);
+        for (int i = 0; i < 100; i++) {
+            unlimited.register(Integer.toString(i), Transport.SSE, "10.0.0.1", "general");
+        }
+
+        assertThat(unlimited.size()).isEqualTo(100);
+        assertThat(unlimited.check("10.0.0.1")).isNull();
+    }
+
+    private static SessionRegistry registry(int maxConnections, int maxConnectionsPerAddress) {
+        ChatProperties properties = new ChatProperties();
+        properties.getSessions().setMaxConnections(maxConnections);
+        properties.getSessions().setMaxConnectionsPerAddress(maxConnectionsPerAddress);
+        ChatFrameCodec codec = new ChatFrameCodec(new ObjectMapper(), new FrameCompressor(properties));
+        return new SessionRegistry(properties, new ChatMetrics(new SimpleMeterRegistry(), new SubscriberQueues(properties), codec));
+    }
+}